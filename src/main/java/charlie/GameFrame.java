@@ -549,8 +549,12 @@ public class GameFrame extends AbstractGameFrame {
                             options,
                             options[1]);
                     
-                    if(n == 0)
+                    if(n == 0) {
+                        if(courier != null)
+                            courier.logout();
+                        
                         System.exit(0);
+                    }
                 }
             });
         }
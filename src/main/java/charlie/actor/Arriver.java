@@ -35,6 +35,7 @@ import java.net.UnknownHostException;
 public class Arriver extends Actor {
 
     private final Ticket ticket;
+    private final int courierPort;
     
     /**
      * Constructor
@@ -43,18 +44,32 @@ public class Arriver extends Actor {
      * @param ticket Ticket to conduct business
      */
     public Arriver(Ticket ticket) {
+        this(ticket, Integer.parseInt(System.getProperty("charlie.client.courier").split(":")[1]));
+    }
+    
+    /**
+     * Constructor
+     * @param ticket Ticket to conduct business
+     * @param courierPort Port on which the courier listens
+     */
+    public Arriver(Ticket ticket, int courierPort) {
         super("",System.getProperty("charlie.server.house"));
         
         this.ticket = ticket;
+        this.courierPort = courierPort;
     }
     
+    /**
+     * Sends the arrival message to the house.
+     */
     public void send() {
         try {
-            int courierPort = Integer.parseInt(System.getProperty("charlie.client.courier").split(":")[1]);
-            
             super.send(new Arrival(ticket,InetAddress.getLocalHost(),courierPort));
             info("sent arrival message");
             
+            // Arrival is one-shot: the house doesn't reply over this link
+            disconnect();
+            
         } catch (UnknownHostException ex) {
             error("got exception "+ex);
         }
@@ -50,14 +50,12 @@ public class ClientAuthenticator extends Authenticator {
      * @return Ticket if login successful, null otherwise
      */
     public Ticket send(Login login) {
-        try {
-            // Login to the server
-            String[] params = remoteHost.split(":");
-            String loginAddr = params[0];
-            int loginPort = Integer.parseInt(params[1]);
-
-            Socket client = new Socket(loginAddr, loginPort);
+        // Login to the server
+        String[] params = remoteHost.split(":");
+        String loginAddr = params[0];
+        int loginPort = Integer.parseInt(params[1]);
 
+        try (Socket client = new Socket(loginAddr, loginPort)) {
             OutputStream os = client.getOutputStream();
 
             ObjectOutputStream oos = new ObjectOutputStream(os);
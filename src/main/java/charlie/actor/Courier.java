@@ -24,16 +24,21 @@ package charlie.actor;
 
 import charlie.actor.last.Listener;
 import charlie.actor.last.Actor;
+import charlie.actor.last.Link;
 import charlie.card.Card;
 import charlie.card.HoleCard;
 import charlie.message.view.to.Ready;
 import charlie.plugin.IUi;
 import charlie.card.Hid;
 import charlie.dealer.Seat;
+import charlie.message.Batch;
 import charlie.message.Message;
+import charlie.message.Sequence;
 import charlie.message.view.from.Bet;
 import charlie.message.view.from.DoubleDown;
 import charlie.message.view.from.Hit;
+import charlie.message.view.from.Logout;
+import charlie.message.view.from.Rejoin;
 import charlie.message.view.from.SplitRequest;
 import charlie.message.view.from.Stay;
 import charlie.message.view.to.Blackjack;
@@ -50,6 +55,7 @@ import charlie.message.view.to.Shuffle;
 import charlie.message.view.to.SplitResponse;
 import charlie.message.view.to.Win;
 import charlie.util.Constant;
+import java.io.IOException;
 import java.net.InetAddress;
 import charlie.plugin.ITrap;
 import org.apache.log4j.Logger;
@@ -64,13 +70,25 @@ public class Courier extends Actor implements Listener {
     protected InetAddress myAddress;
     protected HoleCard holeCard;
     protected ITrap trap;
+    protected int session = 0;
+    protected long key = 0;
+    protected final Sequence sequence = new Sequence();
     
     /**
      * Constructor
      * @param ui User interface
      */
     public Courier(IUi ui) {
-        super(System.getProperty("charlie.client.courier"), System.getProperty("charlie.server.realplayer"));
+        this(ui, System.getProperty("charlie.client.courier"));
+    }
+    
+    /**
+     * Constructor
+     * @param ui User interface
+     * @param myHost My host in "address:port" form.
+     */
+    public Courier(IUi ui, String myHost) {
+        super(myHost, System.getProperty("charlie.server.realplayer"));
 
         this.ui = ui;
         
@@ -85,19 +103,7 @@ public class Courier extends Actor implements Listener {
         
         this.listener = this;
         
-        String className = System.getProperty(Constant.PLUGIN_TRAP);
-        
-        if(className != null) {
-            try {
-                Class<?> clazz = Class.forName(className);
-                
-                trap = (ITrap) clazz.newInstance();
-                
-                info("trap installed successfully: "+trap.getClass().getSimpleName());
-            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-               error("exception caught: "+ex);
-            }
-        }
+        this.trap = TrapFactory.getInstance();
     }
     
     /**
@@ -106,6 +112,16 @@ public class Courier extends Actor implements Listener {
      */
     @Override
     public void received(Message message) {
+        // Replay a batch in order as if its messages came one by one
+        if(message instanceof Batch) {
+            for(Message part: ((Batch) message).getMessages())
+                received(part);
+            
+            return;
+        }
+        
+        sequence.check(message);
+        
         if(message instanceof Outcome)
             got((Outcome) message);
         
@@ -137,12 +153,53 @@ public class Courier extends Actor implements Listener {
             trap.onReceive(message);
     }
     
+    /**
+     * Sends a message tagged with our table session.
+     * The UI and workers send from different threads, so numbering and
+     * sending are one step, or messages could go out of sequence.
+     * @param message Message
+     */
     @Override
     public void send(Message message) {
-        super.send(message);
+        message.setSession(session);
         
-        if(trap != null)
-            trap.onSend(message);
+        synchronized(sequence) {
+            sequence.next(message);
+            
+            super.send(message);
+            
+            if(trap != null)
+                trap.onSend(message);
+        }
+    }
+    
+    /**
+     * Gets the link to the table. A link we open ourselves, ie, after the
+     * table's link broke, has to rejoin the table before it's any use.
+     * @return Link
+     * @throws IOException If the table can't be reached
+     */
+    @Override
+    protected synchronized Link connect() throws IOException {
+        Link before = link;
+        
+        Link now = super.connect();
+        
+        if(now != before && key != 0) {
+            Rejoin rejoin = new Rejoin(key);
+            rejoin.setSession(session);
+            
+            now.send(rejoin);
+        }
+        
+        return now;
+    }
+    
+    /**
+     * Sends the logout request to dealer surrogate on server.
+     */
+    public void logout() {
+        send(new Logout());
     }
     
     /**
@@ -231,7 +288,11 @@ public class Courier extends Actor implements Listener {
      * @param msg Ready message
      */
     public void got(Ready msg) {
-        LOG.info("received "+msg+" from "+msg.getSource());
+        LOG.info("received "+msg+" from "+msg.getSource()+" session = "+msg.getSession());
+        
+        // Every message we send from now on belongs to this table
+        session = msg.getSession();
+        key = msg.getKey();
         
         synchronized(ui) {
             ui.notify();
@@ -307,6 +368,14 @@ public class Courier extends Actor implements Listener {
         this.myAddress = mine;
     }
     
+    /**
+     * Gets the table session.
+     * @return Session id
+     */
+    public int getSession() {
+        return session;
+    }
+    
     /**
      * Gets the trap.
      * @return Trap, if one has been configured.
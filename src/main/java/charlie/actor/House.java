@@ -30,16 +30,15 @@ import charlie.message.Message;
 import charlie.plugin.IPlayer;
 import charlie.message.view.from.Arrival;
 import charlie.server.GameServer;
+import charlie.server.Journal;
 import charlie.server.Ticket;
 
 import java.lang.reflect.Constructor;
 import java.net.InetAddress;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 
 import charlie.util.Constant;
+import charlie.util.Metrics;
 import org.apache.log4j.Logger;
 
 /**
@@ -48,10 +47,7 @@ import org.apache.log4j.Logger;
  */
 public class House extends Actor implements Listener {
     private final Logger LOG = Logger.getLogger(House.class);
-    protected List<RealPlayer> players = new ArrayList<>();
-    private Integer nextPlayerId = 0;
     private final GameServer server;
-    protected HashMap<IPlayer,Ticket> accounts = new HashMap<>();
 
     /**
      * Constructor
@@ -106,6 +102,8 @@ public class House extends Actor implements Listener {
 
         LOG.info("validated ticket = " + ticket);
         
+        Metrics.getInstance().count("house.arrivals");
+        
         // Build address to courier to which real player is connected.
         InetAddress host = arrival.getSource();
         LOG.info("arrival from host = " + host);
@@ -116,18 +114,17 @@ public class House extends Actor implements Listener {
         Dealer dealer = loadDealer();
 
         // Spawn a "real player" sandwiched between dealer and courier.
-        RealPlayer player = new RealPlayer(dealer, courier);
+        RealPlayer player = new RealPlayer(this, dealer, courier);
         player.setListener(player);
         
-        player.start();
+        // The player's table shares the server's listener with all other tables
+        server.getTables().open(player);
 
         // Put this player in the repository of player accounts.
-        accounts.put(player, ticket);
-
-        synchronized (this) {
-            nextPlayerId++;
-
-            players.add(player);
+        if(server.getRegistry().bind(player, ticket) == null) {
+            LOG.error("ticket expired or in use = " + ticket);
+            server.getTables().close(player.getSession());
+            return;
         }
 
         // Inform courier that login is complete and we're ready to play
@@ -180,14 +177,25 @@ public class House extends Actor implements Listener {
      * @return True if the ticket is valid, false otherwise.
      */
     protected boolean valid(Ticket ticket) {
-        List<Ticket> logins = server.getTickets();
+        return server.getRegistry().valid(ticket);
+    }
+    
+    /**
+     * Logs a player out and closes its table.
+     * @param player Player
+     */
+    public void logout(RealPlayer player) {
+        Ticket ticket = server.getRegistry().logout(player);
         
-        for(int i=0; i < logins.size(); i++) {
-            if(logins.get(i).equals(ticket))
-                return true;
-        }
+        Metrics.getInstance().count("house.logouts");
+        
+        Journal journal = server.getJournal();
+        if(journal != null)
+            journal.retire(ticket);
         
-        return false;
+        server.getTables().close(player.getSession());
+        
+        LOG.info("logged out ticket = " + ticket + " session = " + player.getSession());
     }
     /**
      * Updates the bankroll.
@@ -195,14 +203,19 @@ public class House extends Actor implements Listener {
      * @param player the player
      */
     public void updateBankroll(IPlayer player,Hid hid) {
-        if(player == null || !accounts.containsKey(player))
+        Ticket ticket = server.getRegistry().getTicket(player);
+        
+        if(ticket == null)
             return;
         
-        Ticket ticket = accounts.get(player);
+        // Main and side bet settle in one atomic credit
+        long cents = Ticket.toCents(hid.getAmt()) + Ticket.toCents(hid.getSideAmt());
         
-        Double bankroll = ticket.getBankroll() + hid.getAmt() + hid.getSideAmt();
+        ticket.credit(cents);
         
-        ticket.setBankroll(bankroll);
+        Journal journal = server.getJournal();
+        if(journal != null)
+            journal.settle(ticket, hid, cents);
     }
     
     /**
@@ -211,9 +224,11 @@ public class House extends Actor implements Listener {
      * @return Dollar amount of bankroll
      */
     public Double getBankroll(IPlayer player) {
-        if(player == null || !accounts.containsKey(player))
+        Ticket ticket = server.getRegistry().getTicket(player);
+        
+        if(ticket == null)
             return 0.0;
         
-        return accounts.get(player).getBankroll();
+        return ticket.getBankroll();
     }
 }
@@ -24,6 +24,8 @@ package charlie.actor;
 
 import charlie.actor.last.Listener;
 import charlie.actor.last.Actor;
+import charlie.actor.last.Link;
+import charlie.actor.last.Outbox;
 import charlie.card.Card;
 import charlie.message.view.from.Bet;
 import charlie.message.view.from.Hit;
@@ -31,8 +33,14 @@ import charlie.card.Hid;
 import charlie.dealer.Dealer;
 import charlie.card.Hand;
 import charlie.message.Message;
+import charlie.message.Sequence;
 import charlie.plugin.IPlayer;
+import charlie.plugin.ITrap;
+import charlie.util.Histogram;
+import charlie.util.Metrics;
 import charlie.message.view.from.DoubleDown;
+import charlie.message.view.from.Logout;
+import charlie.message.view.from.Rejoin;
 import charlie.message.view.from.Request;
 import charlie.message.view.from.SplitRequest;
 import charlie.message.view.from.Stay;
@@ -56,12 +64,44 @@ import java.util.logging.Level;
 
 /**
  * This class implements the game interface to a "real" player.
+ * Messages to the courier go through an outbox with its own writer so the
+ * dealer never waits on the network. If the courier is too slow, the outbox
+ * disconnects it; when it rejoins, the table gets a fresh outbox.
  * @author Ron Coleman
  */
 public class RealPlayer extends Actor implements Listener, IPlayer {
     protected InetAddress myAddress;
     protected Dealer dealer;
+    protected House house;
     protected Hand playing;
+    protected int session = 0;
+    protected long key = 0;
+    protected final Sequence sequence = new Sequence();
+    protected final ITrap trap = TrapFactory.getInstance();
+    protected volatile Outbox outbox = newOutbox();
+    protected boolean closed = false;
+    
+    /** Latencies from what the courier sends to the table's answer */
+    protected enum Latency {
+        BET_TO_CARD("player.bet_to_card"),
+        HIT("player.hit"),
+        STAY("player.stay"),
+        DOUBLE_DOWN("player.doubledown"),
+        SPLIT("player.splitrequest");
+        
+        final String metric;
+        
+        Latency(String metric) {
+            this.metric = metric;
+        }
+    }
+    
+    /** Latency being timed, if any, and when it started */
+    protected Latency timing = null;
+    protected long timingStart;
+    
+    /** Histograms of the table by latency */
+    protected final Histogram[] latencies = new Histogram[Latency.values().length];
 
     /**
      * Constructor
@@ -69,7 +109,18 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
      * @param courier Courier address + port
      */
     public RealPlayer(Dealer dealer, String courier) {
+        this(null, dealer, courier);
+    }
+
+    /**
+     * Constructor
+     * @param house House which admitted the player or null if none
+     * @param dealer Dealer the player is using.
+     * @param courier Courier address + port
+     */
+    public RealPlayer(House house, Dealer dealer, String courier) {
         super(System.getProperty("charlie.server.realplayer"), courier);
+        this.house = house;
         try {
             this.myAddress = InetAddress.getLocalHost();
             this.dealer = dealer;
@@ -78,11 +129,157 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         }
     }
     
+    /**
+     * Sets the table session this player belongs to and gets its metrics.
+     * @param session Session id
+     * @param key Table key the courier must present to rejoin
+     */
+    public void setSession(int session, long key) {
+        this.session = session;
+        this.key = key;
+        
+        synchronized(sequence) {
+            for(Latency latency: Latency.values())
+                latencies[latency.ordinal()] = Metrics.getInstance().histogram(latency.metric, session);
+        }
+    }
+    
+    /**
+     * Gets the table session this player belongs to.
+     * @return Session id
+     */
+    public int getSession() {
+        return session;
+    }
+    
+    /**
+     * Queues a message to the courier tagged with the table session.
+     * @param msg Message
+     */
+    @Override
+    public void send(Message msg) {
+        msg.setSession(session);
+        
+        // Queue in sequence order, without the actor's lock the writer needs
+        synchronized(sequence) {
+            sequence.next(msg);
+        
+            outbox.post(msg);
+            
+            if(trap != null)
+                trap.onSend(msg);
+            
+            // A bet is answered by the first card, a request by anything
+            if(timing != null && (timing != Latency.BET_TO_CARD || msg instanceof Deal)) {
+                Histogram latency = latencies[timing.ordinal()];
+                
+                // Null until the player has a table
+                if(latency != null)
+                    latency.since(timingStart);
+                
+                timing = null;
+            }
+        }
+    }
+    
+    /**
+     * Closes the table side of the player after the outbox drains.
+     */
+    public void close() {
+        synchronized(sequence) {
+            closed = true;
+            outbox.close();
+        }
+    }
+    
+    /**
+     * Makes an outbox to the courier.
+     * @return Outbox
+     */
+    protected Outbox newOutbox() {
+        return new Outbox("outbox "+this.remoteHost, super::send, super::disconnect);
+    }
+    
+    /**
+     * Replaces the outbox if it disconnected a slow courier, so the table
+     * talks to the courier again once it rejoins. What the old outbox
+     * dropped stays dropped; the courier sees the gap in the sequence.
+     */
+    protected void reopen() {
+        synchronized(sequence) {
+            if(closed || outbox.isOpen())
+                return;
+            
+            outbox = newOutbox();
+        }
+        
+        info("reopened outbox for session = "+session);
+    }
+    
+    /**
+     * Gets the outbox.
+     * @return Outbox
+     */
+    public Outbox getOutbox() {
+        return outbox;
+    }
+    
     /**
      * Sends ready to the courier to let remote host know we're connected.
+     * It goes over the link we open to the courier the arrival named, so
+     * only that courier learns the key.
      */
     public void ready() {
-        send(new Ready(myAddress));
+        send(new Ready(myAddress, key));
+    }
+    
+    /**
+     * Delivers messages only from the link bound to the table, ie, the one
+     * we opened to the courier or one it rejoined on with the table key.
+     * @param from Link on which the message arrived
+     * @param msg Message
+     */
+    @Override
+    public void deliver(Link from, Message msg) {
+        if(msg instanceof Rejoin) {
+            // Sending locks the sequence, then the actor: reopen outside the latter
+            if(rejoin(from, (Rejoin) msg))
+                reopen();
+            
+            return;
+        }
+        
+        synchronized(this) {
+            if(from != link) {
+                error("rejected "+msg.getClass().getSimpleName()+" from a link not bound to session = "+session);
+                return;
+            }
+        }
+        
+        super.deliver(from, msg);
+    }
+    
+    /**
+     * Binds the table to the link a courier rejoined on, if its key is good.
+     * @param from Link on which the rejoin arrived
+     * @param rejoin Rejoin
+     * @return True if the courier rejoined
+     */
+    protected synchronized boolean rejoin(Link from, Rejoin rejoin) {
+        if(key == 0 || rejoin.getKey() != key) {
+            error("rejected rejoin with bad key for session = "+session);
+            from.close();
+            return false;
+        }
+        
+        // Replies go over the new link from now on
+        if(link != null && link != from)
+            link.close();
+        
+        link = from;
+        info("courier rejoined session = "+session);
+        
+        return true;
     }
 
     /**
@@ -91,6 +288,11 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
      */
     @Override
     public void received(Message msg) {
+        sequence.check(msg);
+        
+        if(trap != null)
+            trap.onReceive(msg);
+        
         if(msg instanceof Hit)
             onReceive((Hit)msg);
         
@@ -106,6 +308,10 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         else if (msg instanceof Bet) {
             onReceive((Bet) msg);
         }
+        
+        else if (msg instanceof Logout)
+            onReceive((Logout) msg);
+        
         else
             error("dropped message: "+msg.getClass().getSimpleName());
     }
@@ -117,9 +323,22 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
     public void onReceive(Bet bet) {     
         info("received bet = "+bet.getHid().getAmt());
         
+        time(Latency.BET_TO_CARD);
+        
         dealer.bet(this, bet.getHid());
     }
     
+    /**
+     * Receives a logout from the courier.
+     * @param logout Logout
+     */
+    public void onReceive(Logout logout) {
+        info("received logout");
+        
+        if(house != null)
+            house.logout(this);
+    }
+    
     /**
      * Receives a request from the courier.
      * @param request Request
@@ -128,16 +347,23 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
         info("received request = "+request.getClass().getSimpleName());
         Hid hid = request.getHid();
         
-        if(request instanceof Hit)
+        if(request instanceof Hit) {
+            time(Latency.HIT);
             dealer.hit(this, hid);
+        }
         
-        else if(request instanceof Stay)
+        else if(request instanceof Stay) {
+            time(Latency.STAY);
             dealer.stay(this, hid);
+        }
         
-        else if(request instanceof DoubleDown)
+        else if(request instanceof DoubleDown) {
+            time(Latency.DOUBLE_DOWN);
             dealer.doubleDown(this, hid);
+        }
         
         else if(request instanceof SplitRequest){
+            time(Latency.SPLIT);
             dealer.split(this, hid);
         }
         
@@ -145,6 +371,17 @@ public class RealPlayer extends Actor implements Listener, IPlayer {
             error("received unknown request: "+request+" for hand = "+hid);
     } 
 
+    /**
+     * Times the latency to the next response.
+     * @param latency Latency
+     */
+    protected void time(Latency latency) {
+        synchronized(sequence) {
+            timing = latency;
+            timingStart = System.nanoTime();
+        }
+    }
+
     /**
      * Sets my address since courier doesn't know where it is.
      * @param mine My address
@@ -26,24 +26,35 @@ import charlie.actor.last.Authenticator;
 import charlie.message.Message;
 import charlie.message.view.from.Login;
 import charlie.server.GameServer;
-import static charlie.util.Helper.sleep;
+import charlie.server.Journal;
+import charlie.server.Ticket;
+import charlie.util.Metrics;
+import charlie.util.Threads;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Logger;
 
 /**
- *
+ * This class implements the server-side login.
+ * It listens on the login port for good and authenticates each client on a
+ * worker so logins proceed concurrently.
  * @author Ron.Coleman
  */
 public class ServerAuthenticator extends Authenticator {
     protected final Logger LOG = Logger.getLogger(ServerAuthenticator.class);
     
+    /** Pending connections the login port queues during a login storm */
+    protected final static int BACKLOG = 1024;
+    
+    /** Millis a client has to send its login */
+    protected final static int LOGIN_TIMEOUT = 5000;
+    
     private final GameServer server;
+    protected final AtomicLong failures = new AtomicLong();
     
     public ServerAuthenticator(GameServer server) {
         this.server = server;
@@ -59,47 +70,77 @@ public class ServerAuthenticator extends Authenticator {
     }
     
     /**
-     * 
+     * Accepts logins until the login port fails.
      */
     @Override
     public void receive() {
-        try {           
-            int loginPort = Integer.parseInt(myHost.split(":")[1]);
-            
-            serverSocket = new ServerSocket(loginPort);
+        int loginPort = Integer.parseInt(myHost.split(":")[1]);
+        
+        try (ServerSocket socket = new ServerSocket(loginPort, BACKLOG)) {
+            serverSocket = socket;
+            info("listening for logins on port "+loginPort);
             
-            Socket clientSocket = serverSocket.accept();
-            
-            InputStream is = clientSocket.getInputStream();
+            while(true) {
+                Socket clientSocket = socket.accept();
+                
+                Threads.execute(() -> authenticate(clientSocket));
+            }
+        } catch (IOException ex) {
+            error("exception caught "+ex);
+        }
+    }
+    
+    /**
+     * Authenticates a client and replies with its ticket, or null if the
+     * login fails.
+     * @param clientSocket Client socket
+     */
+    protected void authenticate(Socket clientSocket) {
+        try (Socket client = clientSocket) {
+            client.setSoTimeout(LOGIN_TIMEOUT);
             
-            ObjectInputStream ois = new ObjectInputStream(is);
+            ObjectInputStream ois = new ObjectInputStream(client.getInputStream());
             
             Login login = (Login) ois.readObject();
             LOG.info("got login");
             
-            this.ticket = validate(login);
+            Ticket ticket = validate(login);
             
             if (ticket != null) {               
                 LOG.info("validated ticket " + ticket + " login successful!");
                 
-                server.getTickets().add(ticket);
+                // Returning players get their bankroll back
+                Journal journal = server.getJournal();
+                if(journal != null)
+                    journal.open(login.getLogname(), ticket);
                 
-                OutputStream os = clientSocket.getOutputStream();
+                server.getRegistry().issue(ticket);
                 
-                ObjectOutputStream oos = new ObjectOutputStream(os);
-                
-                oos.writeObject(ticket);
-                
-                oos.flush();
-                info("sent ticket to client");
-                
-                clientSocket.close();
-                serverSocket.close();
-                
-                sleep(250);                
+                Metrics.getInstance().count("server.logins");
+            }
+            else {
+                failures.incrementAndGet();
+                Metrics.getInstance().count("server.login_failures");
+                LOG.error("client authentication failed");
             }
-        } catch (IOException | ClassNotFoundException ex) {
+            
+            ObjectOutputStream oos = new ObjectOutputStream(client.getOutputStream());
+            
+            oos.writeObject(ticket);
+            
+            oos.flush();
+            info("sent ticket to client");
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            failures.incrementAndGet();
             error("exception caught "+ex);
         }
     }
+    
+    /**
+     * Gets the number of failed logins.
+     * @return Failed logins
+     */
+    public long getFailures() {
+        return failures.get();
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor;
+
+import charlie.plugin.ITrap;
+import charlie.util.Constant;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the trap factory.
+ * Couriers and real players each get their own trap.
+ * @author Ron Coleman
+ */
+public class TrapFactory {
+    private static final Logger LOG = Logger.getLogger(TrapFactory.class);
+    
+    /**
+     * Gets the trap configured by the "charlie.trap" property.
+     * @return Trap or null if there's none
+     */
+    public static ITrap getInstance() {
+        String className = System.getProperty(Constant.PLUGIN_TRAP);
+        
+        if(className == null)
+            return null;
+        
+        try {
+            Class<?> clazz = Class.forName(className);
+            
+            ITrap trap = (ITrap) clazz.getDeclaredConstructor().newInstance();
+            LOG.info("trap installed successfully: "+trap.getClass().getSimpleName());
+            
+            return trap;
+        }
+        catch (ReflectiveOperationException | ClassCastException ex) {
+            LOG.error("failed to instantiate trap '"+className+"': " + ex);
+            
+            return null;
+        }
+    }
+}
@@ -23,19 +23,20 @@
 package charlie.actor.last;
 
 import charlie.message.Message;
+import charlie.plugin.ITransport;
+import charlie.util.Histogram;
+import charlie.util.Metrics;
+import charlie.util.Threads;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
-import java.net.Socket;
 import java.net.UnknownHostException;
 import org.apache.log4j.Logger;
 
+import static charlie.util.Helper.sleep;
+
 /**
- * Models a simple actor with non-buffered, full duplex capability.
+ * Models a simple actor with full duplex capability over persistent links.
  * @author Ron.Coleman
  */
 abstract public class Actor implements Runnable {
@@ -53,6 +54,21 @@ abstract public class Actor implements Runnable {
     /** Remote host where message are sent to */
     protected String remoteHost;
     
+    /** Persistent link over which messages are sent */
+    protected Link link;
+    
+    /** Carries messages to and from the remote host */
+    protected final ITransport transport = TransportFactory.getInstance();
+    
+    /** Attempts to (re)connect before dropping a message */
+    protected final static int SEND_ATTEMPTS = 3;
+    
+    /** Back off in millis between reconnects */
+    protected final static int RECONNECT_DELAY = 100;
+    
+    /** Nanos to put a message on the link */
+    protected final static Histogram SEND_LATENCY = Metrics.getInstance().histogram("actor.send");
+    
     /**
      * Constructor for full-duplex actors
      * @param myHost My host in "address:port" form.
@@ -76,7 +92,7 @@ abstract public class Actor implements Runnable {
      * result in "connection refused" exceptions.
      */
     public void start() {
-        new Thread(this).start();
+        Threads.start(getClass().getSimpleName()+" "+myHost, this, false);
     }
     
     /**
@@ -115,66 +131,111 @@ abstract public class Actor implements Runnable {
     }
     
     /**
-     * Receives a message which invokes the callback listener.
+     * Receives messages which invoke the callback listener.
+     * Depending on the transport, this method may return as soon as the actor
+     * is listening.
      */
     protected void receive() {
         int portno = Integer.parseInt(myHost.split(":")[1]);
         try {
-
-            serverSocket = new ServerSocket(portno);
+            info("listening on port "+portno);
             
-            while(true) {
-                info("waiting for connection on port "+portno);
-                try (Socket clientSocket = serverSocket.accept()) {
-                    info("accepted connection on port "+portno);
-                    
-                    InputStream is = clientSocket.getInputStream();
-                    
-                    ObjectInputStream ois = new ObjectInputStream(is);
-                    
-                    Message msg = (Message) ois.readObject();
-                    info("received message "+msg.getClass().getSimpleName());
-                    
-                    if(listener != null) {
-                        info("invoking listener for "+msg.getClass().getSimpleName());
-                        listener.received(msg);
-                    }
-                    else
-                        error("dropped "+msg.getClass().getSimpleName());
-                    
-                    clientSocket.close();
-                }
-            }
-        } catch (IOException | ClassNotFoundException ex) {
+            transport.listen(this, portno);
+        } catch (IOException ex) {
             error(ex+"");
         } 
     }
     
     /**
-     * Sends a message synchronously.
+     * Delivers a message received on a link to the listener.
+     * @param from Link on which the message arrived
+     * @param msg Message
+     */
+    public void deliver(Link from, Message msg) {
+        info("received message "+msg.getClass().getSimpleName());
+        
+        // Reply over the link the remote host most recently used
+        synchronized(this) {
+            link = from;
+        }
+        
+        if(listener != null) {
+            info("invoking listener for "+msg.getClass().getSimpleName());
+            listener.received(msg);
+        }
+        else
+            error("dropped "+msg.getClass().getSimpleName());
+    }
+    
+    /**
+     * Uses an inbound link for replies if we don't already have a usable one.
+     * This makes the connection between the actors full duplex. The transport
+     * invokes this method whenever it accepts a link.
+     * @param inbound Inbound link
+     */
+    public synchronized void adopt(Link inbound) {
+        if(link == null || !link.isOpen())
+            link = inbound;
+    }
+    
+    /**
+     * Gets the link to the remote host, connecting if there isn't one.
+     * @return Link
+     * @throws IOException If the remote host can't be reached
+     */
+    protected synchronized Link connect() throws IOException {
+        if(link != null && link.isOpen())
+            return link;
+        
+        String[] params = remoteHost.split(":");
+
+        String addr = params[0];
+        int outPort = Integer.parseInt(params[1]);
+        
+        // The remote host may reply over this link
+        link = transport.connect(this, addr, outPort);
+        info("connected to "+remoteHost);
+        
+        return link;
+    }
+    
+    /**
+     * Closes the link, if any.
+     */
+    public synchronized void disconnect() {
+        if(link != null)
+            link.close();
+        
+        link = null;
+    }
+    
+    /**
+     * Sends a message synchronously over the link, reconnecting as needed.
      * @param msg Message to transmit
      */
     public void send(Message msg) {
-        try {
-            info("sending "+msg.getClass().getSimpleName()+" to "+remoteHost);
-            String[] params = remoteHost.split(":");
-
-            String addr = params[0];
-            int outPort = Integer.parseInt(params[1]);
-            
-            try (Socket socket = new Socket(addr, outPort)) {
-                OutputStream os = socket.getOutputStream();
+        info("sending "+msg.getClass().getSimpleName()+" to "+remoteHost);
+        
+        for(int attempt=0; attempt < SEND_ATTEMPTS; attempt++) {
+            try {
+                long start = System.nanoTime();
                 
-                ObjectOutputStream oos = new ObjectOutputStream(os);
-                oos.writeObject(msg);
+                connect().send(msg);
                 
-                oos.flush();
+                SEND_LATENCY.since(start);
+
+                info("sent successfully "+msg.getClass().getSimpleName()+" to "+remoteHost);
+                return;
+            } catch (IOException ex) {
+                error("send attempt "+attempt+" failed: "+ex);
+
+                disconnect();
+
+                sleep(RECONNECT_DELAY * (attempt+1));
             }
-            
-            info("sent successfully "+msg.getClass().getSimpleName()+" to "+remoteHost);
-        } catch (IOException ex) {
-            error(ex+"");
         }
+        
+        error("dropped "+msg.getClass().getSimpleName()+" to "+remoteHost);
     }
     
     /**
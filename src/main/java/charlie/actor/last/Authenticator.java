@@ -25,14 +25,13 @@ package charlie.actor.last;
 import charlie.message.view.from.Login;
 import charlie.server.Ticket;
 import charlie.util.Constant;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  *
  * @author Ron.Coleman
  */
 public abstract class Authenticator extends Actor {
-    private final static Random ran = new Random(0);
     protected Ticket ticket = null;
 
     /**
@@ -45,13 +44,14 @@ public abstract class Authenticator extends Actor {
     }
        
     /**
-     * Validates a login
+     * Validates a login.
+     * It may run on many login workers at once.
      * @param login Login credentials to authenticate
      * @return Ticket or null if login fails
      */
     protected Ticket validate(Login login) {
         if (login.getLogname() != null && login.getPassword() != null)
-            return new Ticket(ran.nextLong(), Constant.PLAYER_BANKROLL);
+            return new Ticket(ThreadLocalRandom.current().nextLong(), Constant.PLAYER_BANKROLL);
 
         return null;
     }
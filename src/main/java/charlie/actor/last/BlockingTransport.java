@@ -0,0 +1,91 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.plugin.ITransport;
+import charlie.util.Helper;
+import charlie.util.Threads;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import org.apache.log4j.Logger;
+
+/**
+ * Implements the transport with blocking sockets, one thread per link.
+ * This is the default transport.
+ * @author Ron.Coleman
+ */
+public class BlockingTransport implements ITransport {
+    private final Logger LOG = Logger.getLogger(BlockingTransport.class);
+    
+    /**
+     * Accepts links until the server socket fails.
+     * @param actor Actor which receives the messages
+     * @param port Port number
+     * @throws IOException If the port can't be bound
+     */
+    @Override
+    public void listen(Actor actor, int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            while(true) {
+                LOG.info("waiting for connection on port "+port);
+                Socket clientSocket = serverSocket.accept();
+                LOG.info("accepted connection on port "+port);
+
+                SocketLink inbound = new SocketLink(clientSocket, actor);
+
+                actor.adopt(inbound);
+
+                Threads.start("link "+clientSocket.getRemoteSocketAddress(), inbound, false);
+            }
+        }
+    }
+
+    /**
+     * Connects to the remote host and starts reading replies.
+     * @param actor Actor which receives the messages
+     * @param host Remote host address
+     * @param port Remote host port
+     * @return Link
+     * @throws IOException If the remote host can't be reached in time
+     */
+    @Override
+    public Link connect(Actor actor, String host, int port) throws IOException {
+        Socket socket = new Socket();
+        
+        try {
+            socket.connect(new InetSocketAddress(host, port), Helper.getPropertyOrElse(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT));
+        }
+        catch(IOException ex) {
+            socket.close();
+            throw ex;
+        }
+        
+        SocketLink link = new SocketLink(socket, actor);
+        
+        Threads.start("link "+host+":"+port, link, false);
+        
+        return link;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Message;
+import java.io.IOException;
+
+/**
+ * Models a long-lived, full duplex connection between two actors.
+ * Every message travels as a frame, namely, a four byte length followed by
+ * the encoded message, regardless of the transport carrying the frame.
+ * The body is encoded by the codec configured by the "charlie.codec" property,
+ * one instance per direction per link.
+ * @author Ron.Coleman
+ */
+abstract public class Link {
+    /** Largest frame we're willing to accept */
+    public final static int MAX_FRAME = 1 << 20;
+    
+    /** Actor to which inbound messages are delivered */
+    protected final Actor actor;
+    
+    protected volatile boolean open = true;
+    
+    /**
+     * Constructor
+     * @param actor Actor to which inbound messages are delivered
+     */
+    public Link(Actor actor) {
+        this.actor = actor;
+    }
+    
+    /**
+     * Sends a message as a single frame.
+     * @param msg Message
+     * @throws IOException If the link is broken
+     */
+    abstract public void send(Message msg) throws IOException;
+    
+    /**
+     * Closes the link.
+     */
+    abstract public void close();
+    
+    /**
+     * Tests if the link is still usable.
+     * @return True if open, false otherwise
+     */
+    public boolean isOpen() {
+        return open;
+    }
+}
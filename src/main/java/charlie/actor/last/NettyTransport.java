@@ -0,0 +1,355 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.CodecFactory;
+import charlie.message.Message;
+import charlie.plugin.ICodec;
+import charlie.plugin.ITransport;
+import charlie.util.Helper;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import org.apache.log4j.Logger;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelLocal;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.frame.LengthFieldBasedFrameDecoder;
+import org.jboss.netty.handler.codec.frame.LengthFieldPrepender;
+import org.jboss.netty.handler.codec.oneone.OneToOneDecoder;
+import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+
+/**
+ * Implements the transport with non-blocking sockets on a Netty event loop.
+ * A small, fixed number of I/O threads serves every link in the process.
+ * Messages are handed off to a bounded pool which preserves the order of
+ * messages per link so that actors, eg, the dealer, may block without stalling
+ * the event loop. Frames are the same as the blocking transport's, so either
+ * side of a link may use either transport.
+ * @author Ron.Coleman
+ */
+public class NettyTransport implements ITransport {
+    private final static Logger LOG = Logger.getLogger(NettyTransport.class);
+    
+    /** Number of event loop (I/O) threads */
+    public final static String IO_THREADS = "charlie.transport.io";
+    
+    /** Number of threads delivering messages to actors */
+    public final static String ACTOR_THREADS = "charlie.transport.actors";
+    
+    protected final NioServerSocketChannelFactory serverFactory;
+    protected final NioClientSocketChannelFactory clientFactory;
+    protected final ExecutionHandler executionHandler;
+    
+    /** Link for each channel */
+    protected final static ChannelLocal<NettyLink> links = new ChannelLocal<>();
+    
+    /**
+     * Constructor
+     */
+    public NettyTransport() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        
+        int ioThreads = Helper.getPropertyOrElse(IO_THREADS, cores);
+        int actorThreads = Helper.getPropertyOrElse(ACTOR_THREADS, 4 * cores);
+        
+        serverFactory = new NioServerSocketChannelFactory(
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool(),
+                ioThreads);
+        
+        clientFactory = new NioClientSocketChannelFactory(
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool(),
+                ioThreads);
+        
+        executionHandler = new ExecutionHandler(
+                new OrderedMemoryAwareThreadPoolExecutor(actorThreads, 0, 0));
+        
+        LOG.info("netty transport io threads = "+ioThreads+" actor threads = "+actorThreads);
+    }
+    
+    /**
+     * Binds the port and returns immediately.
+     * @param actor Actor which receives the messages
+     * @param port Port number
+     * @throws IOException If the port can't be bound
+     */
+    @Override
+    public void listen(Actor actor, int port) throws IOException {
+        ServerBootstrap bootstrap = new ServerBootstrap(serverFactory);
+        
+        bootstrap.setPipelineFactory(() -> pipeline(actor, true));
+        bootstrap.setOption("child.tcpNoDelay", true);
+        bootstrap.setOption("child.keepAlive", true);
+        bootstrap.setOption("reuseAddress", true);
+        
+        try {
+            bootstrap.bind(new InetSocketAddress(port));
+            LOG.info("listening on port "+port);
+        }
+        catch(RuntimeException ex) {
+            throw new IOException("failed to bind port "+port, ex);
+        }
+    }
+
+    /**
+     * Connects to the remote host.
+     * @param actor Actor which receives the messages
+     * @param host Remote host address
+     * @param port Remote host port
+     * @return Link
+     * @throws IOException If the remote host can't be reached in time
+     */
+    @Override
+    public Link connect(Actor actor, String host, int port) throws IOException {
+        int timeout = Helper.getPropertyOrElse(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+        
+        ClientBootstrap bootstrap = new ClientBootstrap(clientFactory);
+        
+        bootstrap.setPipelineFactory(() -> pipeline(actor, false));
+        bootstrap.setOption("tcpNoDelay", true);
+        bootstrap.setOption("keepAlive", true);
+        bootstrap.setOption("connectTimeoutMillis", timeout);
+        
+        ChannelFuture future = bootstrap.connect(new InetSocketAddress(host, port));
+        
+        // The caller holds the actor's lock: don't wait past the timeout
+        if(!future.awaitUninterruptibly(timeout + 1000L)) {
+            future.cancel();
+            throw new IOException("timed out connecting to "+host+":"+port);
+        }
+        
+        if(!future.isSuccess())
+            throw new IOException("failed to connect to "+host+":"+port, future.getCause());
+        
+        return link(future.getChannel(), actor);
+    }
+    
+    /**
+     * Builds the pipeline for a link.
+     * @param actor Actor which receives the messages
+     * @param inbound True if the link was accepted rather than connected
+     * @return Pipeline
+     */
+    protected ChannelPipeline pipeline(Actor actor, boolean inbound) {
+        ChannelPipeline pipeline = Channels.pipeline();
+        
+        pipeline.addLast("framer", new LengthFieldBasedFrameDecoder(Link.MAX_FRAME, 0, 4, 0, 4));
+        pipeline.addLast("prepender", new LengthFieldPrepender(4));
+        pipeline.addLast("decoder", new Decoder(CodecFactory.getInstance()));
+        pipeline.addLast("encoder", new Encoder(CodecFactory.getInstance()));
+        pipeline.addLast("executor", executionHandler);
+        pipeline.addLast("actor", new Handler(actor, inbound));
+        
+        return pipeline;
+    }
+    
+    /**
+     * Gets the link for a channel, creating it on first use.
+     * @param channel Channel
+     * @param actor Actor to which inbound messages are delivered
+     * @return Link
+     */
+    protected static NettyLink link(Channel channel, Actor actor) {
+        NettyLink link = links.get(channel);
+        
+        if(link != null)
+            return link;
+        
+        link = new NettyLink(channel, actor);
+        
+        NettyLink prior = links.setIfAbsent(channel, link);
+        
+        return prior != null ? prior : link;
+    }
+    
+    /**
+     * Implements a link over a Netty channel.
+     * Sends are asynchronous: the frame is queued on the event loop.
+     */
+    public static class NettyLink extends Link {
+        protected final Channel channel;
+        
+        /**
+         * Constructor
+         * @param channel Channel
+         * @param actor Actor to which inbound messages are delivered
+         */
+        public NettyLink(Channel channel, Actor actor) {
+            super(actor);
+            
+            this.channel = channel;
+        }
+
+        /**
+         * Sends a message as a single frame.
+         * Sends are serialized per link since the codec may refer to
+         * state established by an earlier frame.
+         * @param msg Message
+         * @throws IOException If the link is closed
+         */
+        @Override
+        public synchronized void send(Message msg) throws IOException {
+            if(!open || !channel.isConnected())
+                throw new IOException("link closed");
+            
+            channel.write(msg);
+        }
+
+        /**
+         * Closes the link.
+         */
+        @Override
+        public void close() {
+            open = false;
+            
+            channel.close();
+        }
+        
+        /**
+         * Converts link to a string.
+         * @return String
+         */
+        @Override
+        public String toString() {
+            return channel.getLocalAddress()+"->"+channel.getRemoteAddress();
+        }
+    }
+    
+    /**
+     * Delivers inbound messages to the actor.
+     */
+    protected static class Handler extends SimpleChannelUpstreamHandler {
+        protected final Actor actor;
+        protected final boolean inbound;
+
+        public Handler(Actor actor, boolean inbound) {
+            this.actor = actor;
+            this.inbound = inbound;
+        }
+
+        @Override
+        public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            if(inbound)
+                actor.adopt(link(e.getChannel(), actor));
+            
+            super.channelConnected(ctx, e);
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+            actor.deliver(link(e.getChannel(), actor), (Message) e.getMessage());
+        }
+
+        @Override
+        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            NettyLink link = links.remove(e.getChannel());
+            
+            if(link != null)
+                link.open = false;
+            
+            super.channelClosed(ctx, e);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+            LOG.error("link "+e.getChannel().getRemoteAddress()+" failed: "+e.getCause());
+            
+            e.getChannel().close();
+        }
+    }
+    
+    /**
+     * Encodes messages as frame bodies.
+     */
+    protected static class Encoder extends OneToOneEncoder {
+        protected final ICodec codec;
+        
+        /**
+         * Constructor
+         * @param codec Codec for this channel
+         */
+        public Encoder(ICodec codec) {
+            this.codec = codec;
+        }
+        
+        @Override
+        protected Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) throws Exception {
+            if(!(msg instanceof Message))
+                return msg;
+            
+            ChannelBufferOutputStream os = new ChannelBufferOutputStream(ChannelBuffers.dynamicBuffer(256));
+            
+            synchronized(codec) {
+                DataOutputStream out = new DataOutputStream(os);
+                codec.encode((Message) msg, out);
+                out.flush();
+            }
+            
+            return os.buffer();
+        }
+    }
+    
+    /**
+     * Decodes messages from frame bodies.
+     */
+    protected static class Decoder extends OneToOneDecoder {
+        protected final ICodec codec;
+        
+        /**
+         * Constructor
+         * @param codec Codec for this channel
+         */
+        public Decoder(ICodec codec) {
+            this.codec = codec;
+        }
+        
+        @Override
+        protected Object decode(ChannelHandlerContext ctx, Channel channel, Object msg) throws Exception {
+            if(!(msg instanceof ChannelBuffer))
+                return msg;
+            
+            return codec.decode(new DataInputStream(new ChannelBufferInputStream((ChannelBuffer) msg)));
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.Batch;
+import charlie.message.Message;
+import charlie.util.Constant;
+import charlie.util.Histogram;
+import charlie.util.Metrics;
+import charlie.util.Threads;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a bounded outbound queue drained by its own writer
+ * thread, so whoever posts messages, eg, the dealer, never blocks on the
+ * network. When the queue is full, posting fails fast and applies the
+ * slow-consumer policy: drop the message or disconnect the consumer. Since
+ * dropping loses game state, eg, a Deal or Outcome, the default is to
+ * disconnect and let the courier rejoin. Messages that pile up while the writer is busy
+ * go out together as one batch frame.
+ * @author Ron Coleman
+ */
+public class Outbox implements Runnable {
+    private final Logger LOG = Logger.getLogger(Outbox.class);
+
+    /** What to do with a consumer too slow to keep up */
+    public enum Policy {DROP, DISCONNECT};
+
+    public final static int DEFAULT_SIZE = 256;
+    public final static Policy DEFAULT_POLICY = Policy.DISCONNECT;
+    public final static int DEFAULT_BATCH = 64;
+
+    /** Poll period in millis for the writer to notice the outbox closed */
+    protected final static long POLL = 100;
+    
+    /** Messages already queued when one is posted */
+    protected final static Histogram DEPTH = Metrics.getInstance().histogram("outbox.depth");
+
+    protected final String name;
+    protected final BlockingQueue<Message> queue;
+    protected final Consumer<Message> writer;
+    protected final Runnable closer;
+    protected final Policy policy;
+    protected final int batch;
+    protected final ArrayList<Message> parts = new ArrayList<>();
+    protected volatile boolean open = true;
+    protected volatile boolean disconnected = false;
+    protected final LongAdder dropped = new LongAdder();
+    protected Thread thread;
+
+    /**
+     * Constructor uses the configured size, policy and batch.
+     * @param name Name for the writer thread
+     * @param writer Sends a message synchronously
+     * @param closer Disconnects the consumer
+     */
+    public Outbox(String name, Consumer<Message> writer, Runnable closer) {
+        this(name, writer, closer,
+                Integer.getInteger(Constant.OUTBOX_SIZE, DEFAULT_SIZE),
+                loadPolicy(),
+                Integer.getInteger(Constant.OUTBOX_BATCH, DEFAULT_BATCH));
+    }
+
+    /**
+     * Constructor
+     * @param name Name for the writer thread
+     * @param writer Sends a message synchronously
+     * @param closer Disconnects the consumer
+     * @param size Capacity in messages
+     * @param policy Slow-consumer policy
+     * @param batch Most messages in a frame, one to send them singly
+     */
+    public Outbox(String name, Consumer<Message> writer, Runnable closer, int size, Policy policy, int batch) {
+        this.name = name;
+        this.batch = batch;
+        this.writer = writer;
+        this.closer = closer;
+        this.queue = new ArrayBlockingQueue<>(size);
+        this.policy = policy;
+    }
+
+    /**
+     * Posts a message for the writer to send.
+     * @param msg Message
+     * @return True if queued, false if dropped
+     */
+    public boolean post(Message msg) {
+        if(!open) {
+            dropped.increment();
+            return false;
+        }
+
+        start();
+        
+        DEPTH.record(queue.size());
+
+        // Never wait here: the poster is the dealer
+        if(queue.offer(msg))
+            return true;
+
+        dropped.increment();
+
+        if(policy == Policy.DISCONNECT) {
+            LOG.error(name+" consumer too slow, disconnecting with "+queue.size()+" queued");
+            
+            // Don't wait on the writer: disconnecting unblocks it
+            open = false;
+            queue.clear();
+            disconnect();
+        }
+        else
+            LOG.error(name+" consumer too slow, dropped "+msg.getClass().getSimpleName());
+
+        return false;
+    }
+
+    /**
+     * Closes the outbox. The writer sends what's queued, then disconnects.
+     */
+    public synchronized void close() {
+        if(!open)
+            return;
+
+        open = false;
+
+        if(thread == null)
+            disconnect();
+    }
+
+    /**
+     * Tests if the outbox accepts messages.
+     * @return True if open
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent.
+     * @return Queued messages
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of messages dropped.
+     * @return Dropped messages
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Starts the writer on first use.
+     */
+    protected synchronized void start() {
+        if(thread != null || !open)
+            return;
+
+        thread = Threads.start(name, this, true);
+    }
+
+    /**
+     * Drains the queue until the outbox closes.
+     */
+    @Override
+    public void run() {
+        try {
+            while(true) {
+                Message msg = queue.poll(POLL, TimeUnit.MILLISECONDS);
+
+                if(msg != null) {
+                    if(!disconnected)
+                        writer.accept(coalesce(msg));
+                }
+                else if(!open)
+                    break;
+            }
+        } catch (InterruptedException ex) {
+            LOG.info(name+" interrupted");
+        }
+
+        disconnect();
+    }
+
+    /**
+     * Batches a message with any others waiting behind it.
+     * @param msg Message
+     * @return The message alone or a batch of it and the others in order
+     */
+    protected Message coalesce(Message msg) {
+        if(batch <= 1 || queue.isEmpty())
+            return msg;
+
+        parts.clear();
+        parts.add(msg);
+
+        queue.drainTo(parts, batch - 1);
+
+        return parts.size() == 1 ? msg : new Batch(parts);
+    }
+
+    /**
+     * Disconnects the consumer once.
+     */
+    protected void disconnect() {
+        synchronized(this) {
+            if(disconnected)
+                return;
+
+            disconnected = true;
+        }
+
+        closer.run();
+    }
+
+    /**
+     * Loads the configured slow-consumer policy.
+     * @return Policy
+     */
+    protected static Policy loadPolicy() {
+        String policy = System.getProperty(Constant.OUTBOX_POLICY);
+
+        if(policy == null)
+            return DEFAULT_POLICY;
+
+        try {
+            return Policy.valueOf(policy.trim().toUpperCase());
+        }
+        catch(IllegalArgumentException ex) {
+            Logger.getLogger(Outbox.class).error("bad outbox policy '"+policy+"' using "+DEFAULT_POLICY);
+        }
+
+        return DEFAULT_POLICY;
+    }
+}
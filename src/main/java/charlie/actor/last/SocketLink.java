@@ -0,0 +1,163 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.message.CodecFactory;
+import charlie.message.Message;
+import charlie.plugin.ICodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import org.apache.log4j.Logger;
+
+/**
+ * Implements a link over a blocking socket.
+ * Frames are written synchronously by any thread and read by the thread
+ * running the link.
+ * @author Ron.Coleman
+ */
+public class SocketLink extends Link implements Runnable {
+    private final Logger LOG = Logger.getLogger(SocketLink.class);
+    
+    protected final Socket socket;
+    protected final DataInputStream in;
+    protected final DataOutputStream out;
+    protected final ByteArrayOutputStream frame = new ByteArrayOutputStream(512);
+    protected final DataOutputStream body = new DataOutputStream(frame);
+    protected final ICodec encoder = CodecFactory.getInstance();
+    protected final ICodec decoder = CodecFactory.getInstance();
+    
+    /**
+     * Constructor
+     * @param socket Connected socket
+     * @param actor Actor to which inbound messages are delivered
+     * @throws IOException If the socket streams can't be opened
+     */
+    public SocketLink(Socket socket, Actor actor) throws IOException {
+        super(actor);
+        
+        this.socket = socket;
+        
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+    
+    /**
+     * Reads frames until the link closes.
+     */
+    @Override
+    public void run() {
+        try {
+            while(open) {
+                Message msg = read();
+                
+                actor.deliver(this, msg);
+            }
+        }
+        catch(EOFException ex) {
+            LOG.info("link closed by peer "+this);
+        }
+        catch(IOException ex) {
+            if(open)
+                LOG.error("link "+this+" failed: "+ex);
+        }
+        finally {
+            close();
+        }
+    }
+    
+    /**
+     * Sends a message as a single frame.
+     * @param msg Message
+     * @throws IOException If the link is broken
+     */
+    @Override
+    public synchronized void send(Message msg) throws IOException {
+        if(!open)
+            throw new IOException("link closed");
+        
+        try {
+            frame.reset();
+            
+            encoder.encode(msg, body);
+            body.flush();
+
+            out.writeInt(frame.size());
+            frame.writeTo(out);
+            out.flush();
+        }
+        catch(IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Reads a single frame.
+     * @return Message
+     * @throws IOException If the link is broken or the frame is bad
+     */
+    protected Message read() throws IOException {
+        int len = in.readInt();
+        
+        if(len <= 0 || len > MAX_FRAME)
+            throw new IOException("bad frame length "+len);
+        
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        
+        return decoder.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+    
+    /**
+     * Closes the link.
+     */
+    @Override
+    public void close() {
+        open = false;
+        
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            
+        }
+    }
+    
+    /**
+     * Converts link to a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return socket.getLocalPort()+"->"+socket.getInetAddress().getHostAddress()+":"+socket.getPort();
+    }
+}
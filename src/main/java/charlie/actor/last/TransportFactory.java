@@ -0,0 +1,74 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.actor.last;
+
+import charlie.plugin.ITransport;
+import charlie.util.Constant;
+import java.util.HashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the transport factory.
+ * Transports are shared by all actors in the process.
+ * @author Ron.Coleman
+ */
+public class TransportFactory {
+    private static final Logger LOG = Logger.getLogger(TransportFactory.class);
+    private static final HashMap<String,ITransport> transports = new HashMap<>();
+    
+    /**
+     * Gets the transport configured by the "charlie.transport" property.
+     * @return Transport
+     */
+    public static ITransport getInstance() {
+        return getInstance(System.getProperty(Constant.PLUGIN_TRANSPORT, Constant.DEFAULT_TRANSPORT));
+    }
+    
+    /**
+     * Gets an instance of a transport by class name.
+     * @param className Transport class name
+     * @return Transport, the blocking transport if the class can't be loaded
+     */
+    public static synchronized ITransport getInstance(String className) {
+        ITransport transport = transports.get(className);
+        
+        if(transport != null)
+            return transport;
+        
+        try {
+            Class<?> clazz = Class.forName(className);
+            
+            transport = (ITransport) clazz.getDeclaredConstructor().newInstance();
+            LOG.info("using transport = "+className);
+        }
+        catch (ReflectiveOperationException | ClassCastException ex) {
+            LOG.error("failed to instantiate transport '"+className+"': " + ex);
+            
+            transport = new BlockingTransport();
+        }
+        
+        transports.put(className, transport);
+        
+        return transport;
+    }
+}
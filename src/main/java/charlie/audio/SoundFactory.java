@@ -25,6 +25,7 @@ package charlie.audio;
 import static charlie.audio.Effect.CHIPS_IN;
 import static charlie.audio.Effect.PUSH;
 import java.util.Random;
+import charlie.util.Threads;
 
 /**
  * This class implements the factory pattern for managing and playing sounds.
@@ -205,12 +206,12 @@ public class SoundFactory {
         
         lastTime = now;
         
-        new Thread(new Runnable() { 
+        Threads.execute(new Runnable() { 
             @Override
             public void run() {
                 for(int i=0; i < loop; i++)
                     sound.play();
             }
-        }).start();
+        });
     } 
 }
\ No newline at end of file
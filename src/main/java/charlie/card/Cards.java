@@ -0,0 +1,134 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.card;
+
+import charlie.card.Card.Suit;
+
+/**
+ * This class encodes cards as bytes for the simulation hot path.
+ * <p>
+ * A code holds the rank in the low four bits, the suit in the next two and
+ * the hole card flag above them; zero is no card. Every code has one
+ * canonical, immutable Card so going between the two never allocates.
+ * @author Ron Coleman
+ */
+public class Cards {
+    public final static int NONE = 0;
+    public final static int HOLE = 0x40;
+    public final static int SIZE = 0x80;
+    
+    protected final static Card[] cards = new Card[SIZE];
+    protected final static int[] values = new int[SIZE];
+    
+    static {
+        for(Suit suit: Suit.values()) {
+            for(int rank=Card.ACE; rank <= Card.KING; rank++) {
+                int code = code(rank, suit);
+                
+                cards[code] = new Card(rank, suit);
+                cards[code | HOLE] = new HoleCard(cards[code]);
+                
+                values[code] = values[code | HOLE] = cards[code].value();
+            }
+        }
+    }
+    
+    /**
+     * Encodes a card.
+     * @param rank Rank
+     * @param suit Suit
+     * @return Code
+     */
+    public static int code(int rank, Suit suit) {
+        return rank | (suit.ordinal() << 4);
+    }
+    
+    /**
+     * Encodes a card.
+     * @param card Card or null
+     * @return Code
+     */
+    public static int code(Card card) {
+        if(card == null)
+            return NONE;
+        
+        int code = code(card.getRank(), card.getSuit());
+        
+        return card instanceof HoleCard ? code | HOLE : code;
+    }
+    
+    /**
+     * Decodes a card.
+     * @param code Code
+     * @return Canonical card or null if the code isn't a card
+     */
+    public static Card card(int code) {
+        return code > NONE && code < SIZE ? cards[code] : null;
+    }
+    
+    /**
+     * Gets the canonical instance of a card.
+     * @param rank Rank
+     * @param suit Suit
+     * @return Card
+     */
+    public static Card card(int rank, Suit suit) {
+        return cards[code(rank, suit)];
+    }
+    
+    /**
+     * Gets the Blackjack value of a card, ie, 1 for an ace and 10 for faces.
+     * @param code Code
+     * @return Value
+     */
+    public static int value(int code) {
+        return values[code];
+    }
+    
+    /**
+     * Gets the rank of a card.
+     * @param code Code
+     * @return Rank
+     */
+    public static int rank(int code) {
+        return code & 0x0F;
+    }
+    
+    /**
+     * Tests if a card is an ace.
+     * @param code Code
+     * @return True if ace, false otherwise
+     */
+    public static boolean isAce(int code) {
+        return (code & 0x0F) == Card.ACE;
+    }
+    
+    /**
+     * Tests if a card is a hole card.
+     * @param code Code
+     * @return True if hole card, false otherwise
+     */
+    public static boolean isHole(int code) {
+        return (code & HOLE) != 0;
+    }
+}
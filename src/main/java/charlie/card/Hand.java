@@ -24,17 +24,21 @@ package charlie.card;
 
 import charlie.util.Constant;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * This class implements a hand which has a unique id, a collection of cards
  * and values.
+ * The cards are held as codes (see Cards) so hitting and valuing a hand
+ * doesn't allocate; Card objects are the canonical instances of the codes.
+ * Classification is a lookup of the hand state (see HandState).
  * @author Ron Coleman
  */
 public class Hand implements Serializable {  
     protected Hid hid;
-    protected List<Card> cards = new ArrayList<>();
+    protected byte[] codes = new byte[8];
+    protected int size = 0;
+    protected int state = HandState.EMPTY;
     protected int[] values;
     
     /**
@@ -59,10 +63,22 @@ public class Hand implements Serializable {
      * @return Card
      */
     public Card getCard(int k) {
-        if(k >= cards.size() || k < 0)
+        if(k >= size || k < 0)
             return null;
         
-        return cards.get(k);
+        return Cards.card(codes[k]);
+    }
+    
+    /**
+     * Gets the code of a card in the hand.
+     * @param k Index
+     * @return Code or Cards.NONE
+     */
+    public int getCode(int k) {
+        if(k >= size || k < 0)
+            return Cards.NONE;
+        
+        return codes[k];
     }
     
     /**
@@ -70,7 +86,7 @@ public class Hand implements Serializable {
      * @return Number of cards in hand
      */
     public int size() {
-        return cards.size();
+        return size;
     }
     
     /**
@@ -78,10 +94,7 @@ public class Hand implements Serializable {
      * @return True if hand gt 21
      */
     public boolean isBroke() {
-        if(values[Constant.HAND_LITERAL_VALUE] > 21 && values[Constant.HAND_SOFT_VALUE] > 21)
-            return true;
-        
-        return false;
+        return HandState.isBroke(state);
     }
     
     /**
@@ -89,11 +102,7 @@ public class Hand implements Serializable {
      * @return True if hand has A+10
      */
     public boolean isBlackjack() {
-        if(cards.size() == 2 && values[Constant.HAND_SOFT_VALUE] == 21)
-            if(cards.get(0).isAce() || cards.get(1).isAce())
-                return true;
-        
-        return false;
+        return HandState.isBlackjack(state);
     }
     
     /**
@@ -101,10 +110,7 @@ public class Hand implements Serializable {
      * @return True if hand has A+10
      */    
     public boolean isCharlie() {
-        if(cards.size() == 5 && getValue() <= 21)
-            return true;
-        
-        return false;
+        return HandState.isCharlie(state);
     }
     
     /**
@@ -112,10 +118,15 @@ public class Hand implements Serializable {
      * @return True if hand has 2+2, 3+3, etc.
      */
     public boolean isPair() {
-        if(cards.size() != 2)
-            return false;
-        
-        return cards.get(0).rank == cards.get(1).rank;
+        return HandState.isPair(state);
+    }
+    
+    /**
+     * Gets the hand state.
+     * @return State
+     */
+    public int getState() {
+        return state;
     }
     
     /**
@@ -138,18 +149,39 @@ public class Hand implements Serializable {
      * @param card Card
      */
     public void hit(Card card) {
-        this.cards.add(card);
+        hit(Cards.code(card));
+    }
+    
+    /**
+     * Hits the hand with a card code.
+     * @param code Card code
+     */
+    public void hit(int code) {
+        if(size == codes.length)
+            codes = Arrays.copyOf(codes, size * 2);
+        
+        codes[size++] = (byte) code;
+        
+        state = HandState.hit(state, code);
 
         // If the card is a hole card, don't count it
-        if(card instanceof HoleCard)
+        if(Cards.isHole(code))
             return;
         
-        Integer value = card.value();
+        count(code);
+    }
+    
+    /**
+     * Adds a card to the values.
+     * @param code Card code
+     */
+    protected void count(int code) {
+        int value = Cards.value(code);
         
         values[Constant.HAND_LITERAL_VALUE] += value;
         values[Constant.HAND_SOFT_VALUE] += value;
         
-        if(card.isAce() && values[Constant.HAND_SOFT_VALUE]+10 <= 21)
+        if(Cards.isAce(code) && values[Constant.HAND_SOFT_VALUE]+10 <= 21)
             values[Constant.HAND_SOFT_VALUE] += 10;
     }
     
@@ -166,13 +198,16 @@ public class Hand implements Serializable {
         // WARNING::REMOVING THE UN-NEEDED CARD WHILE RETURNING IT.
         // Should use setter and getter here?
         // altering original hand from constructor - deep copy instead?
-        Card card = this.cards.remove(1);
+        int code = this.codes[1];
+        
+        System.arraycopy(codes, 2, codes, 1, size - 2);
+        size--;
         
         // Update "this" hand's values
         this.revalue();
         
         // Give the new hand a card, the card we removed from this hand
-        newHand.hit(card);
+        newHand.hit(code);
         
         // Now return the new hand
         return newHand;
@@ -187,15 +222,10 @@ public class Hand implements Serializable {
     public void revalue() {
         values[Constant.HAND_LITERAL_VALUE] = values[Constant.HAND_SOFT_VALUE] = 0;
         
-        for(Card card: cards) {
-            int value = card.value();
-            
-            values[Constant.HAND_LITERAL_VALUE] += value;
-            values[Constant.HAND_SOFT_VALUE] += value;
-            
-            if(card.isAce() && values[Constant.HAND_SOFT_VALUE]+10 <= 21)
-                values[Constant.HAND_SOFT_VALUE] += 10;
-        }
+        for(int k=0; k < size; k++)
+            count(codes[k]);
+        
+        state = HandState.of(codes, size);
     }
     
     /**
@@ -234,8 +264,8 @@ public class Hand implements Serializable {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
-        for(int i=0; i < cards.size(); i++) {
-            s.append(cards.get(i)).append(" ");
+        for(int i=0; i < size; i++) {
+            s.append(Cards.card(codes[i])).append(" ");
         }
         
         return s.toString();
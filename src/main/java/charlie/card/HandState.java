@@ -0,0 +1,292 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.card;
+
+/**
+ * This class implements the hand state machine.
+ * <p>
+ * A state packs what a hand's classification depends on, namely, the hard
+ * total (22 stands for any bust), whether there's an ace, the card count
+ * (6 stands for more than five) and the pair rank, ie, the rank of the first
+ * card while there is one card, the rank of a pair while there are two and
+ * zero otherwise. A table gives the next state for every state and rank and
+ * another the classification of every state, so hitting and every query is a
+ * lookup.
+ * <p>
+ * Hole cards count toward the card count and pair rank but not the total,
+ * the same as Hand.
+ * @author Ron Coleman
+ */
+public class HandState {
+    public final static int EMPTY = 0;
+    
+    public final static int BROKE = 0x01;
+    public final static int BLACKJACK = 0x02;
+    public final static int CHARLIE = 0x04;
+    public final static int PAIR = 0x08;
+    public final static int SOFT = 0x10;
+    public final static int TWENTY_ONE = 0x20;
+    
+    /** Hand can't be played any further */
+    public final static int DONE = BROKE | BLACKJACK | CHARLIE | TWENTY_ONE;
+    
+    protected final static int BUST = 22;
+    protected final static int TOTALS = BUST + 1;
+    protected final static int COUNTS = 7;
+    protected final static int RANKS = 14;
+    protected final static int STATES = TOTALS * 2 * COUNTS * RANKS;
+    
+    protected final static short[] next = new short[STATES * RANKS];
+    protected final static byte[] flags = new byte[STATES];
+    protected final static byte[] values = new byte[STATES];
+    
+    static {
+        for(int hard=0; hard < TOTALS; hard++) {
+            for(int ace=0; ace < 2; ace++) {
+                for(int count=0; count < COUNTS; count++) {
+                    for(int pair=0; pair < RANKS; pair++) {
+                        int state = state(hard, ace == 1, count, pair);
+                        
+                        for(int rank=Card.ACE; rank <= Card.KING; rank++) {
+                            int value = rank >= 10 ? 10 : rank;
+                            
+                            next[state * RANKS + rank] = (short) state(
+                                    Math.min(hard + value, BUST),
+                                    ace == 1 || rank == Card.ACE,
+                                    Math.min(count + 1, COUNTS - 1),
+                                    pair(count, pair, rank));
+                        }
+                        
+                        flags[state] = (byte) classify(hard, ace == 1, count, pair);
+                        values[state] = (byte) value(hard, ace == 1);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the state after hitting with a card.
+     * @param state State
+     * @param code Card code
+     * @return Next state
+     */
+    public static int hit(int state, int code) {
+        if(Cards.isHole(code))
+            return hole(state, Cards.rank(code));
+        
+        return next[state * RANKS + Cards.rank(code)];
+    }
+    
+    /**
+     * Gets the state after a card that isn't counted, eg, the hole card.
+     * @param state State
+     * @param rank Rank of the card
+     * @return Next state
+     */
+    protected static int hole(int state, int rank) {
+        int pair = state % RANKS;
+        int count = (state / RANKS) % COUNTS;
+        int rest = state / (RANKS * COUNTS);
+        
+        return (rest * COUNTS + Math.min(count + 1, COUNTS - 1)) * RANKS + pair(count, pair, rank);
+    }
+    
+    /**
+     * Gets the state of a sequence of cards, all of them counted.
+     * @param codes Card codes
+     * @param size Number of cards
+     * @return State
+     */
+    public static int of(byte[] codes, int size) {
+        int state = EMPTY;
+        
+        for(int k=0; k < size; k++)
+            state = next[state * RANKS + Cards.rank(codes[k])];
+        
+        return state;
+    }
+    
+    /**
+     * Tests if a state is broke.
+     * @param state State
+     * @return True if broke, false otherwise
+     */
+    public static boolean isBroke(int state) {
+        return (flags[state] & BROKE) != 0;
+    }
+    
+    /**
+     * Tests if a state is Blackjack.
+     * @param state State
+     * @return True if Blackjack, false otherwise
+     */
+    public static boolean isBlackjack(int state) {
+        return (flags[state] & BLACKJACK) != 0;
+    }
+    
+    /**
+     * Tests if a state is Charlie.
+     * @param state State
+     * @return True if Charlie, false otherwise
+     */
+    public static boolean isCharlie(int state) {
+        return (flags[state] & CHARLIE) != 0;
+    }
+    
+    /**
+     * Tests if a state is pair.
+     * @param state State
+     * @return True if pair, false otherwise
+     */
+    public static boolean isPair(int state) {
+        return (flags[state] & PAIR) != 0;
+    }
+    
+    /**
+     * Tests if a state is soft, ie, an ace counts 11.
+     * @param state State
+     * @return True if soft, false otherwise
+     */
+    public static boolean isSoft(int state) {
+        return (flags[state] & SOFT) != 0;
+    }
+    
+    /**
+     * Tests if a hand can no longer be played, ie, broke, Blackjack,
+     * Charlie or 21.
+     * @param state State
+     * @return True if done, false otherwise
+     */
+    public static boolean isDone(int state) {
+        return (flags[state] & DONE) != 0;
+    }
+    
+    /**
+     * Gets all the flags of a state.
+     * @param state State
+     * @return Flags
+     */
+    public static int getFlags(int state) {
+        return flags[state];
+    }
+    
+    /**
+     * Gets the best value of a state, 22 for any bust.
+     * @param state State
+     * @return Value
+     */
+    public static int getValue(int state) {
+        return values[state];
+    }
+    
+    /**
+     * Gets the pair rank of a state.
+     * @param state State
+     * @return Rank or 0 if not a pair
+     */
+    public static int getPairRank(int state) {
+        return isPair(state) ? state % RANKS : 0;
+    }
+    
+    /**
+     * Gets the card count of a state.
+     * @param state State
+     * @return Count, 6 for more than five
+     */
+    public static int getCount(int state) {
+        return (state / RANKS) % COUNTS;
+    }
+    
+    /**
+     * Packs a state.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param count Card count
+     * @param pair Pair rank
+     * @return State
+     */
+    protected static int state(int hard, boolean ace, int count, int pair) {
+        return ((hard * 2 + (ace ? 1 : 0)) * COUNTS + count) * RANKS + pair;
+    }
+    
+    /**
+     * Gets the pair rank after a card.
+     * @param count Card count before the card
+     * @param pair Pair rank before the card
+     * @param rank Rank of the card
+     * @return Pair rank
+     */
+    protected static int pair(int count, int pair, int rank) {
+        if(count == 0)
+            return rank;
+        
+        if(count == 1 && pair == rank)
+            return rank;
+        
+        return 0;
+    }
+    
+    /**
+     * Classifies a state.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param count Card count
+     * @param pair Pair rank
+     * @return Flags
+     */
+    protected static int classify(int hard, boolean ace, int count, int pair) {
+        int value = value(hard, ace);
+        int f = 0;
+        
+        if(hard > 21)
+            f |= BROKE;
+        
+        if(count == 2 && ace && hard == 11)
+            f |= BLACKJACK;
+        
+        if(count == 5 && hard <= 21)
+            f |= CHARLIE;
+        
+        if(count == 2 && pair != 0)
+            f |= PAIR;
+        
+        if(value != hard)
+            f |= SOFT;
+        
+        if(value == 21)
+            f |= TWENTY_ONE;
+        
+        return f;
+    }
+    
+    /**
+     * Gets the best value of a hand.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @return Value
+     */
+    protected static int value(int hard, boolean ace) {
+        return ace && hard + 10 <= 21 ? hard + 10 : hard;
+    }
+}
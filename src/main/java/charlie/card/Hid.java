@@ -29,7 +29,8 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import charlie.util.Play;
 import org.apache.log4j.Logger;
@@ -39,13 +40,18 @@ import org.apache.log4j.Logger;
  * The hand id is ubiquitous and serves as the key to managing hands throughout
  * a game. A hand id does not have meaning apart from a hand. Thus, if there is
  * a hand id, there is a corresponding hand somewhere in the game.
+ * The identity of a hand id is its key alone: a random per-JVM origin in the
+ * high word and a counter in the low word. The hash code is computed once
+ * from the key; toString is for logs.
  * @author Ron Coleman
  */
 public class Hid implements Serializable {
     private final static Logger LOG = Logger.getLogger(Hid.class);
-    private static Random ran = new Random();
+    private final static long ORIGIN = (long) (ThreadLocalRandom.current().nextInt() & 0x7FFFFFFF) << 32;
+    private final static AtomicInteger COUNTER = new AtomicInteger();
     private static String host = "UNKNOWN";
-    private long key = Math.abs(ran.nextLong());
+    private long key = nextKey();
+    private int hash = hash(key);
     private Seat seat = Seat.YOU;
     protected double amt = 0.0;
     protected double sideAmt = 0.0;
@@ -82,6 +88,7 @@ public class Hid implements Serializable {
      */
     public Hid(Hid hid) {
         this.key = hid.key;
+        this.hash = hid.hash;
         this.seat = hid.seat;
         this.amt = hid.amt;
         this.sideAmt = hid.sideAmt;
@@ -109,6 +116,35 @@ public class Hid implements Serializable {
     public Hid(Seat seat) {
         this(seat,Constant.MIN_BET,0.0);
     }
+    
+    /**
+     * Constructor for a hand id which already exists elsewhere, eg, on the
+     * other end of a link.
+     * @param key Key
+     * @param seat Seat
+     */
+    public Hid(long key, Seat seat) {
+        this.key = key;
+        this.hash = hash(key);
+        this.seat = seat;
+    }
+
+    /**
+     * Gets a new key unique in this JVM.
+     * @return Key
+     */
+    private static long nextKey() {
+        return ORIGIN | (COUNTER.incrementAndGet() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Hashes a key.
+     * @param key Key
+     * @return Hash code
+     */
+    private static int hash(long key) {
+        return Long.hashCode(key * 0x9E3779B97F4A7C15L);
+    }
 
     /**
      * Adds a play to the hand history.
@@ -196,6 +232,14 @@ public class Hid implements Serializable {
         this.split = split;
     }
     
+    /**
+     * Gets the key which identifies the hand.
+     * @return Key
+     */
+    public long getKey() {
+        return key;
+    }
+    
     /**
      * Gets the string representation of the hand id.
      * @return String representation
@@ -206,12 +250,12 @@ public class Hid implements Serializable {
     }
     
     /**
-     * Hashes this object to insure hash code based on hand id.
+     * Gets the hash code of the key.
      * @return Hash code
      */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        return hash;
     }
 
     /**
@@ -221,6 +265,9 @@ public class Hid implements Serializable {
      */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -25,17 +25,17 @@ package charlie.dealer;
 import charlie.plugin.*;
 import charlie.card.Hand;
 import charlie.actor.House;
-import charlie.actor.RealPlayer;
 import charlie.card.Card;
 import charlie.card.HoleCard;
 import charlie.card.Hid;
 import charlie.shoe.ShoeFactory;
 import charlie.util.Constant;
+import charlie.util.Metrics;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 import charlie.util.Play;
@@ -61,10 +61,17 @@ public class Dealer implements Serializable {
     protected final static Double PROFIT = 1.0;
     protected final static Double LOSS = -1.0;   
     protected final static Double PUSH = 0.0;
+    protected final static LongAdder HANDS = Metrics.getInstance().counter("dealer.hands");
+    protected final static LongAdder SPLITS = Metrics.getInstance().counter("dealer.splits");
+    protected final static LongAdder SHUFFLES = Metrics.getInstance().counter("dealer.shuffles");
+    protected final static LongAdder BUSTS = Metrics.getInstance().counter("dealer.busts");
+    protected final static LongAdder BLACKJACKS = Metrics.getInstance().counter("dealer.blackjacks");
+    protected final static LongAdder CHARLIES = Metrics.getInstance().counter("dealer.charlies");
+    protected final static LongAdder WINS = Metrics.getInstance().counter("dealer.wins");
+    protected final static LongAdder LOSSES = Metrics.getInstance().counter("dealer.losses");
+    protected final static LongAdder PUSHES = Metrics.getInstance().counter("dealer.pushes");
     protected IShoe shoe;
-    protected HashMap<Hid,Hand> hands = new HashMap<>();
-    protected HashMap<Hid,IPlayer> players = new HashMap<>();
-    protected List<Hid> handSequence = new ArrayList<>();
+    protected final Slots slots = new Slots();
     protected List<IPlayer> playerSequence = new ArrayList<>();
     protected final House house;
     protected Integer nextHandIndex = 0;
@@ -74,6 +81,7 @@ public class Dealer implements Serializable {
     protected HoleCard holeCard;
     protected boolean gameOver = false;
     protected boolean shufflePending = false;
+    protected IPacer pacer;
     
     // To "delay" deal so cards do not come out too fast
     protected final int DEAL_DELAY = 1000;
@@ -83,31 +91,57 @@ public class Dealer implements Serializable {
      * @param house House actor which launched dealer.
      */
     public Dealer(House house) {
+        this(house, null);
+    }
+    
+    /**
+     * Constructor
+     * @param house House actor which launched dealer or null if headless.
+     * @param pacer Pacer or null to use the configured one.
+     */
+    public Dealer(House house, IPacer pacer) {
+        this(house, null, pacer);
+    }
+    
+    /**
+     * Constructor
+     * @param house House actor which launched dealer or null if headless.
+     * @param shoe Shoe or null to use the configured one.
+     * @param pacer Pacer or null to use the configured one.
+     */
+    public Dealer(House house, IShoe shoe, IPacer pacer) {
         this.house = house;
 
         // Instantiate the shoe
-        String scenario = System.getProperty(Constant.PLUGIN_SHOE, DEFAULT_SHOE);
-        LOG.info("shoe property '"+Constant.PLUGIN_SHOE+"' = '"+scenario+"'");
+        if(shoe == null) {
+            String scenario = System.getProperty(Constant.PLUGIN_SHOE, DEFAULT_SHOE);
+            LOG.info("shoe property '"+Constant.PLUGIN_SHOE+"' = '"+scenario+"'");
 
-        shoe = ShoeFactory.getInstance(scenario);
-        shoe.init();
+            shoe = ShoeFactory.getInstance(scenario);
+        }
+        
+        this.shoe = shoe;
+        this.shoe.init();
 
 //        LOG.info("shoe '"+scenario+"' instantiated successfully.");;
         LOG.info("shoe: "+shoe);
 
         loadSideRule();
+        
+        this.pacer = pacer != null ? pacer : loadPacer();
     }
     
     /**
      * Receives a bet request from a "real" you. Don't invoke this method
      * for a bot. Bots are spawned by this method.
-     * @param you Real player
+     * @param you Real player or a stand-in for one
      * @param hid Hand id
      */
-    public void bet(RealPlayer you,Hid hid) {
-        LOG.info("got new bet = "+ hid.getAmt() +
-                " side bet = "+ hid.getSideAmt() +
-                " from " + you + " for hid = " + hid);
+    public void bet(IPlayer you,Hid hid) {
+        if(LOG.isDebugEnabled())
+            LOG.debug("got new bet = "+ hid.getAmt() +
+                    " side bet = "+ hid.getSideAmt() +
+                    " from " + you + " for hid = " + hid);
         
         // Clear out old hands, if any
         reset();
@@ -137,10 +171,12 @@ public class Dealer implements Serializable {
      * @param yours Your hand id
      */
     protected void sitPlayer(IPlayer you,Hid yours) {
-        handSequence.add(yours);
+        if(!slots.sit(you, yours.getSeat(), new Hand(yours))) {
+            LOG.error("can't seat player = "+you+" seat taken = "+yours.getSeat());
+            return;
+        }
+        
         playerSequence.add(you); 
-        players.put(yours, you);
-        hands.put(yours, new Hand(yours));        
     }
     
     /**
@@ -177,15 +213,13 @@ public class Dealer implements Serializable {
             bot.setDealer(this);
             
             Hand hand = bot.getHand();
-            Hid hid = hand.getHid();
 
-            handSequence.add(hid);
+            if(!slots.sit(bot, seat, hand)) {
+                LOG.error("can't seat bot "+name_+" seat taken = "+seat);
+                return null;
+            }
             
             playerSequence.add(bot);
-            
-            players.put(hid, bot);
-            
-            hands.put(hid, hand);
            
             LOG.info("successfully spawned bot = "+name_);
             return bot;
@@ -200,9 +234,8 @@ public class Dealer implements Serializable {
      * Resets the state of the game.
      */
     protected void reset() {
-        handSequence.clear();
+        slots.clear();
         playerSequence.clear();
-        hands.clear();        
     }
     
     /**
@@ -256,20 +289,23 @@ public class Dealer implements Serializable {
     protected void startGame() {
         LOG.info("starting a game");
         
+        HANDS.increment();
+        
         gameOver = false;
         
         try {
             // Gather up all the initial hands (ie, not including splits)
             List<Hid> hids = new ArrayList<>();
             
-            for(Hid hid: handSequence) {
-                hids.add(hid);
+            for(int k=0; k < slots.size(); k++) {
+                hids.add(slots.getHid(k));
             }
             
             // Include the dealer's hand
             hids.add(dealerHand.getHid());
           
-            LOG.info("hands at table + dealer = "+hids.size());
+            if(LOG.isDebugEnabled())
+                LOG.debug("hands at table + dealer = "+hids.size());
             
             
             // Tell each player we're starting a game
@@ -278,7 +314,7 @@ public class Dealer implements Serializable {
             
 //            shuffle();
             
-            Thread.sleep(250);
+            pacer.pause(250);
             
             // First round card to everyone
             round(hids);
@@ -288,7 +324,7 @@ public class Dealer implements Serializable {
             holeCard = new HoleCard(card);
             dealerHand.hit(holeCard);  
             
-            Thread.sleep(Constant.DEAL_DELAY);
+            pacer.pause(Constant.DEAL_DELAY);
             
             for(IPlayer player: playerSequence) {
                 // Don't send hole card yet to bots -- they could see it
@@ -302,7 +338,7 @@ public class Dealer implements Serializable {
             Card upCard = deal();
             dealerHand.hit(upCard);
             
-            Thread.sleep(Constant.DEAL_DELAY);
+            pacer.pause(Constant.DEAL_DELAY);
             
             for(IPlayer player: playerSequence)
                 player.deal(dealerHand.getHid(), upCard, dealerHand.getValues()); 
@@ -338,7 +374,7 @@ public class Dealer implements Serializable {
     protected void round(List<Hid> hids) {
         try {
             for(Hid hid: hids) {
-                IPlayer player = players.get(hid);
+                IPlayer player = slots.getPlayer(hid);
                 
                 // If there's no correspondsing player, must be dealer's hid_
                 if(player == null)
@@ -348,15 +384,16 @@ public class Dealer implements Serializable {
                 Card card = deal();
                 
                 // Deal this card
-                LOG.info("dealing to "+player+" card 1 = "+card); 
+                if(LOG.isDebugEnabled())
+                    LOG.debug("dealing to "+player+" card 1 = "+card); 
                 
                 // Save it to dealer's copy of hand
-                Hand hand = this.hands.get(hid);
+                Hand hand = slots.getHand(hid);
                 
                 hand.hit(card);
                 hid.request(Play.HIT);
                                                 
-                Thread.sleep(Constant.DEAL_DELAY);
+                pacer.pause(Constant.DEAL_DELAY);
                 
                 // Distribute the hard to everyone, even if it's not theirs
                 for (IPlayer _player : playerSequence) {
@@ -399,7 +436,8 @@ public class Dealer implements Serializable {
 
         hid.request(Play.HIT);
 
-        LOG.info("hit hid = " + hid + " with " + card);
+        if(LOG.isDebugEnabled())
+            LOG.debug("hit hid = " + hid + " with " + card);
 
         // All players MUST test for charlie. Otherwise they will
         // not know they have this hand and may try to hit if hand<21.
@@ -412,11 +450,13 @@ public class Dealer implements Serializable {
         if(hand.isBroke()) {
             updateBankroll(hid,LOSS);
             
+            BUSTS.increment();
+            
             // Tell everyone what happened
             for (IPlayer _player : playerSequence)
                 _player.bust(hid);
 
-            LOG.info("going to next hand");
+            LOG.debug("going to next hand");
             goNextHand();
         }
         // If hand got a Charlie or Blackjack, we're done with this hand
@@ -462,12 +502,13 @@ public class Dealer implements Serializable {
             return;
         }
         
-        LOG.info("got STAY for "+hid);
+        if(LOG.isDebugEnabled())
+            LOG.debug("got STAY for "+hid);
 
         hid.request(Play.STAY);
         
         // Since player stayed, we're done with hand
-        LOG.info("going to next hand");
+        LOG.debug("going to next hand");
         goNextHand();
     }
     
@@ -477,7 +518,7 @@ public class Dealer implements Serializable {
      * @param hid Player's hand id
      */
     public void doubleDown(IPlayer iplayer, Hid hid) {
-        LOG.info("got double-down request");
+        LOG.debug("got double-down request");
 
         // Validate the request
         Hand hand = validate(hid);
@@ -496,7 +537,8 @@ public class Dealer implements Serializable {
         hid.request(Play.DOUBLE_DOWN);
        
         Card card = deal();
-        LOG.info("got double down amt = "+hid.getAmt()+" hid = "+hid+" card = "+card);
+        if(LOG.isDebugEnabled())
+            LOG.debug("got double down amt = "+hid.getAmt()+" hid = "+hid+" card = "+card);
 
         // Double the bet and hit the hand once
         hand.hit(card);
@@ -509,12 +551,14 @@ public class Dealer implements Serializable {
         if(hand.isBroke()) {
             updateBankroll(hid,LOSS);
             
+            BUSTS.increment();
+            
             for (IPlayer _player : playerSequence)
                 _player.bust(hid);
         }
         
         // Go to next hand regardless on a double down
-        LOG.info("going to next hand");
+        LOG.debug("going to next hand");
         goNextHand();
     }
     
@@ -546,6 +590,8 @@ public class Dealer implements Serializable {
         // to enforce 'rules' about splitting splits later.
         newHid.setSplit(true);
         hid.setSplit(true);
+        
+        SPLITS.increment();
 
         hid.request(Play.SPLIT);
         newHid.request(Play.SPLIT);
@@ -555,21 +601,16 @@ public class Dealer implements Serializable {
         
         // Log that we are doing a split action
         // Guess we will log what cards we are splitting and the "new hand amount"
-        LOG.info("Player requested to split " 
-                + origHand.getCard(0).getName() 
-                + "'s."); 
-        LOG.info("HID: " + newHid + " created for hand: " + newHand );
+        if(LOG.isDebugEnabled())
+            LOG.debug("Player requested to split " 
+                    + origHand.getCard(0).getName() 
+                    + "'s."); 
+        if(LOG.isDebugEnabled())
+            LOG.debug("HID: " + newHid + " created for hand: " + newHand );
 
-        // Add this hand to this player
-        players.put(newHand.getHid(), player);
-        
-        // Now that we have two hands we need to manipulate the handSeqIndex
-        // Think it will be easier to request it AFTER the current hand since that
-        // hand is actually "in play" ... 
-        int i = handSequence.indexOf(hid);
-        handSequence.add((i+1),newHand.getHid());
-        
-        hands.put(newHid, newHand);
+        // Add this hand to this player's seat AFTER the current hand since
+        // that hand is actually "in play" ... 
+        slots.split(hid, newHand);
         
         // Send back to the ATable what has just occurred.
         player.split(newHid, hid);
@@ -583,20 +624,22 @@ public class Dealer implements Serializable {
      * Moves to the next hand at the table
      */
     protected void goNextHand() {
-        LOG.info("hand sequence index = "+ nextHandIndex +" hand sequence size = "+handSequence.size());
+        if(LOG.isDebugEnabled())
+            LOG.debug("hand sequence index = "+ nextHandIndex +" hand sequence size = "+slots.size());
 
         // Get next hand and inform player
-        if (nextHandIndex < handSequence.size()) {
+        if (nextHandIndex < slots.size()) {
             // Did we "hit" a split hand this time
             boolean firstSplitHit = false;
             
-            Hid hid = handSequence.get(nextHandIndex++);
+            Hand hand = slots.getHand(nextHandIndex++);
+            Hid hid = hand.getHid();
 
-            active = players.get(hid);
-            LOG.info("active player = " + active);
+            active = slots.getPlayer(hid);
+            if(LOG.isDebugEnabled())
+                LOG.debug("active player = " + active);
 
             // Check for isBlackjack before moving on
-            Hand hand = this.hands.get(hid);
 
             // If hand has Blackjack, it's not automatic hand wins
             // since the dealer may also have isBlackjack
@@ -610,7 +653,7 @@ public class Dealer implements Serializable {
             if(hid.isSplit() && hand.size() == 1){
                 // Need to request a delay or it comes out too fast.
                 try{
-                    Thread.sleep(DEAL_DELAY);
+                    pacer.pause(DEAL_DELAY);
                     
                     Card card = deal(); 
                     
@@ -621,6 +664,22 @@ public class Dealer implements Serializable {
                     LOG.error(ex.getMessage());
                 }
             }
+            
+            // The first hit may give a split hand Blackjack. There's nothing
+            // left to play, so settle it like hit does and move on.
+            if(firstSplitHit && hand.isBlackjack()) {
+                hid.request(Play.STAY);
+                
+                updateBankroll(hid,BLACKJACK_PAYS);
+                
+                for (IPlayer player: playerSequence) {
+                    player.deal(hid, hand.getCard(1), hand.getValues());
+                    player.blackjack(hid);
+                }
+                
+                goNextHand();
+                return;
+            }
 
             // Unless the player got a isBlackjack, tell the player they're
             // to start playing this hand
@@ -633,7 +692,8 @@ public class Dealer implements Serializable {
                     player.deal(hid, hand.getCard(1), hand.getValues());
                 }
                 
-                LOG.info("sending turn "+hid+" to "+player);
+                if(LOG.isDebugEnabled())
+                    LOG.debug("sending turn "+hid+" to "+player);
                 player.play(hid);
             }
         }
@@ -664,7 +724,7 @@ public class Dealer implements Serializable {
                 Card card = deal();
                 
                 try {
-                    Thread.sleep(Constant.DEAL_DELAY);
+                    pacer.pause(Constant.DEAL_DELAY);
                 }
                 catch (InterruptedException ex) {
                     java.util.logging.Logger.getLogger(Dealer.class.getName()).log(Level.SEVERE, null, ex);
@@ -680,8 +740,9 @@ public class Dealer implements Serializable {
         }
         
         // Compute outcomes and inform everyone
-        for(Hid hid: handSequence) {
-            Hand hand = hands.get(hid);
+        for(int k=0; k < slots.size(); k++) {
+            Hand hand = slots.getHand(k);
+            Hid hid = hand.getHid();
             
             // These handled during hit cycle
             if(hand.isBroke() || hand.isCharlie() || hand.isBlackjack())
@@ -724,6 +785,7 @@ public class Dealer implements Serializable {
         if(shufflePending) {
             shoe.shuffle();
             shufflePending = false;
+            SHUFFLES.increment();
         }
         
         for (IPlayer player: playerSequence)           
@@ -749,8 +811,8 @@ public class Dealer implements Serializable {
      * @return True if at least one hand hasn't broken, false otherwise
      */
     protected boolean handsStanding() {
-        for(Hid hid: handSequence) {
-            Hand hand = hands.get(hid);
+        for(int k=0; k < slots.size(); k++) {
+            Hand hand = slots.getHand(k);
             
             if(!hand.isBroke() && !hand.isBlackjack() && !hand.isCharlie())
                 return true;
@@ -766,12 +828,32 @@ public class Dealer implements Serializable {
      */
     protected void updateBankroll(Hid hid,double gain) {
         applySideBet(hid);
+        
+        countOutcome(gain);
 
         // Update the P&L.
         double pl = hid.getAmt() * gain;
         hid.setAmt(pl);
         
-        house.updateBankroll(players.get(hid), hid);
+        if(house != null)
+            house.updateBankroll(slots.getPlayer(hid), hid);
+    }
+    
+    /**
+     * Counts the outcome of a hand by what it pays.
+     * @param gain Profit and loss factor
+     */
+    protected void countOutcome(double gain) {
+        if(gain == BLACKJACK_PAYS)
+            BLACKJACKS.increment();
+        else if(gain == CHARLIE_PAYS)
+            CHARLIES.increment();
+        else if(gain == PROFIT)
+            WINS.increment();
+        else if(gain == LOSS)
+            LOSSES.increment();
+        else
+            PUSHES.increment();
     }
     
     /**
@@ -782,7 +864,7 @@ public class Dealer implements Serializable {
         if(sideRule == null)
             return;
         
-        Hand hand = hands.get(hid);
+        Hand hand = slots.getHand(hid);
         
         double payout = sideRule.apply(hand);
         
@@ -804,12 +886,12 @@ public class Dealer implements Serializable {
         if(hid == null)
             return null;
         
-        Hand hand = hands.get(hid);
+        Hand hand = slots.getHand(hid);
         
         if(hand == null || hand.isBroke() || hand.isCharlie() || hand.isBlackjack())
             return null;
         
-        if(players.get(hid) != active)
+        if(slots.getPlayer(hid) != active)
             return null;
         
         return hand;
@@ -836,4 +918,27 @@ public class Dealer implements Serializable {
             LOG.error("side bet rule failed to load: " + ex);
         }       
     }
+    
+    /**
+     * Loads the pacer configured by the "charlie.pacer" property.
+     * @return Pacer, real-time if none configured or it fails to load
+     */
+    protected final IPacer loadPacer() {
+        String className = System.getProperty(Constant.PLUGIN_PACER, Constant.DEFAULT_PACER);
+        
+        try {
+            Class<?> clazz = Class.forName(className);
+
+            IPacer pacer_ = (IPacer) clazz.getDeclaredConstructor().newInstance();
+            
+            LOG.info("using pacer = "+className);
+            
+            return pacer_;
+            
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            LOG.error("pacer failed to load: " + ex);
+        }
+        
+        return new RealTimePacer();
+    }
 }
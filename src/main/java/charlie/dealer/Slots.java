@@ -0,0 +1,225 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.dealer;
+
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.plugin.IPlayer;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class implements the dealer's table of hands.
+ * Hands are kept in rows indexed by seat, one player per seat, and within a
+ * row by split index. Rows are played in the order players sit and a split
+ * hand goes right after the hand it came from. The arrays are allocated once
+ * and reused from game to game.
+ * @author Ron Coleman
+ */
+public class Slots implements Serializable {
+    protected final static int SEATS = Seat.values().length;
+    protected final static int HANDS = 2;
+    protected final IPlayer[] players = new IPlayer[SEATS];
+    protected final Hid[][] hids = new Hid[SEATS][HANDS];
+    protected final Hand[][] hands = new Hand[SEATS][HANDS];
+    protected final int[] counts = new int[SEATS];
+    protected final int[] order = new int[SEATS];
+    protected int rows = 0;
+    protected int size = 0;
+
+    /**
+     * Clears the table for a new game.
+     */
+    public void clear() {
+        for(int k=0; k < rows; k++) {
+            int row = order[k];
+
+            players[row] = null;
+            Arrays.fill(hids[row], 0, counts[row], null);
+            Arrays.fill(hands[row], 0, counts[row], null);
+            counts[row] = 0;
+        }
+
+        rows = size = 0;
+    }
+
+    /**
+     * Sits a player with its first hand.
+     * @param player Player
+     * @param seat Seat
+     * @param hand Hand
+     * @return True if the player sat, false if the seat is taken
+     */
+    public boolean sit(IPlayer player, Seat seat, Hand hand) {
+        int row = seat.ordinal();
+
+        if(players[row] != null)
+            return false;
+
+        players[row] = player;
+        hids[row][0] = hand.getHid();
+        hands[row][0] = hand;
+        counts[row] = 1;
+
+        order[rows++] = row;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Inserts a split hand right after the hand it was split from.
+     * @param hid Hand id of the original hand
+     * @param newHand Split hand
+     * @return True if inserted, false if the original hand isn't at the table
+     */
+    public boolean split(Hid hid, Hand newHand) {
+        int row = find(hid);
+
+        if(row < 0)
+            return false;
+
+        int index = indexOf(row, hid) + 1;
+        int count = counts[row];
+
+        if(count == hids[row].length) {
+            hids[row] = Arrays.copyOf(hids[row], count * 2);
+            hands[row] = Arrays.copyOf(hands[row], count * 2);
+        }
+
+        System.arraycopy(hids[row], index, hids[row], index + 1, count - index);
+        System.arraycopy(hands[row], index, hands[row], index + 1, count - index);
+
+        hids[row][index] = newHand.getHid();
+        hands[row][index] = newHand;
+        counts[row]++;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Gets the number of hands at the table.
+     * @return Number of hands
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a hand id in play order.
+     * @param index Index in play order
+     * @return Hand id or null if there's none
+     */
+    public Hid getHid(int index) {
+        for(int k=0; k < rows; k++) {
+            int row = order[k];
+
+            if(index < counts[row])
+                return hids[row][index];
+
+            index -= counts[row];
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a hand in play order.
+     * @param index Index in play order
+     * @return Hand or null if there's none
+     */
+    public Hand getHand(int index) {
+        for(int k=0; k < rows; k++) {
+            int row = order[k];
+
+            if(index < counts[row])
+                return hands[row][index];
+
+            index -= counts[row];
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the hand for a hand id.
+     * @param hid Hand id
+     * @return Hand or null if the hand isn't at the table
+     */
+    public Hand getHand(Hid hid) {
+        int row = find(hid);
+
+        return row < 0 ? null : hands[row][indexOf(row, hid)];
+    }
+
+    /**
+     * Gets the player of a hand.
+     * @param hid Hand id
+     * @return Player or null if the hand isn't at the table, eg, the dealer's
+     */
+    public IPlayer getPlayer(Hid hid) {
+        int row = find(hid);
+
+        return row < 0 ? null : players[row];
+    }
+
+    /**
+     * Finds the row of a hand, looking first in the row of its seat.
+     * @param hid Hand id
+     * @return Row or -1 if the hand isn't at the table
+     */
+    protected int find(Hid hid) {
+        if(hid == null)
+            return -1;
+
+        int row = hid.getSeat().ordinal();
+
+        if(indexOf(row, hid) >= 0)
+            return row;
+
+        for(int k=0; k < rows; k++) {
+            if(order[k] != row && indexOf(order[k], hid) >= 0)
+                return order[k];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the split index of a hand in a row.
+     * @param row Row
+     * @param hid Hand id
+     * @return Split index or -1 if the hand isn't in the row
+     */
+    protected int indexOf(int row, Hid hid) {
+        Hid[] row_ = hids[row];
+
+        for(int k=0; k < counts[row]; k++) {
+            if(row_[k] == hid || row_[k].equals(hid))
+                return k;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements a frame of several messages to the same destination.
+ * The receiver handles the messages one at a time in their order.
+ * @author Ron Coleman
+ */
+public class Batch extends Message {
+    protected final ArrayList<Message> messages;
+
+    /**
+     * Constructor
+     * @param messages Messages in order, all of the same session
+     */
+    public Batch(List<Message> messages) {
+        this.messages = new ArrayList<>(messages);
+        
+        if(!messages.isEmpty()) {
+            Message first = messages.get(0);
+            
+            this.session = first.getSession();
+            this.source = first.getSource();
+        }
+    }
+
+    /**
+     * Gets the messages.
+     * @return Messages in order
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+    
+    /**
+     * Gets the number of messages.
+     * @return Number of messages
+     */
+    public int size() {
+        return messages.size();
+    }
+    
+    /**
+     * Gets string version of this message.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return super.toString()+"["+messages.size()+"]";
+    }
+}
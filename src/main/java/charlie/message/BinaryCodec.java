@@ -0,0 +1,677 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Bet;
+import charlie.message.view.from.DoubleDown;
+import charlie.message.view.from.Hit;
+import charlie.message.view.from.Insure;
+import charlie.message.view.from.Login;
+import charlie.message.view.from.Logout;
+import charlie.message.view.from.Rejoin;
+import charlie.message.view.from.Request;
+import charlie.message.view.from.SplitRequest;
+import charlie.message.view.from.Stay;
+import charlie.message.view.from.Surrender;
+import charlie.message.view.to.Blackjack;
+import charlie.message.view.to.Bust;
+import charlie.message.view.to.Charlie;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameOver;
+import charlie.message.view.to.GameStart;
+import charlie.message.view.to.Lose;
+import charlie.message.view.to.Outcome;
+import charlie.message.view.to.Play;
+import charlie.message.view.to.Push;
+import charlie.message.view.to.Ready;
+import charlie.message.view.to.Shuffle;
+import charlie.message.view.to.SplitResponse;
+import charlie.message.view.to.Win;
+import charlie.plugin.ICodec;
+import charlie.server.Ticket;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class implements a compact, versioned binary codec.
+ * <p>
+ * Every frame starts with the version and a type byte followed by the header,
+ * namely, the session, serial and sequence numbers, time stamp as a delta
+ * from the previous frame, and the source address. Integers are variable
+ * length. Cards are a single byte, hand values two bytes and a hand id is a
+ * short handle into a table of keys the two ends build as the link runs. A
+ * hand id is defined the first time it is sent and referred to by handle
+ * afterwards. A batch is a count followed by its messages, each a frame of
+ * its own. A ready and a rejoin carry the table key as is.
+ * <p>
+ * Messages the codec doesn't know, eg, from plugins, fall back to Java
+ * serialization inside the frame, so any message still goes through.
+ * An instance holds state about one direction of one link and isn't shared.
+ * @author Ron Coleman
+ */
+public class BinaryCodec implements ICodec {
+    /** Wire format version */
+    public final static int VERSION = 3;
+    
+    /** Handle table size after which both ends start over */
+    public final static int MAX_HANDLES = 4096;
+    
+    protected final static int FALLBACK = 0;
+    
+    /** Message types in the order of their type ids, starting at 1 */
+    protected final static Class<?>[] TYPES = {
+        Arrival.class, Bet.class, DoubleDown.class, Hit.class, Insure.class,
+        Login.class, Logout.class, SplitRequest.class, Stay.class, Surrender.class,
+        Blackjack.class, Bust.class, Charlie.class, Deal.class, GameOver.class,
+        GameStart.class, Lose.class, Play.class, Push.class, Ready.class,
+        Shuffle.class, SplitResponse.class, Win.class, Batch.class, Rejoin.class
+    };
+    
+    protected final static HashMap<Class<?>,Integer> ids = new HashMap<>();
+    
+    static {
+        for(int type=0; type < TYPES.length; type++)
+            ids.put(TYPES[type], type + 1);
+    }
+    
+    protected final static Seat[] SEATS = Seat.values();
+    protected final static charlie.util.Play[] PLAYS = charlie.util.Play.values();
+    
+    protected final static int NO_VALUE = 0xFF;
+    
+    protected final static int SPLIT = 0x08;
+    protected final static int AMT_CENTS = 0x10;
+    protected final static int SIDE_CENTS = 0x20;
+    
+    /** Encoder side: handle by hand id key */
+    protected final HashMap<Long,Integer> handles = new HashMap<>();
+    
+    /** Decoder side: hand id key by handle */
+    protected final long[] keys = new long[MAX_HANDLES + 1];
+    protected final boolean[] defined = new boolean[MAX_HANDLES + 1];
+    
+    protected int nextHandle = 1;
+    protected long lastStamp = 0;
+
+    /**
+     * Encodes a message.
+     * @param msg Message
+     * @param out Output stream
+     * @throws IOException If the message can't be encoded
+     */
+    @Override
+    public void encode(Message msg, DataOutputStream out) throws IOException {
+        Integer type = ids.get(msg.getClass());
+        
+        out.writeByte(VERSION);
+        
+        if(type == null || !fits(msg)) {
+            out.writeByte(FALLBACK);
+            
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(msg);
+            oos.flush();
+            
+            return;
+        }
+        
+        out.writeByte(type);
+        
+        writeHeader(msg, out);
+        
+        switch(type) {
+            case 1:
+                Arrival arrival = (Arrival) msg;
+                writeTicket(arrival.getTicket(), out);
+                writeVarLong(arrival.getPort(), out);
+                out.writeBoolean(arrival.isBotEnabled());
+                break;
+                
+            case 6:
+                Login login = (Login) msg;
+                writeString(login.getLogname(), out);
+                writeString(login.getPassword(), out);
+                break;
+                
+            case 7:
+            case 21:
+                break;
+                
+            case 20:
+                out.writeLong(((Ready) msg).getKey());
+                break;
+                
+            case 14:
+                Deal deal = (Deal) msg;
+                writeHid(deal.getHid(), out);
+                writeValues(deal.getHandValues(), out);
+                out.writeByte(toByte(deal.getCard()));
+                break;
+                
+            case 15:
+                writeVarLong(((GameOver) msg).getShoeSize(), out);
+                break;
+                
+            case 16:
+                GameStart start = (GameStart) msg;
+                List<Hid> hids = start.getHids();
+                writeVarLong(start.shoeSize(), out);
+                writeVarLong(hids == null ? 0 : hids.size() + 1, out);
+                if(hids != null)
+                    for(Hid hid: hids)
+                        writeHid(hid, out);
+                break;
+                
+            case 18:
+                writeHid(((Play) msg).getHid(), out);
+                break;
+                
+            case 22:
+                SplitResponse split = (SplitResponse) msg;
+                writeHid(split.getNewHid(), out);
+                writeHid(split.getOrigHid(), out);
+                break;
+                
+            case 24:
+                List<Message> messages = ((Batch) msg).getMessages();
+                writeVarLong(messages.size(), out);
+                for(Message part: messages)
+                    encode(part, out);
+                break;
+                
+            case 25:
+                out.writeLong(((Rejoin) msg).getKey());
+                break;
+                
+            default:
+                if(msg instanceof Request)
+                    writeHid(((Request) msg).getHid(), out);
+                else
+                    writeHid(((Outcome) msg).getHid(), out);
+        }
+    }
+
+    /**
+     * Decodes a message.
+     * @param in Input stream
+     * @return Message
+     * @throws IOException If the frame is bad
+     */
+    @Override
+    public Message decode(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        
+        if(version != VERSION)
+            throw new IOException("unsupported codec version "+version);
+        
+        int type = in.readUnsignedByte();
+        
+        if(type == FALLBACK) {
+            try {
+                ObjectInputStream ois = new ObjectInputStream(in);
+                
+                return (Message) ois.readObject();
+            }
+            catch(ClassNotFoundException | ClassCastException ex) {
+                throw new IOException("bad message: "+ex, ex);
+            }
+        }
+        
+        if(type > TYPES.length)
+            throw new IOException("bad message type "+type);
+        
+        int session = (int) readVarLong(in);
+        long serialno = readVarLong(in);
+        long sequence = readVarLong(in);
+        long stamp = lastStamp + unzigzag(readVarLong(in));
+        lastStamp = stamp;
+        InetAddress source = readAddress(in);
+        
+        Message msg;
+        
+        switch(type) {
+            case 1:
+                Ticket ticket = readTicket(in);
+                int port = (int) readVarLong(in);
+                Arrival arrival = new Arrival(ticket, source, port);
+                arrival.enableBot(in.readBoolean());
+                msg = arrival;
+                break;
+            case 2: msg = new Bet(readHid(in)); break;
+            case 3: msg = new DoubleDown(readHid(in)); break;
+            case 4: msg = new Hit(readHid(in)); break;
+            case 5: msg = new Insure(readHid(in)); break;
+            case 6:
+                String logname = readString(in);
+                msg = new Login(logname, readString(in));
+                break;
+            case 7: msg = new Logout(); break;
+            case 8: msg = new SplitRequest(readHid(in)); break;
+            case 9: msg = new Stay(readHid(in)); break;
+            case 10: msg = new Surrender(readHid(in)); break;
+            case 11: msg = new Blackjack(readHid(in)); break;
+            case 12: msg = new Bust(readHid(in)); break;
+            case 13: msg = new Charlie(readHid(in)); break;
+            case 14:
+                Hid hid = readHid(in);
+                int[] values = readValues(in);
+                msg = new Deal(hid, values, toCard(in.readUnsignedByte()));
+                break;
+            case 15: msg = new GameOver((int) readVarLong(in)); break;
+            case 16:
+                int shoeSize = (int) readVarLong(in);
+                int n = (int) readVarLong(in);
+                List<Hid> hids = null;
+                if(n != 0) {
+                    hids = new ArrayList<>(n - 1);
+                    for(int i=1; i < n; i++)
+                        hids.add(readHid(in));
+                }
+                msg = new GameStart(hids, shoeSize);
+                break;
+            case 17: msg = new Lose(readHid(in)); break;
+            case 18: msg = new Play(readHid(in)); break;
+            case 19: msg = new Push(readHid(in)); break;
+            case 20: msg = new Ready(source, in.readLong()); break;
+            case 21: msg = new Shuffle(); break;
+            case 22:
+                Hid newHid = readHid(in);
+                msg = new SplitResponse(newHid, readHid(in));
+                break;
+            case 23: msg = new Win(readHid(in)); break;
+            case 24:
+                int count = (int) readVarLong(in);
+                List<Message> messages = new ArrayList<>(count);
+                for(int i=0; i < count; i++)
+                    messages.add(decode(in));
+                msg = new Batch(messages);
+                break;
+            default: msg = new Rejoin(in.readLong());
+        }
+        
+        msg.session = session;
+        msg.serialno = serialno;
+        msg.sequence = sequence;
+        msg.stamp = stamp;
+        msg.source = source;
+        
+        return msg;
+    }
+    
+    /**
+     * Tests if a known message can be encoded compactly.
+     * @param msg Message
+     * @return True if it fits the binary format, false otherwise
+     */
+    protected boolean fits(Message msg) {
+        if(!(msg instanceof Deal))
+            return true;
+        
+        Deal deal = (Deal) msg;
+        
+        Card card = deal.getCard();
+        if(card != null && card.getClass() != Card.class && card.getClass() != HoleCard.class)
+            return false;
+        
+        int[] values = deal.getHandValues();
+        if(values == null)
+            return true;
+        
+        return values.length == 2 &&
+                values[0] >= 0 && values[0] < NO_VALUE &&
+                values[1] >= 0 && values[1] < NO_VALUE;
+    }
+    
+    /**
+     * Writes the message header.
+     * @param msg Message
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected void writeHeader(Message msg, DataOutputStream out) throws IOException {
+        writeVarLong(msg.session, out);
+        writeVarLong(msg.serialno, out);
+        writeVarLong(msg.sequence, out);
+        writeVarLong(zigzag(msg.stamp - lastStamp), out);
+        lastStamp = msg.stamp;
+        
+        if(msg.source == null)
+            out.writeByte(0);
+        else {
+            byte[] addr = msg.source.getAddress();
+            out.writeByte(addr.length);
+            out.write(addr);
+        }
+    }
+    
+    /**
+     * Reads the source address.
+     * @param in Input stream
+     * @return Address or null
+     * @throws IOException If the stream fails
+     */
+    protected InetAddress readAddress(DataInputStream in) throws IOException {
+        int len = in.readUnsignedByte();
+        
+        if(len == 0)
+            return null;
+        
+        byte[] addr = new byte[len];
+        in.readFully(addr);
+        
+        return InetAddress.getByAddress(addr);
+    }
+    
+    /**
+     * Writes a hand id as a handle, defining it if it's new to the link.
+     * @param hid Hand id
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected void writeHid(Hid hid, DataOutputStream out) throws IOException {
+        if(hid == null) {
+            out.writeByte(0);
+            return;
+        }
+        
+        Integer handle = handles.get(hid.getKey());
+        
+        if(handle != null)
+            writeVarLong(handle << 1, out);
+        
+        else {
+            if(nextHandle > MAX_HANDLES) {
+                handles.clear();
+                nextHandle = 1;
+            }
+            
+            handle = nextHandle++;
+            handles.put(hid.getKey(), handle);
+            
+            writeVarLong((handle << 1) | 1, out);
+            out.writeLong(hid.getKey());
+        }
+        
+        int flags = hid.getSeat().ordinal();
+        
+        if(hid.isSplit())
+            flags |= SPLIT;
+        
+        long amt = Math.round(hid.getAmt() * 100);
+        if(amt / 100.0 == hid.getAmt())
+            flags |= AMT_CENTS;
+        
+        long sideAmt = Math.round(hid.getSideAmt() * 100);
+        if(sideAmt / 100.0 == hid.getSideAmt())
+            flags |= SIDE_CENTS;
+        
+        out.writeByte(flags);
+        
+        if((flags & AMT_CENTS) != 0)
+            writeVarLong(zigzag(amt), out);
+        else
+            out.writeDouble(hid.getAmt());
+        
+        if((flags & SIDE_CENTS) != 0)
+            writeVarLong(zigzag(sideAmt), out);
+        else
+            out.writeDouble(hid.getSideAmt());
+        
+        List<charlie.util.Play> requests = hid.getRequests();
+        writeVarLong(requests.size(), out);
+        for(charlie.util.Play play: requests)
+            out.writeByte(play.ordinal());
+    }
+    
+    /**
+     * Reads a hand id.
+     * @param in Input stream
+     * @return Hand id or null
+     * @throws IOException If the stream fails or the handle is unknown
+     */
+    protected Hid readHid(DataInputStream in) throws IOException {
+        long code = readVarLong(in);
+        
+        if(code == 0)
+            return null;
+        
+        int handle = (int) (code >>> 1);
+        
+        if(handle > MAX_HANDLES)
+            throw new IOException("bad hid handle "+handle);
+        
+        if((code & 1) != 0) {
+            keys[handle] = in.readLong();
+            defined[handle] = true;
+        }
+        else if(!defined[handle])
+            throw new IOException("undefined hid handle "+handle);
+        
+        int flags = in.readUnsignedByte();
+        
+        Hid hid = new Hid(keys[handle], SEATS[flags & 0x07]);
+        
+        hid.setSplit((flags & SPLIT) != 0);
+        
+        if((flags & AMT_CENTS) != 0)
+            hid.setAmt(unzigzag(readVarLong(in)) / 100.0);
+        else
+            hid.setAmt(in.readDouble());
+        
+        if((flags & SIDE_CENTS) != 0)
+            hid.setSideAmt(unzigzag(readVarLong(in)) / 100.0);
+        else
+            hid.setSideAmt(in.readDouble());
+        
+        int n = (int) readVarLong(in);
+        for(int i=0; i < n; i++)
+            hid.request(PLAYS[in.readUnsignedByte()]);
+        
+        return hid;
+    }
+    
+    /**
+     * Writes hand values as two bytes.
+     * @param values Literal and soft values or null
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected void writeValues(int[] values, DataOutputStream out) throws IOException {
+        if(values == null) {
+            out.writeByte(NO_VALUE);
+            out.writeByte(NO_VALUE);
+        }
+        else {
+            out.writeByte(values[0]);
+            out.writeByte(values[1]);
+        }
+    }
+    
+    /**
+     * Reads hand values.
+     * @param in Input stream
+     * @return Literal and soft values or null
+     * @throws IOException If the stream fails
+     */
+    protected int[] readValues(DataInputStream in) throws IOException {
+        int literal = in.readUnsignedByte();
+        int soft = in.readUnsignedByte();
+        
+        if(literal == NO_VALUE)
+            return null;
+        
+        return new int[] {literal, soft};
+    }
+    
+    /**
+     * Converts a card to a byte, ie, its code.
+     * @param card Card or null
+     * @return Byte
+     */
+    public static int toByte(Card card) {
+        return Cards.code(card);
+    }
+    
+    /**
+     * Converts a byte to a card.
+     * @param b Byte
+     * @return Canonical card or null
+     * @throws IOException If the byte isn't a card
+     */
+    public static Card toCard(int b) throws IOException {
+        if(b == Cards.NONE)
+            return null;
+        
+        Card card = Cards.card(b);
+        
+        if(card == null)
+            throw new IOException("bad card "+b);
+        
+        return card;
+    }
+    
+    /**
+     * Writes a ticket.
+     * @param ticket Ticket or null
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected void writeTicket(Ticket ticket, DataOutputStream out) throws IOException {
+        out.writeBoolean(ticket != null);
+        
+        if(ticket == null)
+            return;
+        
+        out.writeLong(ticket.getNumber());
+        out.writeDouble(ticket.getBankroll());
+        writeVarLong(ticket.getUsage(), out);
+    }
+    
+    /**
+     * Reads a ticket.
+     * @param in Input stream
+     * @return Ticket or null
+     * @throws IOException If the stream fails
+     */
+    protected Ticket readTicket(DataInputStream in) throws IOException {
+        if(!in.readBoolean())
+            return null;
+        
+        Ticket ticket = new Ticket(in.readLong(), in.readDouble());
+        
+        for(long n = readVarLong(in); n > 0; n--)
+            ticket.use();
+        
+        return ticket;
+    }
+    
+    /**
+     * Writes a string which may be null.
+     * @param s String
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected void writeString(String s, DataOutputStream out) throws IOException {
+        out.writeBoolean(s != null);
+        
+        if(s != null)
+            out.writeUTF(s);
+    }
+    
+    /**
+     * Reads a string which may be null.
+     * @param in Input stream
+     * @return String
+     * @throws IOException If the stream fails
+     */
+    protected String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    /**
+     * Writes an unsigned, variable length integer, seven bits per byte.
+     * @param value Value
+     * @param out Output stream
+     * @throws IOException If the stream fails
+     */
+    protected static void writeVarLong(long value, DataOutputStream out) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        
+        out.writeByte((int) value);
+    }
+    
+    /**
+     * Reads an unsigned, variable length integer.
+     * @param in Input stream
+     * @return Value
+     * @throws IOException If the stream fails or the value is too long
+     */
+    protected static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        
+        for(int shift=0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            
+            value |= (long) (b & 0x7F) << shift;
+            
+            if((b & 0x80) == 0)
+                return value;
+        }
+        
+        throw new IOException("bad varint");
+    }
+    
+    /**
+     * Maps a signed value to an unsigned one so small magnitudes stay short.
+     * @param value Value
+     * @return Zigzag value
+     */
+    protected static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    /**
+     * Reverses zigzag.
+     * @param value Zigzag value
+     * @return Value
+     */
+    protected static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+import charlie.plugin.ICodec;
+import charlie.util.Constant;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the codec factory.
+ * @author Ron Coleman
+ */
+public class CodecFactory {
+    private static final Logger LOG = Logger.getLogger(CodecFactory.class);
+    
+    /**
+     * Gets a new instance of the codec configured by the "charlie.codec" property.
+     * @return Codec
+     */
+    public static ICodec getInstance() {
+        return getInstance(System.getProperty(Constant.PLUGIN_CODEC, Constant.DEFAULT_CODEC));
+    }
+    
+    /**
+     * Gets a new instance of a codec by class name.
+     * @param className Codec class name
+     * @return Codec, the serialization codec if the class can't be loaded
+     */
+    public static ICodec getInstance(String className) {
+        try {
+            Class<?> clazz = Class.forName(className);
+            
+            return (ICodec) clazz.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | ClassCastException ex) {
+            LOG.error("failed to instantiate codec '"+className+"': " + ex);
+        }
+        
+        return new SerialCodec();
+    }
+}
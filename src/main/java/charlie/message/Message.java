@@ -24,28 +24,28 @@ package charlie.message;
 
 import java.io.Serializable;
 import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements an abstract message for actors.
+ * The serial number is unique in the JVM. The sequence number, if any, is
+ * set by the sender and counts the messages of a session from one so the
+ * receiver can spot gaps.
  * @author Ron Coleman
  */
 abstract public class Message implements Serializable {
-    protected Long serialno = 0L;
-    protected static Long counter = 0L;
-    protected final static String monitor = "YUMMY";
+    protected final static AtomicLong counter = new AtomicLong();
+    protected long serialno = counter.getAndIncrement();
     protected InetAddress source;
-    protected final Long stamp = System.currentTimeMillis();;
+    protected int session = 0;
+    protected long sequence = 0;
+    protected long stamp = System.currentTimeMillis();
 
     /**
      * Constructor
      */
     public Message() {
         this.source = null;
-        
-        synchronized(monitor) {
-            serialno = counter;
-            counter += 1;
-        }        
     }
     
     /**
@@ -54,18 +54,13 @@ abstract public class Message implements Serializable {
      */
     public Message(InetAddress source) {
         this.source = source;
-        
-        synchronized(monitor) {
-            serialno = counter;
-            counter += 1;
-        }
     }
 
     /**
      * Gets the message serial number.
      * @return Serial number
      */
-    public Long getSerialno() {
+    public long getSerialno() {
         return serialno;
     }
 
@@ -73,7 +68,7 @@ abstract public class Message implements Serializable {
      * Sets the message serial number.
      * @param serialno Serial number
      */
-    public void setSerialno(Long serialno) {
+    public void setSerialno(long serialno) {
         this.serialno = serialno;
     }
 
@@ -93,11 +88,43 @@ abstract public class Message implements Serializable {
         this.source = source;
     }
 
+    /**
+     * Gets the table session to which the message belongs.
+     * @return Session id or 0 if the message doesn't belong to a session
+     */
+    public int getSession() {
+        return session;
+    }
+    
+    /**
+     * Sets the table session to which the message belongs.
+     * @param session Session id
+     */
+    public void setSession(int session) {
+        this.session = session;
+    }
+
+    /**
+     * Gets the sequence number of the message in its session.
+     * @return Sequence number or 0 if the message isn't sequenced
+     */
+    public long getSequence() {
+        return sequence;
+    }
+    
+    /**
+     * Sets the sequence number of the message in its session.
+     * @param sequence Sequence number
+     */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Gets the message time stamp.
      * @return Time stamp
      */
-    public Long getStamp() {
+    public long getStamp() {
         return stamp;
     }
     
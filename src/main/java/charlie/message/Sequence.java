@@ -0,0 +1,106 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the sequence numbers of one end of a session.
+ * The sender numbers its messages from one; the receiver checks them to spot
+ * messages missing, eg, dropped by a slow-consumer policy, or out of order.
+ * Messages without a sequence number are not checked.
+ * @author Ron Coleman
+ */
+public class Sequence {
+    private final Logger LOG = Logger.getLogger(Sequence.class);
+    protected final AtomicLong sent = new AtomicLong();
+    protected int session = 0;
+    protected long expected = 1;
+    protected long gaps = 0;
+    protected long late = 0;
+
+    /**
+     * Numbers an outbound message.
+     * @param msg Message
+     * @return Sequence number
+     */
+    public long next(Message msg) {
+        long sequence = sent.incrementAndGet();
+        
+        msg.setSequence(sequence);
+        
+        return sequence;
+    }
+
+    /**
+     * Checks an inbound message. A new session starts over.
+     * @param msg Message
+     * @return True if the message is the next one expected or not sequenced
+     */
+    public synchronized boolean check(Message msg) {
+        long sequence = msg.getSequence();
+        
+        if(sequence == 0)
+            return true;
+        
+        if(msg.getSession() != session) {
+            session = msg.getSession();
+            expected = 1;
+        }
+        
+        if(sequence == expected) {
+            expected++;
+            return true;
+        }
+        
+        if(sequence > expected) {
+            gaps += sequence - expected;
+            LOG.warn("session "+session+" missing "+(sequence - expected)+" messages before "+sequence);
+            
+            expected = sequence + 1;
+        }
+        else {
+            late++;
+            LOG.warn("session "+session+" message "+sequence+" late, expected "+expected);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Gets the number of messages missing so far.
+     * @return Missing messages
+     */
+    public synchronized long getGaps() {
+        return gaps;
+    }
+    
+    /**
+     * Gets the number of messages received out of order so far.
+     * @return Late messages
+     */
+    public synchronized long getLate() {
+        return late;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message;
+
+import charlie.plugin.ICodec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * This class implements the codec with default Java serialization.
+ * It is the default codec and carries any message, including plugin messages.
+ * @author Ron Coleman
+ */
+public class SerialCodec implements ICodec {
+    /**
+     * Serializes a message.
+     * @param msg Message
+     * @param out Output stream
+     * @throws IOException If the message can't be serialized
+     */
+    @Override
+    public void encode(Message msg, DataOutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(msg);
+        oos.flush();
+    }
+
+    /**
+     * Deserializes a message.
+     * @param in Input stream
+     * @return Message
+     * @throws IOException If the frame is bad or the message class unknown
+     */
+    @Override
+    public Message decode(DataInputStream in) throws IOException {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(in);
+
+            return (Message) ois.readObject();
+        }
+        catch(ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("bad message: "+ex, ex);
+        }
+    }
+}
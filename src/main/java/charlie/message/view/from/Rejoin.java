@@ -0,0 +1,51 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.message.view.from;
+
+import charlie.message.Message;
+
+/**
+ * This message binds a new link from the courier to its table.
+ * The courier sends it first on a link it reconnects with the key the table
+ * sent in Ready.
+ * @author Ron Coleman
+ */
+public class Rejoin extends Message {
+    protected final long key;
+    
+    /**
+     * Constructor
+     * @param key Table key
+     */
+    public Rejoin(long key) {
+        this.key = key;
+    }
+    
+    /**
+     * Gets the table key.
+     * @return Key
+     */
+    public long getKey() {
+        return key;
+    }
+}
@@ -27,15 +27,36 @@ import java.net.InetAddress;
 
 /**
  * This message sent by IPlayer to connect to its courier.
+ * It carries the table's key which the courier presents if it has to
+ * reconnect.
  * @author Ron Coleman
  */
 public class Ready extends Message {
+    protected final long key;
   
     /**
      * Constructor
      * @param address IPlayer address
      */
     public Ready(InetAddress address) {
+        this(address, 0);
+    }
+    
+    /**
+     * Constructor
+     * @param address IPlayer address
+     * @param key Table key
+     */
+    public Ready(InetAddress address, long key) {
         super(address);
-    }    
+        this.key = key;
+    }
+    
+    /**
+     * Gets the table key.
+     * @return Key or 0 if none
+     */
+    public long getKey() {
+        return key;
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.plugin;
+
+import charlie.message.Message;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This interface defines the wire format of messages inside a frame.
+ * A link uses one codec instance for its lifetime, so a codec may keep state
+ * about what it has already sent or received on that link.
+ * @author Ron Coleman
+ */
+public interface ICodec {
+    /**
+     * Encodes a message as the body of a frame.
+     * @param msg Message
+     * @param out Output stream
+     * @throws IOException If the message can't be encoded
+     */
+    public void encode(Message msg, DataOutputStream out) throws IOException;
+    
+    /**
+     * Decodes a message from the body of a frame.
+     * @param in Input stream
+     * @return Message
+     * @throws IOException If the frame is bad
+     */
+    public Message decode(DataInputStream in) throws IOException;
+}
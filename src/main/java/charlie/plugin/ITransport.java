@@ -0,0 +1,59 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.plugin;
+
+import charlie.actor.last.Actor;
+import charlie.actor.last.Link;
+import java.io.IOException;
+
+/**
+ * This interface defines the transport which carries messages between actors.
+ * @author Ron Coleman
+ */
+public interface ITransport {
+    /** Millis to wait for a connection before giving up */
+    public final static String CONNECT_TIMEOUT = "charlie.transport.timeout";
+    public final static int DEFAULT_CONNECT_TIMEOUT = 5000;
+    
+    /**
+     * Listens for inbound links on a port.
+     * Messages arriving on these links are delivered to the actor.
+     * The method may block for as long as the actor listens or return as soon
+     * as the port is bound, depending on the transport.
+     * @param actor Actor which receives the messages
+     * @param port Port number
+     * @throws IOException If the port can't be bound
+     */
+    public void listen(Actor actor, int port) throws IOException;
+    
+    /**
+     * Connects to a remote host.
+     * Messages arriving on the link are delivered to the actor.
+     * @param actor Actor which receives the messages
+     * @param host Remote host address
+     * @param port Remote host port
+     * @return Link
+     * @throws IOException If the remote host can't be reached in time
+     */
+    public Link connect(Actor actor, String host, int port) throws IOException;
+}
@@ -24,10 +24,10 @@ package charlie.server;
 
 import charlie.actor.House;
 import charlie.actor.ServerAuthenticator;
+import charlie.util.Constant;
+import charlie.util.Metrics;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 import org.apache.log4j.Logger;
@@ -48,7 +48,9 @@ public class GameServer {
     protected final static Random ran = new Random(0);
     protected final static Integer TOPOLOGY_PORT = 1234;
     protected final static String HOST = "127.0.0.1";
-    protected final List<Ticket> tickets = new ArrayList<>();
+    protected final Registry registry = new Registry();
+    protected TableManager tables;
+    protected Journal journal;
     
     /**
      * This method is the main entry point for the server.
@@ -71,7 +73,30 @@ public class GameServer {
             // Start the actor server
             Properties props = System.getProperties();
             props.load(new FileInputStream(CHARLIE_PROPS_PATH));
+            
+            // Recover the accounts, if they're kept
+            String path = props.getProperty(Constant.JOURNAL);
+            if(path != null) {
+                journal = new Journal(path);
+                LOG.info("journal successfully opened");
+                
+                // The server runs until it's killed
+                Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+            }
 
+            // Open the listener shared by all tables
+            tables = new TableManager();
+            
+            // Expose what the server is doing
+            Metrics metrics = Metrics.getInstance();
+            metrics.gauge("server.tables", () -> tables.size());
+            metrics.gauge("server.players", registry::getPlayers);
+            metrics.gauge("server.tickets", registry::size);
+            metrics.start();
+            
+            tables.start();
+            LOG.info("table manager successfully started");
+            
             // Spawn the house
             LOG.info("instantiating house");
 
@@ -82,26 +107,50 @@ public class GameServer {
             house.start();
             LOG.info("house successfully started");
   
-            // Enter the authentication loop
-            while(true) {
-                // If the authentication succeeds, there'll be an extra ticket in repository
-                int sz = tickets.size();
-                
-                new ServerAuthenticator(this).receive();
-                
-                if(tickets.size() == sz)
-                    LOG.error("client authentication failed");
-            }
+            // Authenticate logins for good
+            new ServerAuthenticator(this).receive();
         } catch (IOException | NumberFormatException ex) {
             LOG.error("exception thrown: "+ex);
         }        
     }
 
     /**
-     * Gets the logins by ticket
-     * @return Tickets
+     * Stops the server, snapshotting the accounts.
+     */
+    public void stop() {
+        LOG.info("game server stopping");
+        
+        if(journal == null)
+            return;
+        
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            LOG.error("journal failed to close: "+ex);
+        }
+    }
+
+    /**
+     * Gets the table manager.
+     * @return Table manager
+     */
+    public TableManager getTables() {
+        return tables;
+    }
+
+    /**
+     * Gets the registry of logins by ticket.
+     * @return Registry
+     */
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Gets the journal of accounts.
+     * @return Journal or null if accounts aren't kept
      */
-    public List<Ticket> getTickets() {
-        return tickets;
+    public Journal getJournal() {
+        return journal;
     }
 }
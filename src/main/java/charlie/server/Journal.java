@@ -0,0 +1,527 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import charlie.card.Hid;
+import charlie.util.Constant;
+import charlie.util.Threads;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the durable journal of accounts and settlements.
+ * Property "charlie.journal" is the path of the journal files: the log,
+ * path.log, is a memory-mapped, append-only file of account openings and
+ * settlements; the snapshot, path.snap, holds every account balance as of
+ * the start of the log. An append is a copy into the map; a committer
+ * forces the map to disk every "charlie.journal.commit" millis so many
+ * settlements share one sync. When the log reaches "charlie.journal.size"
+ * bytes, the committer writes a new snapshot and starts the log over; an
+ * append never does I/O. Until then the balances in memory hold what the log
+ * can't, and they go into the snapshot, while what's appended during the
+ * snapshot waits to start the new log.
+ * <p>
+ * Records carry deltas in cents, not balances, so appends needn't be ordered
+ * with the credits on the tickets. At startup the balances are the snapshot
+ * plus the deltas in the log.
+ * <p>
+ * Accounts are keyed by login name since ticket numbers last one login.
+ * @author Ron Coleman
+ */
+public class Journal {
+    private final static Logger LOG = Logger.getLogger(Journal.class);
+    public final static int DEFAULT_SIZE = 16 * 1024 * 1024;
+    public final static int DEFAULT_COMMIT = 10;
+    
+    protected final static int MAGIC = 0xC4A7_1E00;
+    
+    /** Log header: magic, generation */
+    protected final static int HEADER = 4 + 8;
+    
+    /** Record frame: length, crc */
+    protected final static int FRAME = 4 + 4;
+    
+    protected final static byte OPEN = 1;
+    protected final static byte SETTLE = 2;
+    
+    protected final File logFile;
+    protected final File snapFile;
+    protected final int size;
+    protected final int commit;
+    protected final RandomAccessFile raf;
+    protected final MappedByteBuffer log;
+    protected final CRC32 crc = new CRC32();
+    
+    /** Durable balances in cents by account */
+    protected final Map<String,Long> balances = new HashMap<>();
+    
+    /** Accounts by ticket number of the players logged in */
+    protected final ConcurrentHashMap<Long,String> owners = new ConcurrentHashMap<>();
+    
+    /** Records appended while a snapshot is being written */
+    protected final ArrayList<Record> pending = new ArrayList<>();
+    
+    /** Serializes the disk I/O of the committer and closing */
+    protected final Object disk = new Object();
+    
+    protected long generation;
+    protected long records = 0;
+    protected boolean rolling = false;
+    protected volatile boolean full = false;
+    protected volatile boolean dirty = false;
+    protected volatile boolean open = true;
+    
+    /**
+     * This class implements a record waiting for the new log.
+     */
+    protected static class Record {
+        final byte type;
+        final String name;
+        final long key;
+        final long cents;
+        
+        Record(byte type, String name, long key, long cents) {
+            this.type = type;
+            this.name = name;
+            this.key = key;
+            this.cents = cents;
+        }
+    }
+    
+    /**
+     * Constructor uses the configured size and commit interval.
+     * @param path Path of the journal files
+     * @throws IOException If the journal can't be opened or recovered
+     */
+    public Journal(String path) throws IOException {
+        this(path, Integer.getInteger(Constant.JOURNAL_SIZE, DEFAULT_SIZE),
+                   Integer.getInteger(Constant.JOURNAL_COMMIT, DEFAULT_COMMIT));
+    }
+    
+    /**
+     * Constructor
+     * @param path Path of the journal files
+     * @param size Log size in bytes
+     * @param commit Millis between commits
+     * @throws IOException If the journal can't be opened or recovered
+     */
+    public Journal(String path, int size, int commit) throws IOException {
+        this.logFile = new File(path + ".log");
+        this.snapFile = new File(path + ".snap");
+        this.size = size;
+        this.commit = commit;
+        
+        long snapped = loadSnapshot();
+        
+        raf = new RandomAccessFile(logFile, "rw");
+        log = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        
+        // A log no newer than the snapshot is already in it: we crashed
+        // between writing the snapshot and starting the log over
+        if(log.getInt(0) == MAGIC && log.getLong(4) > snapped)
+            replay();
+        else
+            reset(snapped + 1);
+        
+        log.force();
+        
+        LOG.info("journal " + path + " recovered " + balances.size() + " accounts, " + records + " records");
+        
+        Threads.start("journal committer", this::commit, true);
+    }
+    
+    /**
+     * Opens an account for a login, restoring its bankroll to the ticket if
+     * the account exists and otherwise recording the ticket's bankroll as the
+     * opening balance.
+     * @param name Login name
+     * @param ticket Ticket
+     */
+    public void open(String name, Ticket ticket) {
+        synchronized(this) {
+            Long balance = balances.get(name);
+            
+            if(balance == null)
+                append(OPEN, name, 0, ticket.getCents());
+            else
+                ticket.setBankroll(Ticket.toDollars(balance));
+        }
+        
+        owners.put(ticket.getNumber(), name);
+    }
+    
+    /**
+     * Records a settlement.
+     * @param ticket Ticket of the player
+     * @param hid Hand
+     * @param cents Credit in cents
+     */
+    public void settle(Ticket ticket, Hid hid, long cents) {
+        String name = owners.get(ticket.getNumber());
+        
+        if(name == null)
+            return;
+        
+        synchronized(this) {
+            append(SETTLE, name, hid.getKey(), cents);
+        }
+    }
+    
+    /**
+     * Retires a ticket at logout; its account lives on.
+     * @param ticket Ticket
+     */
+    public void retire(Ticket ticket) {
+        if(ticket != null)
+            owners.remove(ticket.getNumber());
+    }
+    
+    /**
+     * Gets the durable balance of an account.
+     * @param name Login name
+     * @return Cents or null if there's no such account
+     */
+    public synchronized Long getBalance(String name) {
+        return balances.get(name);
+    }
+    
+    /**
+     * Gets the number of records in the log since the last snapshot.
+     * @return Number of records
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+    
+    /**
+     * Commits every record appended so far, rolling the log over if it's
+     * full, as the committer would.
+     * @throws IOException If the snapshot fails
+     */
+    public void sync() throws IOException {
+        synchronized(disk) {
+            if(open)
+                flush();
+        }
+    }
+    
+    /**
+     * Snapshots the balances, commits and closes the journal.
+     * @throws IOException If the snapshot fails
+     */
+    public void close() throws IOException {
+        synchronized(disk) {
+            if(!open)
+                return;
+
+            open = false;
+
+            roll();
+            raf.close();
+        }
+        
+        LOG.info("journal closed");
+    }
+    
+    /**
+     * Appends a record to the log or, if the log's full or being rolled
+     * over, leaves it to the committer.
+     * Caller must hold the lock.
+     * @param type Record type
+     * @param name Account
+     * @param key Hand key or 0
+     * @param cents Delta in cents
+     */
+    protected void append(byte type, String name, long key, long cents) {
+        if(!open)
+            return;
+        
+        balances.merge(name, cents, Long::sum);
+        
+        if(rolling)
+            pending.add(new Record(type, name, key, cents));
+        
+        // Once full, the snapshot has the rest in order
+        else if(full || !write(type, name, key, cents))
+            full = true;
+    }
+    
+    /**
+     * Writes a record into the log.
+     * Caller must hold the lock.
+     * @param type Record type
+     * @param name Account
+     * @param key Hand key or 0
+     * @param cents Delta in cents
+     * @return True if written, false if the log's full
+     */
+    protected boolean write(byte type, String name, long key, long cents) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        
+        int length = 1 + 8 + 8 + 8 + 2 + bytes.length;
+        
+        // Leave room for the end mark
+        if(log.position() + FRAME + length + 4 > size)
+            return false;
+        
+        int start = log.position();
+        
+        log.position(start + FRAME);
+        log.put(type);
+        log.putLong(System.currentTimeMillis());
+        log.putLong(key);
+        log.putLong(cents);
+        log.putShort((short) bytes.length);
+        log.put(bytes);
+        
+        int end = log.position();
+        
+        // End mark, then the frame so a torn record reads as the end
+        log.putInt(end, 0);
+        log.putInt(start + 4, checksum(start + FRAME, length));
+        log.putInt(start, length);
+        
+        records++;
+        dirty = true;
+        
+        return true;
+    }
+    
+    /**
+     * Replays the log into the balances.
+     */
+    protected void replay() {
+        generation = log.getLong(4);
+        log.position(HEADER);
+        
+        while(log.position() + FRAME <= size) {
+            int start = log.position();
+            int length = log.getInt(start);
+            
+            if(length <= 0 || start + FRAME + length > size)
+                break;
+            
+            if(log.getInt(start + 4) != checksum(start + FRAME, length)) {
+                LOG.warn("journal record at " + start + " is corrupt, log truncated");
+                break;
+            }
+            
+            log.position(start + FRAME + 1 + 8 + 8);
+            long cents = log.getLong();
+            byte[] bytes = new byte[log.getShort()];
+            log.get(bytes);
+            
+            balances.merge(new String(bytes, StandardCharsets.UTF_8), cents, Long::sum);
+            records++;
+        }
+    }
+    
+    /**
+     * Snapshots the balances and starts the log over. Appends carry on
+     * while the snapshot is written; only copying the balances and
+     * starting the new log hold the lock.
+     * Caller must hold the disk lock.
+     * @throws IOException If the snapshot fails
+     */
+    protected void roll() throws IOException {
+        Map<String,Long> copy;
+        long snapped;
+        
+        synchronized(this) {
+            copy = new HashMap<>(balances);
+            snapped = generation;
+            rolling = true;
+            full = false;
+        }
+        
+        boolean written = false;
+        
+        try {
+            snapshot(copy, snapped);
+            written = true;
+        }
+        finally {
+            synchronized(this) {
+                rolling = false;
+                
+                if(written) {
+                    reset(snapped + 1);
+                    
+                    for(Record record: pending)
+                        if(!write(record.type, record.name, record.key, record.cents)) {
+                            full = true;
+                            break;
+                        }
+                }
+                
+                // The balances have what isn't in the log for the next snapshot
+                else
+                    full = true;
+                
+                pending.clear();
+            }
+        }
+        
+        log.force();
+    }
+    
+    /**
+     * Writes a snapshot.
+     * @param balances Balances
+     * @param generation Generation of the last log in the snapshot
+     * @throws IOException If the snapshot fails
+     */
+    protected void snapshot(Map<String,Long> balances, long generation) throws IOException {
+        File tmp = new File(snapFile.getPath() + ".tmp");
+        
+        try(FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            
+            out.writeInt(MAGIC);
+            out.writeLong(generation);
+            out.writeInt(balances.size());
+            
+            for(Map.Entry<String,Long> entry: balances.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            
+            out.flush();
+            fos.getFD().sync();
+        }
+        
+        Files.move(tmp.toPath(), snapFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        LOG.info("journal snapshot of " + balances.size() + " accounts, generation " + generation);
+    }
+    
+    /**
+     * Loads the snapshot into the balances.
+     * @return Generation of the last log in the snapshot or 0 if there's none
+     * @throws IOException If the snapshot is unreadable
+     */
+    protected long loadSnapshot() throws IOException {
+        if(!snapFile.exists())
+            return 0;
+        
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapFile)))) {
+            if(in.readInt() != MAGIC)
+                throw new IOException("bad journal snapshot " + snapFile);
+            
+            long snapped = in.readLong();
+            
+            int count = in.readInt();
+            for(int i=0; i < count; i++)
+                balances.put(in.readUTF(), in.readLong());
+            
+            return snapped;
+        }
+    }
+    
+    /**
+     * Starts the log over; the caller forces it.
+     * @param generation Generation of the new log
+     */
+    protected void reset(long generation) {
+        this.generation = generation;
+        
+        log.putInt(HEADER, 0);
+        log.putLong(4, generation);
+        log.putInt(0, MAGIC);
+        log.position(HEADER);
+        
+        records = 0;
+        dirty = false;
+    }
+    
+    /**
+     * Computes the checksum of a record body.
+     * @param offset Offset of the body
+     * @param length Length of the body
+     * @return Checksum
+     */
+    protected int checksum(int offset, int length) {
+        ByteBuffer body = log.duplicate();
+        body.limit(offset + length).position(offset);
+        
+        crc.reset();
+        crc.update(body);
+        
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Forces the log to disk whenever there are new records, committing
+     * every settlement since the last commit at once, and rolls the log
+     * over when it fills.
+     */
+    protected void commit() {
+        while(open) {
+            try {
+                Thread.sleep(commit);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            
+            try {
+                sync();
+            } catch (IOException ex) {
+                LOG.error("journal snapshot failed, retrying: " + ex);
+            }
+        }
+    }
+    
+    /**
+     * Commits the log, rolling it over first if it's full.
+     * Caller must hold the disk lock.
+     * @throws IOException If the snapshot fails
+     */
+    protected void flush() throws IOException {
+        if(full)
+            roll();
+        
+        else if(dirty) {
+            dirty = false;
+            log.force();
+        }
+    }
+}
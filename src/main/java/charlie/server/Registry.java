@@ -0,0 +1,210 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import charlie.plugin.IPlayer;
+import charlie.util.Constant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the registry of tickets and the players they pay for.
+ * A ticket is issued at login and must be redeemed by an arrival within the
+ * time to live, property "charlie.ticket.ttl" in millis, or it expires.
+ * A redeemed ticket is bound to exactly one player until logout; replaying
+ * it can't bind another. Every operation is
+ * a hash lookup and safe from any thread; expired tickets are swept out every
+ * so many logins.
+ * @author Ron Coleman
+ */
+public class Registry {
+    private final Logger LOG = Logger.getLogger(Registry.class);
+    public final static long DEFAULT_TTL = 10 * 60 * 1000L;
+    
+    /** Logins between sweeps of expired tickets */
+    protected final static int SWEEP = 1024;
+    
+    protected final ConcurrentHashMap<Long,Entry> tickets = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<IPlayer,Ticket> accounts = new ConcurrentHashMap<>();
+    protected final AtomicLong issued = new AtomicLong();
+    protected final long ttl;
+    
+    /**
+     * This class implements an issued ticket.
+     */
+    protected static class Entry {
+        final Ticket ticket;
+        final long expires;
+        final AtomicBoolean bound = new AtomicBoolean();
+        
+        Entry(Ticket ticket, long expires) {
+            this.ticket = ticket;
+            this.expires = expires;
+        }
+    }
+    
+    /**
+     * Constructor uses the time to live configured when a ticket is issued.
+     */
+    public Registry() {
+        this(-1);
+    }
+    
+    /**
+     * Constructor
+     * @param ttl Millis an issued ticket stays valid until redeemed or -1 to
+     * use the configured time to live
+     */
+    public Registry(long ttl) {
+        this.ttl = ttl;
+    }
+    
+    /**
+     * Issues a ticket.
+     * @param ticket Ticket
+     */
+    public void issue(Ticket ticket) {
+        long now = System.currentTimeMillis();
+        
+        long life = ttl >= 0 ? ttl : Long.getLong(Constant.TICKET_TTL, DEFAULT_TTL);
+        
+        tickets.put(ticket.getNumber(), new Entry(ticket, now + life));
+        
+        if(issued.incrementAndGet() % SWEEP == 0)
+            evict(now);
+    }
+    
+    /**
+     * Validates a ticket.
+     * @param ticket Ticket
+     * @return True if the ticket was issued and hasn't expired
+     */
+    public boolean valid(Ticket ticket) {
+        return ticket != null && lookup(ticket.getNumber(), System.currentTimeMillis()) != null;
+    }
+    
+    /**
+     * Binds a valid ticket to a player, once.
+     * @param player Player
+     * @param ticket Ticket
+     * @return Issued ticket, which holds the bankroll, or null if the ticket
+     * isn't valid or is already bound
+     */
+    public Ticket bind(IPlayer player, Ticket ticket) {
+        Entry entry = ticket == null ? null : lookup(ticket.getNumber(), System.currentTimeMillis());
+        
+        if(entry == null || !entry.bound.compareAndSet(false, true))
+            return null;
+        
+        accounts.put(player, entry.ticket);
+        
+        return entry.ticket;
+    }
+    
+    /**
+     * Gets the ticket of a player.
+     * @param player Player
+     * @return Ticket or null if the player isn't logged in
+     */
+    public Ticket getTicket(IPlayer player) {
+        return player == null ? null : accounts.get(player);
+    }
+    
+    /**
+     * Logs a player out, retiring its ticket.
+     * @param player Player
+     * @return Ticket or null if the player wasn't logged in
+     */
+    public Ticket logout(IPlayer player) {
+        Ticket ticket = player == null ? null : accounts.remove(player);
+        
+        if(ticket != null)
+            tickets.remove(ticket.getNumber());
+        
+        return ticket;
+    }
+    
+    /**
+     * Evicts tickets which expired before they were redeemed.
+     * @param now Current time in millis
+     * @return Number of tickets evicted
+     */
+    public int evict(long now) {
+        int before = tickets.size();
+        
+        tickets.values().removeIf(entry -> !entry.bound.get() && entry.expires < now);
+        
+        int evicted = before - tickets.size();
+        
+        if(evicted > 0)
+            LOG.info("evicted "+evicted+" expired tickets");
+        
+        return evicted;
+    }
+    
+    /**
+     * Gets the number of tickets outstanding, redeemed or not.
+     * @return Number of tickets
+     */
+    public int size() {
+        return tickets.size();
+    }
+    
+    /**
+     * Gets the number of players logged in.
+     * @return Number of players
+     */
+    public int getPlayers() {
+        return accounts.size();
+    }
+    
+    /**
+     * Gets the number of tickets ever issued.
+     * @return Number of tickets
+     */
+    public long getIssued() {
+        return issued.get();
+    }
+    
+    /**
+     * Looks up a live ticket, dropping it if it has expired.
+     * @param number Ticket number
+     * @param now Current time in millis
+     * @return Entry or null if there's no live ticket
+     */
+    protected Entry lookup(long number, long now) {
+        Entry entry = tickets.get(number);
+        
+        if(entry == null)
+            return null;
+        
+        if(!entry.bound.get() && entry.expires < now) {
+            tickets.remove(number, entry);
+            return null;
+        }
+        
+        return entry;
+    }
+}
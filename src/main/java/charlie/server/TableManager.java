@@ -0,0 +1,146 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.server;
+
+import charlie.actor.RealPlayer;
+import charlie.actor.last.Actor;
+import charlie.actor.last.Link;
+import charlie.message.Message;
+import charlie.util.Metrics;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the table manager.
+ * Each table is a session between a real player and its own dealer.
+ * The manager listens on the "charlie.server.realplayer" port on behalf of
+ * every table and routes inbound messages to the table by the session id
+ * the message carries. Couriers normally talk to their table over the link
+ * the real player opened; they only come through here if they reconnect.
+ * Session ids are easy to guess, so each table also gets a random key which
+ * only its courier learns and the table takes nothing from a link until the
+ * courier rejoins on it with the key.
+ * @author Ron Coleman
+ */
+public class TableManager extends Actor {
+    private final Logger LOG = Logger.getLogger(TableManager.class);
+    protected final ConcurrentHashMap<Integer,RealPlayer> sessions = new ConcurrentHashMap<>();
+    protected final AtomicInteger nextSession = new AtomicInteger(0);
+    protected final SecureRandom keys = new SecureRandom();
+    
+    /**
+     * Constructor
+     */
+    public TableManager() {
+        super(System.getProperty("charlie.server.realplayer"));
+    }
+    
+    /**
+     * Opens a table for a real player.
+     * @param player Real player
+     * @return Session id of the table
+     */
+    public int open(RealPlayer player) {
+        int session = nextSession.incrementAndGet();
+        
+        long key;
+        do {
+            key = keys.nextLong();
+        } while(key == 0);
+        
+        player.setSession(session, key);
+        
+        sessions.put(session, player);
+        LOG.info("opened table session = "+session+" tables = "+sessions.size());
+        
+        return session;
+    }
+    
+    /**
+     * Closes a table.
+     * @param session Session id
+     */
+    public void close(int session) {
+        RealPlayer player = sessions.remove(session);
+        
+        if(player != null) {
+            player.close();
+            Metrics.getInstance().drop(session);
+            LOG.info("closed table session = "+session+" tables = "+sessions.size());
+        }
+    }
+    
+    /**
+     * Gets the real player at a table.
+     * @param session Session id
+     * @return Real player or null if there's no such table
+     */
+    public RealPlayer get(int session) {
+        return sessions.get(session);
+    }
+    
+    /**
+     * Gets the number of open tables.
+     * @return Number of tables
+     */
+    public int size() {
+        return sessions.size();
+    }
+    
+    /**
+     * Routes an inbound message to its table.
+     * @param from Link on which the message arrived
+     * @param msg Message
+     */
+    @Override
+    public void deliver(Link from, Message msg) {
+        RealPlayer player = sessions.get(msg.getSession());
+        
+        if(player == null) {
+            error("dropped "+msg+" for unknown session = "+msg.getSession());
+            return;
+        }
+        
+        player.deliver(from, msg);
+    }
+    
+    /**
+     * Does not adopt links since they belong to tables, not the manager.
+     * @param inbound Inbound link
+     */
+    @Override
+    public void adopt(Link inbound) {
+        
+    }
+    
+    /**
+     * The manager does not send messages but tables do.
+     * @param msg Message
+     */
+    @Override
+    public void send(Message msg) {
+        error("bad message "+msg+" not sent");
+    }
+}
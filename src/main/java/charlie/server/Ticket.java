@@ -23,14 +23,18 @@
 package charlie.server;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements a ticket which the user receive upon successful login.
+ * The ticket is also the player's account: the bankroll is kept in cents so
+ * payouts add up exactly, and each credit is one atomic add so settlements
+ * never lose an update and a balance read never takes a lock.
  * @author Ron Coleman
  */
 public class Ticket implements Serializable {
     protected final long number;
-    protected double bankroll;
+    protected final AtomicLong cents;
     protected int usage = 0;
 
     /**
@@ -40,7 +44,7 @@ public class Ticket implements Serializable {
      */
     public Ticket(long number,double bankroll) {
         this.number = number;
-        this.bankroll = bankroll;
+        this.cents = new AtomicLong(toCents(bankroll));
     }
 
     /**
@@ -71,7 +75,15 @@ public class Ticket implements Serializable {
      * @return Double
      */
     public Double getBankroll() {
-        return bankroll;
+        return toDollars(cents.get());
+    }
+    
+    /**
+     * Gets the bankroll in cents.
+     * @return Cents
+     */
+    public long getCents() {
+        return cents.get();
     }
 
     /**
@@ -79,7 +91,34 @@ public class Ticket implements Serializable {
      * @param bankroll Bankroll
      */
     public void setBankroll(Double bankroll) {
-        this.bankroll = bankroll;
+        cents.set(toCents(bankroll));
+    }
+    
+    /**
+     * Credits the bankroll atomically.
+     * @param amt Cents to credit, negative to debit
+     * @return Bankroll in cents after the credit
+     */
+    public long credit(long amt) {
+        return cents.addAndGet(amt);
+    }
+    
+    /**
+     * Converts dollars to cents, rounding to the nearest cent.
+     * @param dollars Dollars
+     * @return Cents
+     */
+    public static long toCents(double dollars) {
+        return Math.round(dollars * 100);
+    }
+    
+    /**
+     * Converts cents to dollars.
+     * @param cents Cents
+     * @return Dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / 100.0;
     }
     
     /**
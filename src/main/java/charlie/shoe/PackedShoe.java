@@ -0,0 +1,177 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.shoe;
+
+import charlie.card.Card;
+import charlie.card.Card.Suit;
+import charlie.card.Cards;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a six deck shoe as an array of card codes for
+ * simulations. Dealing, shuffling and cutting don't allocate and next()
+ * returns the canonical card for a code.
+ * It shuffles exactly as Shoe, so the two deal the same cards from the
+ * same seed.
+ * @author Ron Coleman
+ */
+public class PackedShoe extends Shoe {
+    private final Logger LOG = Logger.getLogger(PackedShoe.class);
+    
+    protected byte[] codes = new byte[0];
+    protected int top = 0;
+    
+    /**
+     * Constructor
+     */
+    public PackedShoe() {
+        
+    }
+    
+    /**
+     * Constructor
+     * @param numDecks Number of decks
+     */
+    public PackedShoe(int numDecks) {
+        super(numDecks);
+    }
+    
+    /**
+     * Constructor
+     * @param numDecks Number of decks
+     * @param seed Seed of the shuffles
+     */
+    public PackedShoe(int numDecks, long seed) {
+        super(numDecks, seed);
+    }
+    
+    /**
+     * Initializes the shoe.
+     */
+    @Override
+    public void init() {
+        pack();
+        
+        shuffle();
+    }
+    
+    /**
+     * Loads the codes of the decks in the shoe.
+     */
+    protected void pack() {
+        codes = new byte[numDecks * 52];
+        
+        int k = 0;
+        for(int deckno=0; deckno < this.numDecks; deckno++) {
+            for(int rank=1; rank <= 13; rank++) {
+                for(Suit suit: Suit.values()) {
+                    codes[k++] = (byte) Cards.code(rank, suit);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Shuffles the shoe in place and cuts it.
+     */
+    @Override
+    public void shuffle() {
+        // Same swaps as Collections.shuffle
+        for(int i=codes.length; i > 1; i--) {
+            int j = ran.nextInt(i);
+            
+            byte code = codes[i-1];
+            codes[i-1] = codes[j];
+            codes[j] = code;
+        }
+        
+        top = 0;
+        
+        int cutSize = Math.min(ran.nextInt(13) + 13, codes.length / 3);
+        
+        burnIndex = codes.length - cutSize;
+    }
+    
+    /**
+     * Gets the next card code.
+     * @return Code or Cards.NONE if the shoe is empty
+     */
+    public int nextCode() {
+        if(top >= codes.length) {
+            LOG.error("shoe empty!");
+            return Cards.NONE;
+        }
+        
+        return codes[top++];
+    }
+    
+    /**
+     * Gets the next card.
+     * @return A card, if there is one
+     */
+    @Override
+    public Card next() {
+        return Cards.card(nextCode());
+    }
+    
+    /**
+     * Tests if shoe has another card.
+     * @return True if shoe has another card, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        return top < codes.length;
+    }
+    
+    /**
+     * Tests if shoe needs shuffling.
+     * @return True if we've reach the burn card, false otherwise.
+     */
+    @Override
+    public boolean shuffleNeeded() {
+        return top >= burnIndex;
+    }
+    
+    /**
+     * Gets number of cards still in the shoe.
+     * @return Number cards in shoe
+     */
+    @Override
+    public int size() {
+        return codes.length - top;
+    }
+    
+    /**
+     * Converts shoe to string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        
+        for(int i=top, count=0; i < codes.length && count < 15; i++, count++)
+            s.append(Cards.card(codes[i])).append(" ");
+        
+        return this.getClass().getName()+": "+s;
+    }
+}
@@ -24,6 +24,7 @@ package charlie.shoe;
 
 import charlie.card.Card;
 import charlie.card.Card.Suit;
+import charlie.card.Cards;
 import charlie.plugin.IShoe;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,6 +61,25 @@ public class Shoe  implements IShoe {
         this.numDecks = numDecks;
     }
     
+    /**
+     * Constructor
+     * @param numDecks Number of decks
+     * @param seed Seed of the shuffles
+     */
+    public Shoe(int numDecks, long seed) {
+        this.numDecks = numDecks;
+        this.ran = new Random(seed);
+    }
+    
+    /**
+     * Seeds the shuffles so the shoe deals the same cards every time.
+     * Call it before init.
+     * @param seed Seed
+     */
+    public void seed(long seed) {
+        ran = new Random(seed);
+    }
+    
     /**
      * Initializes the shoe.
      */
@@ -78,7 +98,7 @@ public class Shoe  implements IShoe {
         for(int deckno=0; deckno < this.numDecks; deckno++) {
             for(int rank=1; rank <= 13; rank++) {
                 for(Suit suit: Suit.values()) {
-                    cards.add(new Card(rank,suit));
+                    cards.add(Cards.card(rank,suit));
                 }
             }
         }        
@@ -109,7 +129,8 @@ public class Shoe  implements IShoe {
      */
     @Override
     public Card next() {
-        LOG.info("cards size = "+cards.size()+" burn index = "+burnIndex+" index = "+index);
+        if(LOG.isDebugEnabled())
+            LOG.debug("cards size = "+cards.size()+" burn index = "+burnIndex+" index = "+index);
         
         if(index >= cards.size()) {
             LOG.error("shoe empty!");
@@ -133,7 +154,8 @@ public class Shoe  implements IShoe {
      */
     @Override
     public boolean shuffleNeeded() {
-        LOG.info("index = "+index+" burnIndex = "+burnIndex+" shuffle needed = "+(index>=burnIndex));
+        if(LOG.isDebugEnabled())
+            LOG.debug("index = "+index+" burnIndex = "+burnIndex+" shuffle needed = "+(index>=burnIndex));
         return index >= burnIndex;
     }
     
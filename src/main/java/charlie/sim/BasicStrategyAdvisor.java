@@ -0,0 +1,284 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import charlie.plugin.IAdvisor;
+import charlie.util.Play;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements basic strategy for this game's rules, ie, a 5-card
+ * Charlie pays 2:1 and the dealer stands on all 17s.
+ * <p>
+ * The strategy is a table indexed by the kind of hand (hard, soft or pair),
+ * its total (the pair's card value for pairs), the card count (2, 3 or 4 and
+ * more since a Charlie rewards hitting) and the dealer's up-card. It's
+ * generated offline by StrategyGenerator and loaded once from the chart
+ * basic-strategy.txt next to this class, so advice is a few lookups with no
+ * allocation.
+ * <p>
+ * Double downs are only charted for two cards. A pair which has already been
+ * split plays its hard or soft total. Cells the chart doesn't cover revert to
+ * the dealer's rule.
+ * @author Ron Coleman
+ */
+public class BasicStrategyAdvisor implements IAdvisor {
+    private final static Logger LOG = Logger.getLogger(BasicStrategyAdvisor.class);
+    public final static String CHART = "basic-strategy.txt";
+    
+    public final static int HARD = 0;
+    public final static int SOFT = 1;
+    public final static int PAIR = 2;
+    
+    protected final static int KINDS = 3;
+    protected final static int TOTALS = 22;
+    protected final static int COUNTS = 3;
+    protected final static int UPCARDS = 11;
+    public final static int SIZE = KINDS * TOTALS * COUNTS * UPCARDS;
+    
+    protected final static String[] KIND_NAMES = { "hard", "soft", "pair" };
+    
+    /** Chart codes, in the order of the plays they stand for */
+    protected final static String CODES = "-SHDP";
+    protected final static Play[] PLAYS = { null, Play.STAY, Play.HIT, Play.DOUBLE_DOWN, Play.SPLIT };
+    
+    protected final static byte[] CHARTED = load();
+    
+    protected final byte[] table;
+    
+    /**
+     * Constructor
+     */
+    public BasicStrategyAdvisor() {
+        this(CHARTED);
+    }
+    
+    /**
+     * Constructor
+     * @param table Strategy table
+     */
+    public BasicStrategyAdvisor(byte[] table) {
+        this.table = table;
+    }
+    
+    /**
+     * Gets advice.
+     * @param myHand Player's hand
+     * @param upCard Dealer's up-card
+     * @return Play
+     */
+    @Override
+    public Play advise(Hand myHand, Card upCard) {
+        int state = myHand.getState();
+        
+        if(HandState.isDone(state))
+            return Play.STAY;
+        
+        int value = HandState.getValue(state);
+        
+        if(upCard == null)
+            return value < 17 ? Play.HIT : Play.STAY;
+        
+        int up = Math.min(upCard.getRank(), 10);
+        int count = HandState.getCount(state);
+        
+        Hid hid = myHand.getHid();
+        
+        if(HandState.isPair(state) && (hid == null || !hid.isSplit())) {
+            Play play = PLAYS[table[index(PAIR, Math.min(HandState.getPairRank(state), 10), count, up)]];
+            
+            if(play == Play.SPLIT)
+                return play;
+        }
+        
+        Play play = PLAYS[table[index(HandState.isSoft(state) ? SOFT : HARD, value, count, up)]];
+        
+        if(play == Play.DOUBLE_DOWN && count != 2)
+            return Play.HIT;
+        
+        if(play == null)
+            return value < 17 ? Play.HIT : Play.STAY;
+        
+        return play;
+    }
+    
+    /**
+     * Gets the index of a cell in the table.
+     * @param kind Hard, soft or pair
+     * @param total Total or the card value of a pair
+     * @param count Card count
+     * @param up Dealer's up-card value, ace is one
+     * @return Index
+     */
+    public static int index(int kind, int total, int count, int up) {
+        return ((kind * TOTALS + total) * COUNTS + Math.min(count, 4) - 2) * UPCARDS + up;
+    }
+    
+    /**
+     * Gets the chart code of a play.
+     * @param play Play or null for no play
+     * @return Code
+     */
+    public static byte code(Play play) {
+        for(byte k=1; k < PLAYS.length; k++)
+            if(PLAYS[k] == play)
+                return k;
+        
+        return 0;
+    }
+    
+    /**
+     * Gets the play of a cell.
+     * @param table Table
+     * @param index Index
+     * @return Play or null if the cell isn't charted
+     */
+    public static Play play(byte[] table, int index) {
+        return PLAYS[table[index]];
+    }
+    
+    /**
+     * Tests if a row has any plays.
+     * @param table Table
+     * @param kind Hard, soft or pair
+     * @param total Total or the card value of a pair
+     * @param count Card count
+     * @return True if the row has a play, false otherwise
+     */
+    protected static boolean isCharted(byte[] table, int kind, int total, int count) {
+        for(int up=Card.ACE; up <= 10; up++)
+            if(table[index(kind, total, count, up)] != 0)
+                return true;
+        
+        return false;
+    }
+    
+    /**
+     * Loads the chart next to this class.
+     * @return Table, empty if there is no chart
+     */
+    protected static byte[] load() {
+        try(InputStream in = BasicStrategyAdvisor.class.getResourceAsStream(CHART)) {
+            if(in == null) {
+                LOG.error("no strategy chart "+CHART+": using the dealer's rule");
+                return new byte[SIZE];
+            }
+            
+            return read(in);
+        }
+        catch(IOException | RuntimeException ex) {
+            LOG.error("bad strategy chart "+CHART+": "+ex);
+        }
+        
+        return new byte[SIZE];
+    }
+    
+    /**
+     * Reads a chart.
+     * <p>
+     * Each line is a kind, a total, a card count (ignored for pairs) and a
+     * code per up-card from 2 to A, where S, H, D and P are stay, hit,
+     * double down and split. Blank lines and lines starting with # are
+     * ignored.
+     * @param in Input
+     * @return Table
+     * @throws IOException If the input fails
+     */
+    public static byte[] read(InputStream in) throws IOException {
+        byte[] table = new byte[SIZE];
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        
+        String line;
+        while((line = reader.readLine()) != null) {
+            line = line.trim();
+            
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+            
+            String[] fields = line.split("\\s+");
+            
+            if(fields.length != 13)
+                throw new IOException("bad chart line: "+line);
+            
+            int kind = Arrays.asList(KIND_NAMES).indexOf(fields[0]);
+            int total = Integer.parseInt(fields[1]);
+            int count = kind == PAIR ? 2 : Integer.parseInt(fields[2]);
+            
+            if(kind < 0 || total < 1 || total >= TOTALS || count < 2 || count > 4)
+                throw new IOException("bad chart line: "+line);
+            
+            for(int k=0; k < 10; k++) {
+                int code = CODES.indexOf(fields[3 + k]);
+                
+                if(code < 0 || fields[3 + k].length() != 1)
+                    throw new IOException("bad chart line: "+line);
+                
+                table[index(kind, total, count, k == 9 ? Card.ACE : k + 2)] = (byte) code;
+            }
+        }
+        
+        return table;
+    }
+    
+    /**
+     * Writes a chart.
+     * @param table Table
+     * @param out Output
+     */
+    public static void write(byte[] table, PrintStream out) {
+        out.println("#kind total cards   2  3  4  5  6  7  8  9 10  A");
+        
+        for(int kind=HARD; kind <= PAIR; kind++) {
+            for(int count=2; count <= 4; count++) {
+                if(kind == PAIR && count != 2)
+                    continue;
+                
+                for(int total=1; total < TOTALS; total++) {
+                    if(kind == PAIR ? total > 10 : !isCharted(table, kind, total, count))
+                        continue;
+                    
+                    StringBuilder line = new StringBuilder(String.format("%-4s %5d %5s", KIND_NAMES[kind], total, kind == PAIR ? "-" : "" + count));
+                    
+                    for(int k=0; k < 10; k++)
+                        line.append("  ").append(CODES.charAt(table[index(kind, total, count, k == 9 ? Card.ACE : k + 2)]));
+                    
+                    out.println(line);
+                }
+                
+                out.println();
+            }
+        }
+    }
+}
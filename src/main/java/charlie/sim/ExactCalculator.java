@@ -0,0 +1,574 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import charlie.util.Play;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class calculates the exact expected value of each play for a hand,
+ * an up-card and what's left in the shoe, by the rules Dealer enforces:
+ * <ul>
+ * <li>blackjack pays 3:2 and so does A+10 on a split hand's first hit,</li>
+ * <li>a 5-card Charlie pays 2:1 and ends the hand,</li>
+ * <li>21 ends the hand,</li>
+ * <li>double down on any two cards, including split hands, for one card,</li>
+ * <li>split once, each hand drawing its second card and playing on,</li>
+ * <li>the dealer draws to 17 and stands on all 17s.</li>
+ * </ul>
+ * Nobody plays against a dealer blackjack, so values are given the dealer
+ * doesn't have one and the hole card is drawn accordingly. As usual, both
+ * hands of a split are valued from the shoe after the split.
+ * <p>
+ * The shoe is a count of cards by value, ace is 1, of what the player
+ * hasn't seen, ie, without the hand and up-card. The recursion draws from
+ * and puts back into it in place, memoizing what the dealer and player make
+ * from each composition. The memo is keyed on the composition, so queries
+ * which come back to a composition, as they do within a shoe, are lookups.
+ * <p>
+ * Values are per unit of the initial bet. An instance isn't thread-safe.
+ * @author Ron Coleman
+ */
+public class ExactCalculator {
+    public final static int MAX_NODES = 1 << 18;
+    
+    protected final static double BLACKJACK_PAYS = 3 / 2.;
+    protected final static double CHARLIE_PAYS = 2 / 1.;
+    
+    /** Dealer outcomes: 17 to 21 then bust */
+    protected final static int OUTCOMES = 6;
+    protected final static int BUST = OUTCOMES - 1;
+    protected final static double[][] FINAL = new double[OUTCOMES][OUTCOMES];
+    
+    /** Player states: hard total, ace and card count */
+    protected final static int STATES = 22 * 2 * 6;
+    
+    /** Plays other than stay in order of preference on ties */
+    protected final static Play[] PLAYS = { Play.HIT, Play.DOUBLE_DOWN, Play.SPLIT };
+    
+    /** Bits per value in the composition key, the last for tens */
+    protected final static int BITS = 6;
+    protected final static int TEN_BITS = 64 - 9 * BITS;
+    
+    static {
+        for(int k=0; k < OUTCOMES; k++)
+            FINAL[k][k] = 1;
+    }
+    
+    protected final HashMap<Long,Node> nodes = new HashMap<>();
+    protected final int[] shoe = new int[11];
+    protected int size;
+    protected long key;
+    
+    /**
+     * Constructor
+     * @param decks Number of decks in the shoe
+     */
+    public ExactCalculator(int decks) {
+        reset(decks);
+    }
+    
+    /**
+     * Fills the shoe with decks.
+     * @param decks Number of decks
+     */
+    public final void reset(int decks) {
+        int[] counts = new int[11];
+        
+        for(int value=Card.ACE; value < 10; value++)
+            counts[value] = 4 * decks;
+        
+        counts[10] = 16 * decks;
+        
+        setShoe(counts);
+    }
+    
+    /**
+     * Sets the shoe.
+     * @param counts Count of cards by value, ace is 1
+     */
+    public void setShoe(int[] counts) {
+        if(counts.length != 11)
+            throw new IllegalArgumentException("counts must be by value from 1 to 10");
+        
+        for(int value=Card.ACE; value <= 10; value++)
+            if(counts[value] < 0 || counts[value] >= 1 << (value == 10 ? TEN_BITS : BITS))
+                throw new IllegalArgumentException("bad count of "+value+"s = "+counts[value]);
+        
+        size = 0;
+        key = 0;
+        
+        for(int value=Card.ACE; value <= 10; value++) {
+            shoe[value] = counts[value];
+            size += counts[value];
+            key += (long) counts[value] << shift(value);
+        }
+    }
+    
+    /**
+     * Gets the shoe.
+     * @return Count of cards by value, ace is 1
+     */
+    public int[] getShoe() {
+        return shoe.clone();
+    }
+    
+    /**
+     * Takes a card the player has seen out of the shoe.
+     * @param card Card
+     */
+    public void remove(Card card) {
+        draw(Cards.value(Cards.code(card)));
+    }
+    
+    /**
+     * Puts a card back into the shoe.
+     * @param card Card
+     */
+    public void add(Card card) {
+        int value = Cards.value(Cards.code(card));
+        
+        if(shoe[value] + 1 >= 1 << (value == 10 ? TEN_BITS : BITS))
+            throw new IllegalArgumentException("too many "+value+"s");
+        
+        undraw(value);
+    }
+    
+    /**
+     * Gets the number of compositions memoized.
+     * @return Number of compositions
+     */
+    public int getCacheSize() {
+        return nodes.size();
+    }
+    
+    /**
+     * Clears the memo.
+     */
+    public void clear() {
+        nodes.clear();
+    }
+    
+    /**
+     * Gets the expected value of a play.
+     * @param play Play
+     * @param hand Player's hand
+     * @param upCard Dealer's up-card
+     * @return Expected value or NaN if the play isn't allowed
+     */
+    public double getEv(Play play, Hand hand, Card upCard) {
+        int state = hand.getState();
+        int up = Cards.value(Cards.code(upCard));
+        
+        int value = HandState.getValue(state);
+        boolean ace = HandState.isSoft(state);
+        int hard = ace ? value - 10 : value;
+        int count = HandState.getCount(state);
+        
+        // Hands which are done settle as they are
+        if(HandState.isDone(state)) {
+            if(play != Play.STAY)
+                return Double.NaN;
+            
+            if(HandState.isBroke(state))
+                return -1;
+            
+            if(HandState.isBlackjack(state))
+                return BLACKJACK_PAYS;
+            
+            if(HandState.isCharlie(state))
+                return CHARLIE_PAYS;
+            
+            return stand(value, up);
+        }
+        
+        switch(play) {
+            case STAY:
+                return stand(value, up);
+                
+            case HIT:
+                return hit(hard, ace, count, false, up);
+                
+            case DOUBLE_DOWN:
+                return count == 2 ? doubleDown(hard, ace, up) : Double.NaN;
+                
+            case SPLIT:
+                Hid hid = hand.getHid();
+                
+                if(!HandState.isPair(state) || hid != null && hid.isSplit())
+                    return Double.NaN;
+                
+                return split(Math.min(HandState.getPairRank(state), 10), up);
+                
+            default:
+                return Double.NaN;
+        }
+    }
+    
+    /**
+     * Gets the play with the most expected value.
+     * @param hand Player's hand
+     * @param upCard Dealer's up-card
+     * @return Play, stay on ties
+     */
+    public Play getBest(Hand hand, Card upCard) {
+        Play best = Play.STAY;
+        double most = getEv(Play.STAY, hand, upCard);
+        
+        if(HandState.isDone(hand.getState()))
+            return best;
+        
+        for(Play play: PLAYS) {
+            double ev = getEv(play, hand, upCard);
+            
+            if(ev > most) {
+                most = ev;
+                best = play;
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Gets the value of standing.
+     * @param value Player's value
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double stand(int value, int up) {
+        double[] dealer = start(up);
+        
+        double ev = dealer[BUST];
+        
+        for(int k=0; k < BUST; k++) {
+            int total = 17 + k;
+            
+            if(value > total)
+                ev += dealer[k];
+            else if(value < total)
+                ev -= dealer[k];
+        }
+        
+        return ev;
+    }
+    
+    /**
+     * Gets the value of hitting, then playing on as well as possible.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param count Card count
+     * @param split True if the hand was split
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double hit(int hard, boolean ace, int count, boolean split, int up) {
+        check();
+        
+        double ev = 0;
+        
+        for(int value=Card.ACE; value <= 10; value++) {
+            if(shoe[value] == 0)
+                continue;
+            
+            double p = shoe[value] / (double) size;
+            
+            draw(value);
+            ev += p * after(hard + value, ace || value == Card.ACE, count + 1, split, up);
+            undraw(value);
+        }
+        
+        return ev;
+    }
+    
+    /**
+     * Gets the value of a hand which just got a card.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param count Card count
+     * @param split True if the hand was split
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double after(int hard, boolean ace, int count, boolean split, int up) {
+        if(hard > 21)
+            return -1;
+        
+        // Dealer tests for a Charlie first
+        if(count == 5)
+            return CHARLIE_PAYS;
+        
+        int value = value(hard, ace);
+        
+        if(split && count == 2 && value == 21)
+            return BLACKJACK_PAYS;
+        
+        if(value == 21)
+            return stand(value, up);
+        
+        // Split hand gets its second card and may double
+        if(split && count == 2)
+            return Math.max(Math.max(stand(value, up), hit(hard, ace, count, false, up)), doubleDown(hard, ace, up));
+        
+        return best(hard, ace, count, up);
+    }
+    
+    /**
+     * Gets the value of the better of staying and hitting.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param count Card count
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double best(int hard, boolean ace, int count, int up) {
+        Node node = node();
+        
+        if(node.best[up] == null) {
+            node.best[up] = new double[STATES];
+            Arrays.fill(node.best[up], Double.NaN);
+        }
+        
+        int index = (hard * 2 + (ace ? 1 : 0)) * 6 + count;
+        
+        double ev = node.best[up][index];
+        
+        if(Double.isNaN(ev)) {
+            ev = Math.max(stand(value(hard, ace), up), hit(hard, ace, count, false, up));
+            node.best[up][index] = ev;
+        }
+        
+        return ev;
+    }
+    
+    /**
+     * Gets the value of doubling down.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double doubleDown(int hard, boolean ace, int up) {
+        check();
+        
+        double ev = 0;
+        
+        for(int value=Card.ACE; value <= 10; value++) {
+            if(shoe[value] == 0)
+                continue;
+            
+            double p = shoe[value] / (double) size;
+            
+            draw(value);
+            ev += p * (hard + value > 21 ? -1 : stand(value(hard + value, ace || value == Card.ACE), up));
+            undraw(value);
+        }
+        
+        return 2 * ev;
+    }
+    
+    /**
+     * Gets the value of splitting.
+     * @param pair Value of the pair
+     * @param up Up-card value
+     * @return Expected value
+     */
+    protected double split(int pair, int up) {
+        return 2 * hit(pair, pair == Card.ACE, 1, true, up);
+    }
+    
+    /**
+     * Gets the dealer's outcomes once the hole card is drawn.
+     * @param up Up-card value
+     * @return Probabilities of 17 to 21 and bust
+     */
+    protected double[] start(int up) {
+        Node node = node();
+        
+        double[] outcomes = node.start[up];
+        
+        if(outcomes != null)
+            return outcomes;
+        
+        // Hole card can't make a blackjack
+        int blackjack = up == Card.ACE ? 10 : up == 10 ? Card.ACE : 0;
+        double total = size - (blackjack == 0 ? 0 : shoe[blackjack]);
+        
+        if(total == 0)
+            throw new IllegalStateException("shoe ran out");
+        
+        outcomes = new double[OUTCOMES];
+        
+        for(int value=Card.ACE; value <= 10; value++) {
+            if(shoe[value] == 0 || value == blackjack)
+                continue;
+            
+            double p = shoe[value] / total;
+            
+            draw(value);
+            add(outcomes, p, dealer(up + value, up == Card.ACE || value == Card.ACE));
+            undraw(value);
+        }
+        
+        node.start[up] = outcomes;
+        
+        return outcomes;
+    }
+    
+    /**
+     * Gets the dealer's outcomes from a hand.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @return Probabilities of 17 to 21 and bust
+     */
+    protected double[] dealer(int hard, boolean ace) {
+        int value = value(hard, ace);
+        
+        // Stands on all 17s
+        if(value >= 17)
+            return FINAL[value > 21 ? BUST : value - 17];
+        
+        Node node = node();
+        
+        int index = hard * 2 + (ace ? 1 : 0);
+        
+        double[] outcomes = node.dealer[index];
+        
+        if(outcomes != null)
+            return outcomes;
+        
+        check();
+        
+        outcomes = new double[OUTCOMES];
+        
+        for(int card=Card.ACE; card <= 10; card++) {
+            if(shoe[card] == 0)
+                continue;
+            
+            double p = shoe[card] / (double) size;
+            
+            draw(card);
+            add(outcomes, p, dealer(hard + card, ace || card == Card.ACE));
+            undraw(card);
+        }
+        
+        node.dealer[index] = outcomes;
+        
+        return outcomes;
+    }
+    
+    /**
+     * Adds weighted outcomes.
+     * @param outcomes Sum
+     * @param p Weight
+     * @param more Outcomes to add
+     */
+    protected static void add(double[] outcomes, double p, double[] more) {
+        for(int k=0; k < OUTCOMES; k++)
+            outcomes[k] += p * more[k];
+    }
+    
+    /**
+     * Gets the best value of a hand.
+     * @param hard Hard total
+     * @param ace True if there's an ace
+     * @return Value
+     */
+    protected static int value(int hard, boolean ace) {
+        return ace && hard + 10 <= 21 ? hard + 10 : hard;
+    }
+    
+    /**
+     * Gets the memo of the current composition.
+     * @return Node
+     */
+    protected Node node() {
+        Node node = nodes.get(key);
+        
+        if(node == null) {
+            // Memo of an earlier shoe is as good as any to lose
+            if(nodes.size() >= MAX_NODES)
+                nodes.clear();
+            
+            node = new Node();
+            nodes.put(key, node);
+        }
+        
+        return node;
+    }
+    
+    /**
+     * Checks there's a card to draw.
+     */
+    protected void check() {
+        if(size == 0)
+            throw new IllegalStateException("shoe ran out");
+    }
+    
+    /**
+     * Draws a card.
+     * @param value Value
+     */
+    protected void draw(int value) {
+        if(shoe[value] == 0)
+            throw new IllegalStateException("no "+value+"s left");
+        
+        shoe[value]--;
+        size--;
+        key -= 1L << shift(value);
+    }
+    
+    /**
+     * Puts a card back.
+     * @param value Value
+     */
+    protected void undraw(int value) {
+        shoe[value]++;
+        size++;
+        key += 1L << shift(value);
+    }
+    
+    /**
+     * Gets the position of a value's count in the key.
+     * @param value Value
+     * @return Shift
+     */
+    protected static int shift(int value) {
+        return (value - 1) * BITS;
+    }
+    
+    /**
+     * Memo of a composition.
+     */
+    static class Node {
+        final double[][] start = new double[11][];
+        final double[][] dealer = new double[17 * 2][];
+        final double[][] best = new double[11][];
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hand;
+import charlie.plugin.IAdvisor;
+import charlie.util.Play;
+
+/**
+ * This class implements perfect play, ie, the play with the most exact
+ * expected value for the hand, up-card and shoe.
+ * <p>
+ * The calculator's shoe is the shoe as the player knew it before the round,
+ * so each piece of advice takes the hand and up-card out first and puts them
+ * back after. By default that's a full shoe, which gives composition
+ * dependent strategy off the top. A player tracking the cards played updates
+ * the calculator's shoe between rounds.
+ * <p>
+ * The calculator isn't thread-safe, so advice locks it; a player updating
+ * its shoe from another thread should lock it too.
+ * @author Ron Coleman
+ */
+public class PerfectAdvisor implements IAdvisor {
+    public final static int DECKS = 6;
+    
+    protected final ExactCalculator calculator;
+    
+    /**
+     * Constructor
+     */
+    public PerfectAdvisor() {
+        this(new ExactCalculator(DECKS));
+    }
+    
+    /**
+     * Constructor
+     * @param calculator Calculator
+     */
+    public PerfectAdvisor(ExactCalculator calculator) {
+        this.calculator = calculator;
+    }
+    
+    /**
+     * Gets advice.
+     * @param myHand Player's hand
+     * @param upCard Dealer's up-card
+     * @return Play
+     */
+    @Override
+    public Play advise(Hand myHand, Card upCard) {
+        if(upCard == null)
+            return myHand.getValue() < 17 ? Play.HIT : Play.STAY;
+        
+        int size = myHand.size();
+        
+        synchronized(calculator) {
+            // A shoe short of a card throws: put back only what came out
+            int drawn = 0;
+            boolean up = false;
+            
+            try {
+                for(; drawn < size; drawn++)
+                    calculator.draw(Cards.value(myHand.getCode(drawn)));
+                
+                calculator.remove(upCard);
+                up = true;
+                
+                return calculator.getBest(myHand, upCard);
+            }
+            finally {
+                if(up)
+                    calculator.add(upCard);
+                
+                for(int k=0; k < drawn; k++)
+                    calculator.undraw(Cards.value(myHand.getCode(k)));
+            }
+        }
+    }
+    
+    /**
+     * Gets the calculator.
+     * @return Calculator
+     */
+    public ExactCalculator getCalculator() {
+        return calculator;
+    }
+}
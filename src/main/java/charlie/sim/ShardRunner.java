@@ -0,0 +1,114 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * This class runs a simulation as shards on a fork-join pool.
+ * <p>
+ * A shard is a table with its own shoe seeded from the master seed, so a
+ * shard plays the same cards however the work is scheduled. The range of
+ * shards is split in halves down to single shards and statistics merge back
+ * up the same tree, so a run replays exactly from its master seed on any
+ * number of threads.
+ * @author Ron Coleman
+ */
+public class ShardRunner extends RecursiveTask<Stats> {
+    protected final LongFunction<Simulator> tables;
+    protected final long[] seeds;
+    protected final long[] rounds;
+    protected final int lo;
+    protected final int hi;
+    
+    /**
+     * Constructor
+     * @param tables Creates a table from a seed
+     * @param seed Master seed
+     * @param totalRounds Rounds over all shards
+     * @param shardRounds Rounds per shard
+     */
+    public ShardRunner(LongFunction<Simulator> tables, long seed, long totalRounds, long shardRounds) {
+        this.tables = tables;
+        
+        int n = (int) Math.max(1, (totalRounds + shardRounds - 1) / shardRounds);
+        
+        this.seeds = new long[n];
+        this.rounds = new long[n];
+        
+        SplittableRandom master = new SplittableRandom(seed);
+        
+        for(int k=0; k < n; k++) {
+            seeds[k] = master.split().nextLong();
+            rounds[k] = Math.min(shardRounds, totalRounds - k * shardRounds);
+        }
+        
+        this.lo = 0;
+        this.hi = n;
+    }
+    
+    /**
+     * Constructor for a sub-range of shards.
+     * @param parent Runner being split
+     * @param lo First shard
+     * @param hi Shard after the last
+     */
+    protected ShardRunner(ShardRunner parent, int lo, int hi) {
+        this.tables = parent.tables;
+        this.seeds = parent.seeds;
+        this.rounds = parent.rounds;
+        this.lo = lo;
+        this.hi = hi;
+    }
+    
+    /**
+     * Runs the shards.
+     * @return Merged statistics
+     */
+    @Override
+    protected Stats compute() {
+        if(hi - lo == 1)
+            return tables.apply(seeds[lo]).run(rounds[lo]);
+        
+        int mid = (lo + hi) >>> 1;
+        
+        ShardRunner left = new ShardRunner(this, lo, mid);
+        ShardRunner right = new ShardRunner(this, mid, hi);
+        
+        right.fork();
+        
+        Stats stats = left.compute();
+        
+        return stats.merge(right.join());
+    }
+    
+    /**
+     * Gets the number of shards.
+     * @return Shards
+     */
+    public int getShards() {
+        return hi - lo;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IPlayer;
+import charlie.sim.Stats.Outcome;
+import charlie.util.Play;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements a stand-in for a real player which plays the
+ * dealer in-process on the advice of an advisor.
+ * <p>
+ * The dealer calls the player back synchronously, so acting on a turn from
+ * inside play() would nest deeper with every hand. Instead, play() only
+ * notes the turn and round() acts on it once the dealer returns, ie, a
+ * trampoline. Bots, if any are configured, must also play synchronously.
+ * @author Ron Coleman
+ */
+public class SimPlayer implements IPlayer {
+    private final Logger LOG = Logger.getLogger(SimPlayer.class);
+    protected final IAdvisor advisor;
+    protected final Stats stats;
+    protected Dealer dealer;
+    protected final HashMap<Hid,Hand> hands = new HashMap<>();
+    protected Card upCard;
+    protected Hid pending;
+    protected boolean gameOver;
+    protected double pl;
+    protected double sidePl;
+    
+    /**
+     * Constructor
+     * @param advisor Advisor
+     * @param stats Statistics to which outcomes are added
+     */
+    public SimPlayer(IAdvisor advisor, Stats stats) {
+        this.advisor = advisor;
+        this.stats = stats;
+    }
+    
+    /**
+     * Sets the dealer.
+     * @param dealer Dealer
+     */
+    public void setDealer(Dealer dealer) {
+        this.dealer = dealer;
+    }
+    
+    /**
+     * Plays a round from bet to the end of the game.
+     * @param hid Hand id with the bet
+     */
+    public void round(Hid hid) {
+        hands.clear();
+        upCard = null;
+        pending = null;
+        gameOver = false;
+        pl = sidePl = 0;
+        
+        hands.put(hid, new Hand(hid));
+        
+        dealer.bet(this, hid);
+        
+        while(pending != null) {
+            Hid turn = pending;
+            pending = null;
+            
+            Play play = act(turn);
+            
+            // Dealer only moves on after a hit if the hand is finished
+            if((play == Play.HIT || play == Play.SPLIT) && pending == null && !gameOver && !isDone(hands.get(turn)))
+                pending = turn;
+        }
+        
+        if(!gameOver)
+            LOG.error("round ended without game over");
+        
+        stats.record(pl, sidePl);
+    }
+    
+    /**
+     * Makes a play on the advisor's advice.
+     * @param hid Hand id
+     * @return Play made
+     */
+    protected Play act(Hid hid) {
+        Hand hand = hands.get(hid);
+        
+        Play play = advisor.advise(hand, upCard);
+        
+        // Plays the table doesn't allow revert to the dealer's rule
+        if(play == Play.SPLIT && (!hand.isPair() || hid.isSplit()) ||
+                play == Play.DOUBLE_DOWN && hand.size() != 2 ||
+                play == null || play == Play.NONE)
+            play = hand.getValue() < 17 ? Play.HIT : Play.STAY;
+        
+        switch(play) {
+            case HIT:
+                dealer.hit(this, hid);
+                break;
+            case DOUBLE_DOWN:
+                dealer.doubleDown(this, hid);
+                break;
+            case SPLIT:
+                dealer.split(this, hid);
+                break;
+            default:
+                dealer.stay(this, hid);
+        }
+        
+        return play;
+    }
+    
+    /**
+     * Tests if a hand can no longer be played.
+     * @param hand Hand
+     * @return True if done, false otherwise
+     */
+    protected boolean isDone(Hand hand) {
+        return HandState.isDone(hand.getState());
+    }
+    
+    /**
+     * Counts an outcome if the hand is mine.
+     * @param hid Hand id
+     * @param outcome Outcome
+     */
+    protected void settle(Hid hid, Outcome outcome) {
+        if(!hands.containsKey(hid))
+            return;
+        
+        stats.count(outcome);
+        
+        // Same accounting as the house
+        pl += hid.getAmt();
+        sidePl += hid.getSideAmt();
+    }
+
+    @Override
+    public void startGame(List<Hid> hids, int shoeSize) {
+        
+    }
+
+    @Override
+    public void endGame(int shoeSize) {
+        gameOver = true;
+    }
+
+    @Override
+    public void deal(Hid hid, Card card, int[] values) {
+        if(card == null)
+            return;
+        
+        Hand hand = hands.get(hid);
+        
+        if(hand != null)
+            hand.hit(card);
+        
+        else if(hid.getSeat() == Seat.DEALER && upCard == null && !(card instanceof HoleCard))
+            upCard = card;
+    }
+
+    @Override
+    public void insure() {
+        
+    }
+
+    @Override
+    public void bust(Hid hid) {
+        settle(hid, Outcome.BUST);
+    }
+
+    @Override
+    public void win(Hid hid) {
+        settle(hid, Outcome.WIN);
+    }
+
+    @Override
+    public void blackjack(Hid hid) {
+        settle(hid, Outcome.BLACKJACK);
+    }
+
+    @Override
+    public void charlie(Hid hid) {
+        settle(hid, Outcome.CHARLIE);
+    }
+
+    @Override
+    public void lose(Hid hid) {
+        settle(hid, Outcome.LOSE);
+    }
+
+    @Override
+    public void push(Hid hid) {
+        settle(hid, Outcome.PUSH);
+    }
+
+    @Override
+    public void shuffling() {
+        
+    }
+
+    @Override
+    public void play(Hid hid) {
+        if(hands.containsKey(hid))
+            pending = hid;
+    }
+
+    @Override
+    public void split(Hid newHid, Hid origHid) {
+        hands.put(newHid, hands.get(origHid).split(newHid));
+    }
+}
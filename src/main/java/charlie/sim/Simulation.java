@@ -0,0 +1,164 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IShoe;
+import charlie.shoe.Shoe;
+import charlie.shoe.ShoeFactory;
+import charlie.util.Constant;
+import charlie.util.Helper;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs a Monte Carlo simulation across all cores as seeded shards
+ * and merges the statistics. The same master seed gives the same results
+ * regardless of the number of threads, provided the shoe is a Shoe which
+ * doesn't pick its own generator.
+ * <p>
+ * It uses the same plugin properties as the server, ie, "charlie.advisor",
+ * "charlie.shoe" and "charlie.sidebet.rule", plus
+ * "charlie.sim.rounds", "charlie.sim.threads", "charlie.sim.seed",
+ * "charlie.sim.shard", "charlie.sim.bet" and "charlie.sim.sidebet".
+ * @author Ron Coleman
+ */
+public class Simulation {
+    private final static Logger LOG = Logger.getLogger(Simulation.class);
+    public final static String DEFAULT_SHOE = "charlie.shoe.PackedShoe";
+    public final static long SHARD_ROUNDS = 100000;
+    
+    protected final String advisorName;
+    protected final String shoeName;
+    protected final double bet;
+    protected final double sideBet;
+    protected long shardRounds = SHARD_ROUNDS;
+    
+    /**
+     * Constructor
+     * @param advisorName Advisor class name or null for the dealer's rule
+     * @param shoeName Shoe class name
+     * @param bet Main bet per round
+     * @param sideBet Side bet per round
+     */
+    public Simulation(String advisorName, String shoeName, double bet, double sideBet) {
+        this.advisorName = advisorName;
+        this.shoeName = shoeName;
+        this.bet = bet;
+        this.sideBet = sideBet;
+    }
+    
+    /**
+     * Sets the number of rounds per shard.
+     * @param shardRounds Rounds
+     */
+    public void setShardRounds(long shardRounds) {
+        this.shardRounds = shardRounds;
+    }
+    
+    /**
+     * Runs the simulation.
+     * @param rounds Total number of rounds
+     * @param threads Number of threads
+     * @param seed Master seed
+     * @return Statistics
+     */
+    public Stats run(long rounds, int threads, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        
+        try {
+            return pool.invoke(new ShardRunner(this::newSimulator, seed, rounds, shardRounds));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Creates a table.
+     * @param seed Seed of the table's shoe
+     * @return Simulator
+     */
+    protected Simulator newSimulator(long seed) {
+        IShoe shoe = ShoeFactory.getInstance(shoeName);
+        
+        if(shoe instanceof Shoe)
+            ((Shoe) shoe).seed(seed);
+        else
+            LOG.warn("shoe "+shoeName+" can't be seeded: run won't replay");
+        
+        return new Simulator(newAdvisor(), shoe, bet, sideBet);
+    }
+    
+    /**
+     * Creates an advisor.
+     * @return Advisor, the dealer's rule if none configured or it fails to load
+     */
+    protected IAdvisor newAdvisor() {
+        if(advisorName == null)
+            return new DealerAdvisor();
+        
+        try {
+            Class<?> clazz = Class.forName(advisorName);
+            
+            return (IAdvisor) clazz.getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | ClassCastException ex) {
+            LOG.error("advisor failed to load: "+ex);
+        }
+        
+        return new DealerAdvisor();
+    }
+    
+    /**
+     * Runs a simulation configured by properties.
+     * @param args Command line arguments, not used
+     * @throws Exception If the simulation fails
+     */
+    public static void main(String[] args) throws Exception {
+        // Per card logging would dominate the run
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        long rounds = Long.parseLong(Helper.getPropertyOrElse("charlie.sim.rounds", "1000000"));
+        int threads = Helper.getPropertyOrElse("charlie.sim.threads", Runtime.getRuntime().availableProcessors());
+        double bet = Double.parseDouble(Helper.getPropertyOrElse("charlie.sim.bet", "" + Constant.MIN_BET));
+        double sideBet = Double.parseDouble(Helper.getPropertyOrElse("charlie.sim.sidebet", "0"));
+        long seed = Long.parseLong(Helper.getPropertyOrElse("charlie.sim.seed", "" + System.nanoTime()));
+        
+        Simulation sim = new Simulation(System.getProperty(Constant.PLUGIN_ADVISOR),
+                Helper.getPropertyOrElse(Constant.PLUGIN_SHOE, DEFAULT_SHOE), bet, sideBet);
+        
+        sim.setShardRounds(Long.parseLong(Helper.getPropertyOrElse("charlie.sim.shard", "" + SHARD_ROUNDS)));
+        
+        long start = System.nanoTime();
+        
+        Stats stats = sim.run(rounds, threads, seed);
+        
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        
+        System.out.println("seed = " + seed);
+        System.out.print(stats);
+        System.out.println(String.format("elapsed = %.1f s (%d rounds/s on %d threads)", elapsed, (long) (rounds / elapsed), threads));
+    }
+}
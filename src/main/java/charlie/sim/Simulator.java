@@ -0,0 +1,82 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Hid;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.dealer.ZeroPacer;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IShoe;
+
+/**
+ * This class implements a single table simulation, ie, the real dealer
+ * playing a stand-in player with no sockets and no pacing.
+ * An instance runs on one thread.
+ * @author Ron Coleman
+ */
+public class Simulator {
+    protected final Dealer dealer;
+    protected final SimPlayer player;
+    protected final Stats stats;
+    protected final double bet;
+    protected final double sideBet;
+    
+    /**
+     * Constructor
+     * @param advisor Player's advisor
+     * @param shoe Shoe
+     * @param bet Main bet per round
+     * @param sideBet Side bet per round
+     */
+    public Simulator(IAdvisor advisor, IShoe shoe, double bet, double sideBet) {
+        this.bet = bet;
+        this.sideBet = sideBet;
+        this.stats = new Stats(bet);
+        
+        dealer = new Dealer(null, shoe, new ZeroPacer());
+        
+        player = new SimPlayer(advisor, stats);
+        player.setDealer(dealer);
+    }
+    
+    /**
+     * Plays rounds.
+     * @param rounds Number of rounds
+     * @return Statistics of all rounds played so far
+     */
+    public Stats run(long rounds) {
+        for(long n=0; n < rounds; n++)
+            player.round(new Hid(Seat.YOU, bet, sideBet));
+        
+        return stats;
+    }
+    
+    /**
+     * Gets the statistics.
+     * @return Statistics
+     */
+    public Stats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import java.io.Serializable;
+
+/**
+ * This class implements the statistics of a simulation.
+ * Rounds, ie, everything a player wins or loses from one initial bet including
+ * splits, are the samples for the mean and variance. Outcomes are counted by
+ * hand. Two sets of statistics merge into one as if a single simulation had
+ * played both, so runs can be split up and put back together.
+ * @author Ron Coleman
+ */
+public class Stats implements Serializable {
+    /** Outcomes of a hand */
+    public enum Outcome { BLACKJACK, CHARLIE, BUST, WIN, LOSE, PUSH };
+    
+    protected final double bet;
+    protected long rounds = 0;
+    protected long hands = 0;
+    protected final long[] outcomes = new long[Outcome.values().length];
+    
+    // Running mean and sum of squared deviations of round P&L (Welford)
+    protected double mean = 0;
+    protected double m2 = 0;
+    
+    protected double sideTotal = 0;
+    
+    /**
+     * Constructor
+     * @param bet Initial bet of every round
+     */
+    public Stats(double bet) {
+        this.bet = bet;
+    }
+    
+    /**
+     * Counts the outcome of a hand.
+     * @param outcome Outcome
+     */
+    public void count(Outcome outcome) {
+        outcomes[outcome.ordinal()]++;
+        hands++;
+    }
+    
+    /**
+     * Records a completed round.
+     * @param pl Main bet P&amp;L of the round
+     * @param sidePl Side bet P&amp;L of the round
+     */
+    public void record(double pl, double sidePl) {
+        rounds++;
+        
+        double delta = pl - mean;
+        mean += delta / rounds;
+        m2 += delta * (pl - mean);
+        
+        sideTotal += sidePl;
+    }
+    
+    /**
+     * Merges other statistics into these.
+     * @param other Statistics
+     * @return These statistics
+     */
+    public Stats merge(Stats other) {
+        long n = rounds + other.rounds;
+        
+        if(n > 0) {
+            double delta = other.mean - mean;
+
+            mean += delta * other.rounds / n;
+            m2 += other.m2 + delta * delta * ((double) rounds * other.rounds / n);
+        }
+        
+        rounds = n;
+        hands += other.hands;
+        
+        for(int k=0; k < outcomes.length; k++)
+            outcomes[k] += other.outcomes[k];
+        
+        sideTotal += other.sideTotal;
+        
+        return this;
+    }
+    
+    /**
+     * Gets the number of rounds.
+     * @return Rounds
+     */
+    public long getRounds() {
+        return rounds;
+    }
+    
+    /**
+     * Gets the number of hands, including split hands.
+     * @return Hands
+     */
+    public long getHands() {
+        return hands;
+    }
+    
+    /**
+     * Gets the number of hands with an outcome.
+     * @param outcome Outcome
+     * @return Count
+     */
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+    
+    /**
+     * Gets the frequency of an outcome per hand.
+     * @param outcome Outcome
+     * @return Frequency
+     */
+    public double getFrequency(Outcome outcome) {
+        return hands == 0 ? 0 : (double) getCount(outcome) / hands;
+    }
+    
+    /**
+     * Gets the mean P&amp;L per round.
+     * @return Mean
+     */
+    public double getMean() {
+        return mean;
+    }
+    
+    /**
+     * Gets the variance of the P&amp;L per round.
+     * @return Variance
+     */
+    public double getVariance() {
+        return rounds < 2 ? 0 : m2 / (rounds - 1);
+    }
+    
+    /**
+     * Gets the house edge, ie, what the house expects to win per unit of
+     * initial bet.
+     * @return House edge
+     */
+    public double getHouseEdge() {
+        return -mean / bet;
+    }
+    
+    /**
+     * Gets the standard error of the house edge.
+     * @return Standard error
+     */
+    public double getStdError() {
+        return rounds == 0 ? 0 : Math.sqrt(getVariance() / rounds) / bet;
+    }
+    
+    /**
+     * Gets the mean side bet P&amp;L per round.
+     * @return Mean
+     */
+    public double getSideMean() {
+        return rounds == 0 ? 0 : sideTotal / rounds;
+    }
+    
+    /**
+     * Converts the statistics to a report.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        
+        s.append(String.format("rounds = %d hands = %d%n", rounds, hands));
+        s.append(String.format("house edge = %.4f%% +/- %.4f%%%n", getHouseEdge() * 100, getStdError() * 100));
+        s.append(String.format("variance = %.4f (per unit bet)%n", getVariance() / (bet * bet)));
+        s.append(String.format("side bet mean = %.4f%n", getSideMean()));
+        
+        for(Outcome outcome: Outcome.values())
+            s.append(String.format("%-9s = %.4f%%%n", outcome.toString().toLowerCase(), getFrequency(outcome) * 100));
+        
+        return s.toString();
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.sim;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hand;
+import charlie.plugin.IAdvisor;
+import charlie.plugin.IShoe;
+import charlie.util.Helper;
+import charlie.util.Play;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import static charlie.sim.BasicStrategyAdvisor.HARD;
+import static charlie.sim.BasicStrategyAdvisor.PAIR;
+import static charlie.sim.BasicStrategyAdvisor.SOFT;
+
+/**
+ * This class generates the basic strategy chart for BasicStrategyAdvisor by
+ * simulation, ie, the real dealer decides every outcome, Charlies and all.
+ * <p>
+ * For each cell of the chart it deals a representative hand against the
+ * up-card from an infinite deck, makes each candidate play and follows the
+ * chart from then on, keeping the play which makes the most. Every candidate
+ * sees the same cards round for round so the comparison isn't swamped by
+ * noise. Hands with more cards are charted first since hitting only leads to
+ * them, then pairs last since not splitting plays the hard or soft total.
+ * <p>
+ * The dealer never lets anyone play against a blackjack, so the hole card
+ * never gives the dealer one.
+ * <p>
+ * Usage: StrategyGenerator [chart path], with the rounds per candidate and
+ * the seed in "charlie.sim.rounds" and "charlie.sim.seed".
+ * @author Ron Coleman
+ */
+public class StrategyGenerator {
+    public final static int ROUNDS = 100000;
+    protected final static int HOLE = 0;
+    
+    protected final byte[] table = new byte[BasicStrategyAdvisor.SIZE];
+    protected final int rounds;
+    protected final long seed;
+    
+    /**
+     * Constructor
+     * @param rounds Rounds per candidate play
+     * @param seed Seed
+     */
+    public StrategyGenerator(int rounds, long seed) {
+        this.rounds = rounds;
+        this.seed = seed;
+    }
+    
+    /**
+     * Generates the strategy.
+     * @return Table
+     */
+    public byte[] generate() {
+        for(int count=4; count >= 2; count--) {
+            for(int total=2 * count; total <= 20; total++)
+                chart(HARD, total, count);
+            
+            for(int total=10 + count; total <= 20; total++)
+                chart(SOFT, total, count);
+        }
+        
+        for(int value=1; value <= 10; value++)
+            chart(PAIR, value, 2);
+        
+        return table;
+    }
+    
+    /**
+     * Charts a row, ie, a hand against every up-card.
+     * @param kind Hard, soft or pair
+     * @param total Total or the card value of a pair
+     * @param count Card count
+     */
+    protected void chart(int kind, int total, int count) {
+        int[] cards = hand(kind, total, count);
+        
+        Play[] candidates;
+        if(kind == PAIR)
+            candidates = new Play[] { null, Play.SPLIT };
+        else if(count == 2)
+            candidates = new Play[] { Play.STAY, Play.HIT, Play.DOUBLE_DOWN };
+        else
+            candidates = new Play[] { Play.STAY, Play.HIT };
+        
+        for(int up=Card.ACE; up <= 10; up++) {
+            Play best = null;
+            double most = -Double.MAX_VALUE;
+            
+            for(Play candidate: candidates) {
+                double mean = play(cards, up, candidate);
+                
+                if(mean > most) {
+                    most = mean;
+                    best = candidate;
+                }
+            }
+            
+            // Not splitting is left to the hard or soft row
+            if(best != null)
+                table[BasicStrategyAdvisor.index(kind, total, count, up)] = BasicStrategyAdvisor.code(best);
+        }
+    }
+    
+    /**
+     * Plays rounds of a hand against an up-card.
+     * @param cards Player's cards in the order they're dealt
+     * @param up Up-card
+     * @param first Play once all the cards are dealt or null to follow the chart
+     * @return Mean P&amp;L per round
+     */
+    protected double play(int[] cards, int up, Play first) {
+        // Deal order is player, hole, player, up-card, then player hits
+        int[] prefix = new int[cards.length + 2];
+        prefix[0] = cards[0];
+        prefix[1] = HOLE;
+        prefix[2] = cards[1];
+        prefix[3] = up;
+        System.arraycopy(cards, 2, prefix, 4, cards.length - 2);
+        
+        Rig shoe = new Rig();
+        Script script = new Script(cards.length - 2, first);
+        Simulator sim = new Simulator(script, shoe, 1.0, 0.0);
+        
+        for(int n=0; n < rounds; n++) {
+            shoe.deal(seed + n, prefix);
+            script.calls = 0;
+            
+            sim.run(1);
+        }
+        
+        return sim.getStats().getMean();
+    }
+    
+    /**
+     * Gets a representative hand, ie, without aces where it's hard and
+     * without pairs where it can be avoided.
+     * @param kind Hard, soft or pair
+     * @param total Total or the card value of a pair
+     * @param count Card count
+     * @return Ranks
+     */
+    protected static int[] hand(int kind, int total, int count) {
+        int[] cards = new int[count];
+        
+        if(kind == PAIR) {
+            cards[0] = cards[1] = total;
+            return cards;
+        }
+        
+        // Soft hands are aces plus one card, hard hands deuces plus two
+        int rest = total;
+        int fill = kind == SOFT ? count - 1 : count - 2;
+        
+        for(int k=0; k < fill; k++) {
+            cards[k] = kind == SOFT ? Card.ACE : 2;
+            rest -= kind == SOFT ? (k == 0 ? 11 : 1) : 2;
+        }
+        
+        if(kind == SOFT) {
+            cards[count - 1] = rest;
+        }
+        else {
+            cards[count - 2] = Math.max(2, rest - 10);
+            cards[count - 1] = rest - cards[count - 2];
+        }
+        
+        return cards;
+    }
+    
+    /**
+     * Gets the chart.
+     * @return Table
+     */
+    public byte[] getTable() {
+        return table;
+    }
+    
+    /**
+     * Generates the chart.
+     * @param args Command line arguments, the chart path or none for stdout
+     * @throws Exception If the chart can't be written
+     */
+    public static void main(String[] args) throws Exception {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        
+        int rounds = Integer.parseInt(Helper.getPropertyOrElse("charlie.sim.rounds", "" + ROUNDS));
+        long seed = Long.parseLong(Helper.getPropertyOrElse("charlie.sim.seed", "1"));
+        
+        long start = System.nanoTime();
+        
+        byte[] table = new StrategyGenerator(rounds, seed).generate();
+        
+        PrintStream out = args.length > 0 ? new PrintStream(new FileOutputStream(args[0]), false, "US-ASCII") : System.out;
+        
+        out.println("# Basic strategy for Charlie: blackjack pays 3:2, a 5-card Charlie pays 2:1,");
+        out.println("# the dealer stands on all 17s, one split, double down on any two cards.");
+        out.println("# S = stay, H = hit, D = double down, P = split, - = don't split");
+        out.println("# Generated by charlie.sim.StrategyGenerator, " + rounds + " rounds per play, seed " + seed);
+        out.println();
+        
+        BasicStrategyAdvisor.write(table, out);
+        
+        out.flush();
+        
+        if(out != System.out)
+            out.close();
+        
+        System.err.println(String.format("elapsed = %.1f s", (System.nanoTime() - start) / 1e9));
+    }
+    
+    /**
+     * Infinite deck which deals a hand before going random.
+     */
+    static class Rig implements IShoe {
+        protected final Random ran = new Random();
+        protected int[] prefix = new int[0];
+        protected int k;
+        
+        /**
+         * Sets up the next round.
+         * @param seed Seed of the round
+         * @param prefix Ranks to deal first, HOLE for a random hole card
+         */
+        void deal(long seed, int[] prefix) {
+            ran.setSeed(seed);
+            this.prefix = prefix;
+            this.k = 0;
+        }
+        
+        @Override
+        public Card next() {
+            int rank;
+            
+            if(k < prefix.length && prefix[k] != HOLE)
+                rank = prefix[k];
+            
+            // Hole card can't make a dealer blackjack
+            else if(k == 1) {
+                int up = Math.min(prefix[3], 10);
+                do {
+                    rank = Card.ACE + ran.nextInt(Card.KING);
+                } while(up == Card.ACE && rank >= 10 || up == 10 && rank == Card.ACE);
+            }
+            else
+                rank = Card.ACE + ran.nextInt(Card.KING);
+            
+            k++;
+            
+            return Cards.card(rank, Card.Suit.CLUBS);
+        }
+
+        @Override
+        public void init() {
+            
+        }
+
+        @Override
+        public boolean shuffleNeeded() {
+            return false;
+        }
+
+        @Override
+        public void shuffle() {
+            
+        }
+
+        @Override
+        public int size() {
+            return Card.KING;
+        }
+    }
+    
+    /**
+     * Hits until the hand is dealt, makes the candidate play, then follows
+     * the chart.
+     */
+    class Script implements IAdvisor {
+        protected final IAdvisor chart = new BasicStrategyAdvisor(table);
+        protected final int hits;
+        protected final Play first;
+        protected int calls;
+        
+        /**
+         * Constructor
+         * @param hits Number of hits to deal the hand
+         * @param first Candidate play or null to follow the chart
+         */
+        Script(int hits, Play first) {
+            this.hits = hits;
+            this.first = first;
+        }
+        
+        @Override
+        public Play advise(Hand myHand, Card upCard) {
+            int k = calls++;
+            
+            if(k < hits)
+                return Play.HIT;
+            
+            if(k == hits && first != null)
+                return first;
+            
+            return chart.advise(myHand, upCard);
+        }
+    }
+}
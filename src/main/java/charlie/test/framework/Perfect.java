@@ -18,6 +18,7 @@ import charlie.card.Hid;
 import charlie.plugin.IUi;
 import charlie.server.GameServer;
 import charlie.server.Ticket;
+import charlie.util.Threads;
 import junit.framework.TestCase;
 import org.apache.log4j.Logger;
 
@@ -73,9 +74,9 @@ public abstract class Perfect extends TestCase {
         props.load(new FileInputStream(CHARLIE_PROPS_PATH));
 
         // Start server as a worker thread.
-        new Thread(() -> {
+        Threads.start("game server", () -> {
             new GameServer().go();
-        }).start();
+        }, false);
 
         // Wait for server to start properly
         sleep(500);
@@ -128,7 +129,7 @@ public abstract class Perfect extends TestCase {
      * @param hid Hand id
      */
     public void stay(Hid hid) {
-        new Thread(() -> courier.stay(hid)).start();
+        Threads.execute(() -> courier.stay(hid));
     }
 
     /**
@@ -136,7 +137,7 @@ public abstract class Perfect extends TestCase {
      * @param hid Hand id
      */
     public void hit(Hid hid) {
-        new Thread(() -> courier.hit(hid)).start();
+        Threads.execute(() -> courier.hit(hid));
     }
 
     /**
@@ -144,7 +145,7 @@ public abstract class Perfect extends TestCase {
      * @param hid Hand id
      */
     public void doubleDown(Hid hid) {
-        new Thread(() -> courier.dubble(hid)).start();
+        Threads.execute(() -> courier.dubble(hid));
     }
 
     /**
@@ -152,7 +153,7 @@ public abstract class Perfect extends TestCase {
      * @param hid Hand id
      */
     public void split(Hid hid) {
-        new Thread(() -> courier.split(hid)).start();
+        Threads.execute(() -> courier.split(hid));
     }
 
     /**
@@ -0,0 +1,257 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * This class implements a file appender which writes on its own thread.
+ * Logging threads only drop events into a ring; the writer formats them and
+ * flushes the file once the ring is empty, so a busy dealer never waits on
+ * the disk. It's configured in log4j.properties like a file appender plus:
+ * <ul>
+ * <li>RingSize: events the ring holds (8192)
+ * <li>Blocking: true to wait for room when the ring's full, false to
+ * discard the event and count it (false)
+ * <li>LocationInfo: true to capture the caller for %L, %M, etc., at the
+ * cost of a stack trace per event (false)
+ * </ul>
+ * @author Ron Coleman
+ */
+public class AsyncFileAppender extends FileAppender {
+    public final static int DEFAULT_RING_SIZE = 8192;
+    
+    /** Most events written between flushes */
+    protected final static int BATCH = 256;
+    
+    protected int ringSize = DEFAULT_RING_SIZE;
+    protected boolean blocking = false;
+    protected boolean locationInfo = false;
+    protected ArrayBlockingQueue<LoggingEvent> ring;
+    protected Thread writer;
+    protected final AtomicLong discarded = new AtomicLong();
+    protected volatile boolean running = false;
+    
+    /**
+     * Constructor
+     */
+    public AsyncFileAppender() {
+        immediateFlush = false;
+    }
+    
+    /**
+     * Opens the file and starts the writer.
+     */
+    @Override
+    public void activateOptions() {
+        immediateFlush = false;
+        
+        super.activateOptions();
+        
+        if(writer != null)
+            return;
+        
+        ring = new ArrayBlockingQueue<>(ringSize);
+        running = true;
+        
+        // Not Threads: this runs while log4j configures itself
+        writer = new Thread(this::write, "log writer " + getName());
+        writer.setDaemon(true);
+        writer.start();
+        
+        // Events logged while the JVM exits are written directly
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain));
+    }
+    
+    /**
+     * Puts an event in the ring.
+     * The event takes along what the writer can't get on its own thread.
+     * @param event Event
+     */
+    @Override
+    public void append(LoggingEvent event) {
+        if(!running) {
+            super.append(event);
+            return;
+        }
+        
+        event.getThreadName();
+        event.getNDC();
+        event.getMDCCopy();
+        event.getRenderedMessage();
+        event.getThrowableStrRep();
+        
+        if(locationInfo)
+            event.getLocationInformation();
+        
+        if(ring.offer(event))
+            return;
+        
+        if(blocking) {
+            try {
+                ring.put(event);
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        discarded.incrementAndGet();
+    }
+    
+    /**
+     * Writes events until closed, flushing whenever the ring runs dry.
+     */
+    protected void write() {
+        List<LoggingEvent> events = new ArrayList<>(BATCH);
+        
+        while(running || !ring.isEmpty()) {
+            try {
+                LoggingEvent event = ring.poll(100, TimeUnit.MILLISECONDS);
+                
+                if(event == null)
+                    continue;
+                
+                events.add(event);
+                ring.drainTo(events, BATCH - 1);
+                
+                for(LoggingEvent e: events)
+                    if(checkEntryConditions())
+                        subAppend(e);
+                
+                events.clear();
+                
+                if(ring.isEmpty() && qw != null)
+                    qw.flush();
+            } catch (InterruptedException ex) {
+                running = false;
+            } catch (RuntimeException ex) {
+                LogLog.error("log writer failed", ex);
+            }
+        }
+    }
+    
+    /**
+     * Writes what's in the ring and closes the file.
+     */
+    @Override
+    public void close() {
+        if(closed)
+            return;
+        
+        drain();
+        
+        if(discarded.get() > 0)
+            LogLog.warn(getName() + " discarded " + discarded.get() + " events");
+        
+        super.close();
+    }
+    
+    /**
+     * Stops the writer once it has written what's in the ring; from then on
+     * events are written as they're logged.
+     * Holding the lock keeps logging threads out until the ring is empty.
+     */
+    protected synchronized void drain() {
+        Thread thread = writer;
+        
+        if(thread == null || !running)
+            return;
+        
+        running = false;
+        
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        immediateFlush = true;
+        
+        if(qw != null)
+            qw.flush();
+    }
+    
+    /**
+     * Gets the number of events discarded because the ring was full.
+     * @return Number of events
+     */
+    public long getDiscarded() {
+        return discarded.get();
+    }
+    
+    /**
+     * Gets the ring size.
+     * @return Number of events
+     */
+    public int getRingSize() {
+        return ringSize;
+    }
+    
+    /**
+     * Sets the ring size.
+     * @param ringSize Number of events
+     */
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+    
+    /**
+     * Tests if logging waits for room in the ring.
+     * @return True if blocking
+     */
+    public boolean getBlocking() {
+        return blocking;
+    }
+    
+    /**
+     * Sets whether logging waits for room in the ring.
+     * @param blocking True to wait, false to discard
+     */
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+    
+    /**
+     * Tests if events capture their caller.
+     * @return True if they do
+     */
+    public boolean getLocationInfo() {
+        return locationInfo;
+    }
+    
+    /**
+     * Sets whether events capture their caller.
+     * @param locationInfo True to capture
+     */
+    public void setLocationInfo(boolean locationInfo) {
+        this.locationInfo = locationInfo;
+    }
+}
@@ -45,5 +45,22 @@ public class Constant {
     public final static String PLUGIN_SHOE = "charlie.shoe";
     public final static String PLUGIN_ADVISOR = "charlie.advisor";
     public final static String PLUGIN_DEALER = "charlie.dealer";
+    public final static String PLUGIN_TRANSPORT = "charlie.transport";
+    public final static String PLUGIN_CODEC = "charlie.codec";
+    public final static String PLUGIN_PACER = "charlie.pacer";
     public final static String DEFAULT_SHOE = "charlie.shoe.Shoe01";
+    public final static String DEFAULT_TRANSPORT = "charlie.actor.last.BlockingTransport";
+    public final static String DEFAULT_CODEC = "charlie.message.SerialCodec";
+    public final static String DEFAULT_PACER = "charlie.dealer.RealTimePacer";
+    public final static String OUTBOX_SIZE = "charlie.outbox.size";
+    public final static String OUTBOX_POLICY = "charlie.outbox.policy";
+    public final static String OUTBOX_BATCH = "charlie.outbox.batch";
+    public final static String THREADS = "charlie.threads";
+    public final static String TICKET_TTL = "charlie.ticket.ttl";
+    public final static String JOURNAL = "charlie.journal";
+    public final static String JOURNAL_SIZE = "charlie.journal.size";
+    public final static String JOURNAL_COMMIT = "charlie.journal.commit";
+    public final static String METRICS_PORT = "charlie.metrics.port";
+    public final static String METRICS_HOST = "charlie.metrics.host";
+    public final static String TRACE_SIZE = "charlie.trace.size";
 }
@@ -0,0 +1,199 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a histogram of non-negative longs, eg, latencies in
+ * nanos or queue depths, in the manner of an HDR histogram.
+ * Values below 16 count exactly; above, each power of two is split into 16
+ * buckets, so every value counts in a bucket within about 6% of it. It
+ * records from any thread without locking and takes about 8 KB. A table's
+ * histogram has the server-wide one as its parent and records into both.
+ * @author Ron Coleman
+ */
+public class Histogram {
+    protected final static int SUB_BITS = 4;
+    protected final static int SUBS = 1 << SUB_BITS;
+    protected final static int BUCKETS = SUBS + (63 - SUB_BITS) * SUBS;
+    
+    protected final String name;
+    protected final Histogram parent;
+    protected final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    protected final LongAdder count = new LongAdder();
+    protected final LongAdder sum = new LongAdder();
+    protected final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Constructor
+     * @param name Name
+     */
+    public Histogram(String name) {
+        this(name, null);
+    }
+    
+    /**
+     * Constructor
+     * @param name Name
+     * @param parent Histogram which also records every value or null if none
+     */
+    public Histogram(String name, Histogram parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+    
+    /**
+     * Records a value.
+     * @param value Value, negatives count as 0
+     */
+    public void record(long value) {
+        if(value < 0)
+            value = 0;
+        
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        
+        long most = max.get();
+        while(value > most && !max.compareAndSet(most, value))
+            most = max.get();
+        
+        if(parent != null)
+            parent.record(value);
+    }
+    
+    /**
+     * Records the nanos since a start time.
+     * @param start Start from System.nanoTime()
+     */
+    public void since(long start) {
+        record(System.nanoTime() - start);
+    }
+    
+    /**
+     * Gets the value at a percentile.
+     * @param percent Percentile, 0 to 100
+     * @return Highest value in the percentile's bucket or 0 if there are no values
+     */
+    public long getPercentile(double percent) {
+        long total = 0;
+        for(int i=0; i < BUCKETS; i++)
+            total += counts.get(i);
+        
+        if(total == 0)
+            return 0;
+        
+        long rank = Math.max(1, (long) Math.ceil(total * percent / 100.0));
+        
+        long seen = 0;
+        for(int i=0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            
+            if(seen >= rank)
+                return Math.min(highest(i), max.get());
+        }
+        
+        return max.get();
+    }
+    
+    /**
+     * Gets the name.
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the number of values recorded.
+     * @return Count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+    
+    /**
+     * Gets the mean value.
+     * @return Mean or 0 if there are no values
+     */
+    public double getMean() {
+        long n = count.sum();
+        
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+    
+    /**
+     * Gets the largest value recorded.
+     * @return Max
+     */
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * Converts histogram to string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return name + " count=" + getCount() + " mean=" + (long) getMean()
+                + " p50=" + getPercentile(50) + " p90=" + getPercentile(90)
+                + " p99=" + getPercentile(99) + " p999=" + getPercentile(99.9)
+                + " max=" + getMax();
+    }
+    
+    /**
+     * Gets the bucket of a value.
+     * @param value Value
+     * @return Bucket index
+     */
+    protected static int bucket(long value) {
+        if(value < SUBS)
+            return (int) value;
+        
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUBS - 1);
+        
+        return SUBS + (exp - SUB_BITS) * SUBS + sub;
+    }
+    
+    /**
+     * Gets the highest value of a bucket.
+     * @param bucket Bucket index
+     * @return Value
+     */
+    protected static long highest(int bucket) {
+        if(bucket < SUBS)
+            return bucket;
+        
+        int exp = (bucket - SUBS) / SUBS + SUB_BITS;
+        long sub = (bucket - SUBS) % SUBS;
+        
+        long low = (1L << exp) | (sub << (exp - SUB_BITS));
+        
+        return low + (1L << (exp - SUB_BITS)) - 1;
+    }
+}
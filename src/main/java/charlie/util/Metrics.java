@@ -0,0 +1,296 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the server's metrics: counters, gauges and
+ * histograms by name, fed by the dealers, players, actors and house.
+ * Per-table metrics carry the table session as a label, eg,
+ * player.bet_to_card{table=7}, and also count toward the unlabeled one.
+ * Hot paths get their metrics once and keep them rather than look them up
+ * by name.
+ * <p>
+ * The metrics are in JMX as charlie:type=Metrics and, if property
+ * "charlie.metrics.port" is set, as plain text at http://host:port/metrics.
+ * The endpoint listens on loopback unless "charlie.metrics.host" names
+ * another interface.
+ * @author Ron Coleman
+ */
+public class Metrics implements MetricsMBean {
+    private final static Logger LOG = Logger.getLogger(Metrics.class);
+    protected final static Metrics INSTANCE = new Metrics();
+    public final static String OBJECT_NAME = "charlie:type=Metrics";
+    public final static String DEFAULT_HOST = "127.0.0.1";
+    
+    protected final ConcurrentHashMap<String,LongAdder> counters = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<String,LongSupplier> gauges = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<String,Histogram> histograms = new ConcurrentHashMap<>();
+    protected HttpServer http;
+    protected boolean registered = false;
+    
+    /**
+     * Constructor is protected: use the instance, or a fresh one for testing.
+     */
+    protected Metrics() {
+        
+    }
+    
+    /**
+     * Gets the metrics of this server.
+     * @return Metrics
+     */
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Exposes the metrics in JMX and on the configured port, if any.
+     */
+    public void start() {
+        String port = System.getProperty(Constant.METRICS_PORT);
+        
+        start(port == null ? -1 : Integer.parseInt(port));
+    }
+    
+    /**
+     * Exposes the metrics in JMX and on a port of the configured host.
+     * @param port Port of the text endpoint, 0 for any or -1 for none
+     */
+    public void start(int port) {
+        start(System.getProperty(Constant.METRICS_HOST, DEFAULT_HOST), port);
+    }
+    
+    /**
+     * Exposes the metrics in JMX and on a port.
+     * @param host Interface of the text endpoint
+     * @param port Port of the text endpoint, 0 for any or -1 for none
+     */
+    public synchronized void start(String host, int port) {
+        try {
+            if(!registered) {
+                MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+                mbeans.registerMBean(this, new ObjectName(OBJECT_NAME));
+                registered = true;
+            }
+        } catch (JMException ex) {
+            LOG.error("metrics not registered in JMX: " + ex);
+        }
+        
+        if(port < 0 || http != null)
+            return;
+        
+        try {
+            http = HttpServer.create(new InetSocketAddress(host, port), 0);
+            
+            http.createContext("/metrics", exchange -> {
+                byte[] body = getReport().getBytes(StandardCharsets.UTF_8);
+                
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                
+                try(OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            
+            http.start();
+            
+            LOG.info("metrics at http://" + host + ":" + getPort() + "/metrics");
+        } catch (IOException ex) {
+            LOG.error("metrics at " + host + ":" + port + " failed: " + ex);
+            http = null;
+        }
+    }
+    
+    /**
+     * Stops the text endpoint.
+     */
+    public synchronized void stop() {
+        if(http != null)
+            http.stop(0);
+        
+        http = null;
+    }
+    
+    /**
+     * Gets the port of the text endpoint.
+     * @return Port or -1 if there's no endpoint
+     */
+    public synchronized int getPort() {
+        return http == null ? -1 : http.getAddress().getPort();
+    }
+    
+    /**
+     * Increments a counter.
+     * @param name Name
+     */
+    public void count(String name) {
+        counter(name).increment();
+    }
+    
+    /**
+     * Increments a counter of a table.
+     * @param name Name
+     * @param table Table session
+     */
+    public void count(String name, int table) {
+        counter(name).increment();
+        counter(label(name, table)).increment();
+    }
+    
+    /**
+     * Records a value in a histogram of a table.
+     * @param name Name
+     * @param table Table session
+     * @param value Value
+     */
+    public void record(String name, int table, long value) {
+        histogram(name, table).record(value);
+    }
+    
+    /**
+     * Gets a counter, creating it if need be.
+     * @param name Name
+     * @return Counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+    
+    /**
+     * Gets a histogram, creating it if need be.
+     * @param name Name
+     * @return Histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+    
+    /**
+     * Gets the histogram of a table, creating it if need be. What it records
+     * also counts toward the unlabeled histogram.
+     * @param name Name
+     * @param table Table session
+     * @return Histogram
+     */
+    public Histogram histogram(String name, int table) {
+        Histogram all = histogram(name);
+        
+        return histograms.computeIfAbsent(label(name, table), key -> new Histogram(key, all));
+    }
+    
+    /**
+     * Adds a gauge which is read when reported.
+     * @param name Name
+     * @param gauge Gauge
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+    
+    /**
+     * Drops the metrics of a table that closed.
+     * @param table Table session
+     */
+    public void drop(int table) {
+        String suffix = "{table=" + table + "}";
+        
+        counters.keySet().removeIf(name -> name.endsWith(suffix));
+        histograms.keySet().removeIf(name -> name.endsWith(suffix));
+    }
+    
+    /**
+     * Gets a counter or gauge.
+     * @param name Name
+     * @return Value or 0 if there's no such metric
+     */
+    @Override
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        if(counter != null)
+            return counter.sum();
+        
+        LongSupplier gauge = gauges.get(name);
+        
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+    
+    /**
+     * Gets a percentile of a histogram.
+     * @param name Name
+     * @param percent Percentile, 0 to 100
+     * @return Value or 0 if there's no such histogram
+     */
+    @Override
+    public long getPercentile(String name, double percent) {
+        Histogram histogram = histograms.get(name);
+        
+        return histogram == null ? 0 : histogram.getPercentile(percent);
+    }
+    
+    /**
+     * Gets every metric as text, one per line, sorted by name.
+     * Latencies are in nanos.
+     * @return Report
+     */
+    @Override
+    public String getReport() {
+        Map<String,String> lines = new TreeMap<>();
+        
+        counters.forEach((name, counter) -> lines.put(name, name + " " + counter.sum()));
+        gauges.forEach((name, gauge) -> lines.put(name, name + " " + gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> lines.put(name, histogram.toString()));
+        
+        StringBuilder report = new StringBuilder();
+        for(String line: lines.values())
+            report.append(line).append('\n');
+        
+        return report.toString();
+    }
+    
+    /**
+     * Labels a metric with its table.
+     * @param name Name
+     * @param table Table session
+     * @return Labeled name
+     */
+    protected static String label(String name, int table) {
+        return name + "{table=" + table + "}";
+    }
+}
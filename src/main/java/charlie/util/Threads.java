@@ -0,0 +1,154 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * This class runs Charlie's background work: actor listeners, link readers,
+ * outbox writers and short fire-and-forget tasks, eg, callbacks and sounds.
+ * Property "charlie.threads" selects platform threads (the default) or
+ * virtual threads. Virtual threads are found reflectively since they need a
+ * newer Java than Charlie is built for; without them it falls back to
+ * platform threads.
+ * @author Ron Coleman
+ */
+public class Threads {
+    private final static Logger LOG = Logger.getLogger(Threads.class);
+    
+    /** Kinds of threads */
+    public enum Kind {PLATFORM, VIRTUAL};
+    
+    public final static Kind DEFAULT_KIND = Kind.PLATFORM;
+    
+    protected final static AtomicInteger workers = new AtomicInteger();
+    protected final static ThreadFactory VIRTUAL = virtualFactory();
+    protected final static Kind KIND = loadKind();
+    
+    /** Pool for short tasks on platform threads, unused for virtual threads */
+    protected final static ExecutorService POOL = KIND == Kind.PLATFORM ?
+            Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "charlie-worker-" + workers.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+    
+    /**
+     * Starts a dedicated thread for long-running work.
+     * Virtual threads are always daemons.
+     * @param name Thread name
+     * @param task Task
+     * @param daemon True for a daemon platform thread
+     * @return Thread
+     */
+    public static Thread start(String name, Runnable task, boolean daemon) {
+        Thread thread;
+        
+        if(KIND == Kind.VIRTUAL) {
+            thread = VIRTUAL.newThread(task);
+            thread.setName(name);
+        }
+        else {
+            thread = new Thread(task, name);
+            thread.setDaemon(daemon);
+        }
+        
+        thread.start();
+        
+        return thread;
+    }
+    
+    /**
+     * Runs a short task in the background.
+     * @param task Task
+     */
+    public static void execute(Runnable task) {
+        if(KIND == Kind.VIRTUAL)
+            VIRTUAL.newThread(task).start();
+        else
+            POOL.execute(task);
+    }
+    
+    /**
+     * Gets the kind of threads in use.
+     * @return Kind
+     */
+    public static Kind getKind() {
+        return KIND;
+    }
+    
+    /**
+     * Tests if this Java has virtual threads.
+     * @return True if virtual threads are available
+     */
+    public static boolean isVirtualAvailable() {
+        return VIRTUAL != null;
+    }
+    
+    /**
+     * Loads the configured kind of threads.
+     * @return Kind
+     */
+    protected static Kind loadKind() {
+        String kind = System.getProperty(Constant.THREADS);
+        
+        if(kind == null)
+            return DEFAULT_KIND;
+        
+        Kind configured = DEFAULT_KIND;
+        try {
+            configured = Kind.valueOf(kind.trim().toUpperCase());
+        }
+        catch(IllegalArgumentException ex) {
+            LOG.error("bad threads kind '"+kind+"' using "+DEFAULT_KIND);
+        }
+        
+        if(configured == Kind.VIRTUAL && VIRTUAL == null) {
+            LOG.error("virtual threads not available on Java "+System.getProperty("java.version")+" using "+Kind.PLATFORM);
+            return Kind.PLATFORM;
+        }
+        
+        LOG.info("using "+configured+" threads");
+        
+        return configured;
+    }
+    
+    /**
+     * Gets a virtual thread factory, ie, Thread.ofVirtual().factory().
+     * @return Factory or null if there are no virtual threads
+     */
+    protected static ThreadFactory virtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        }
+        catch(ReflectiveOperationException | ClassCastException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import charlie.card.Hid;
+import charlie.message.Message;
+import charlie.message.view.from.Request;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.Outcome;
+import charlie.message.view.to.Play;
+import charlie.message.view.to.SplitResponse;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.apache.log4j.Logger;
+
+/**
+ * This class implements the message trace of the process: a ring of the
+ * last "charlie.trace.size" messages sent and received, each with its
+ * System.nanoTime(), type, session, serial and sequence numbers and hand.
+ * The ring is allocated up front and recording claims a slot with one
+ * atomic add, so tracing adds no locks or garbage to the message path.
+ * <p>
+ * The ring dumps to a compact binary file on demand, eg, from JMX as
+ * charlie:type=Trace, which TraceReader turns into per-hand timelines.
+ * A dump skips slots being overwritten while it copies them.
+ * @author Ron Coleman
+ */
+public class Trace implements TraceMBean {
+    private final static Logger LOG = Logger.getLogger(Trace.class);
+    public final static int DEFAULT_SIZE = 1 << 16;
+    public final static String OBJECT_NAME = "charlie:type=Trace";
+    
+    public final static int MAGIC = 0xC4A7_7ACE;
+    public final static int VERSION = 1;
+    
+    /** Operations */
+    public final static byte SEND = 0;
+    public final static byte RECEIVE = 1;
+    
+    protected static Trace instance;
+    
+    protected final int mask;
+    protected final long[] nanos;
+    protected final long[] serials;
+    protected final long[] sequences;
+    protected final long[] hids;
+    protected final int[] sessions;
+    protected final short[] types;
+    protected final byte[] ops;
+    
+    /** Claim + 1 of the event in each slot, 0 while it's being written */
+    protected final AtomicLongArray marks;
+    protected final AtomicLong cursor = new AtomicLong();
+    
+    /** Message type names by id */
+    protected final List<String> names = new ArrayList<>();
+    protected final ClassValue<Short> typeIds = new ClassValue<Short>() {
+        @Override
+        protected Short computeValue(Class<?> clazz) {
+            synchronized(names) {
+                names.add(clazz.getName());
+                return (short) (names.size() - 1);
+            }
+        }
+    };
+    
+    /**
+     * Constructor
+     * @param size Events the ring holds, rounded up to a power of two
+     */
+    public Trace(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        
+        mask = capacity - 1;
+        nanos = new long[capacity];
+        serials = new long[capacity];
+        sequences = new long[capacity];
+        hids = new long[capacity];
+        sessions = new int[capacity];
+        types = new short[capacity];
+        ops = new byte[capacity];
+        marks = new AtomicLongArray(capacity);
+    }
+    
+    /**
+     * Gets the trace of this process, sized and registered in JMX on first use.
+     * @return Trace
+     */
+    public static synchronized Trace getInstance() {
+        if(instance == null) {
+            instance = new Trace(Integer.getInteger(Constant.TRACE_SIZE, DEFAULT_SIZE));
+            
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (JMException ex) {
+                LOG.error("trace not registered in JMX: " + ex);
+            }
+            
+            LOG.info("tracing last " + instance.getSize() + " messages");
+        }
+        
+        return instance;
+    }
+    
+    /**
+     * Records a message.
+     * @param op Operation, SEND or RECEIVE
+     * @param msg Message
+     */
+    public void record(byte op, Message msg) {
+        long claim = cursor.getAndIncrement();
+        int slot = (int) claim & mask;
+        
+        marks.lazySet(slot, 0);
+        
+        // The clear must be visible before any field of the new event
+        VarHandle.storeStoreFence();
+        
+        nanos[slot] = System.nanoTime();
+        serials[slot] = msg.getSerialno();
+        sequences[slot] = msg.getSequence();
+        hids[slot] = keyOf(msg);
+        sessions[slot] = msg.getSession();
+        types[slot] = typeIds.get(msg.getClass());
+        ops[slot] = op;
+        
+        marks.lazySet(slot, claim + 1);
+    }
+    
+    /**
+     * Dumps the trace to a file.
+     * @param path File path
+     * @return Number of events dumped or -1 if the dump failed
+     */
+    @Override
+    public int dump(String path) {
+        try(OutputStream out = new FileOutputStream(path)) {
+            int count = dump(out);
+            
+            LOG.info("dumped " + count + " trace events to " + path);
+            
+            return count;
+        } catch (IOException ex) {
+            LOG.error("trace dump to " + path + " failed: " + ex);
+            return -1;
+        }
+    }
+    
+    /**
+     * Dumps the trace, oldest event first.
+     * Format: magic, version, wall clock millis and nanos at the dump, type
+     * names, event count, then per event: op, type, session, nanos, serial
+     * number, sequence number, hand key.
+     * @param os Output stream
+     * @return Number of events dumped
+     * @throws IOException If the stream fails
+     */
+    public int dump(OutputStream os) throws IOException {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+        
+        // Copy first so the ring moves on while we write
+        int capacity = (int) (end - start);
+        long[] n = new long[capacity], se = new long[capacity], sq = new long[capacity], h = new long[capacity];
+        int[] ss = new int[capacity];
+        short[] t = new short[capacity];
+        byte[] o = new byte[capacity];
+        
+        int count = 0;
+        for(long claim=start; claim < end; claim++) {
+            int slot = (int) claim & mask;
+            
+            if(marks.get(slot) != claim + 1)
+                continue;
+            
+            n[count] = nanos[slot];
+            se[count] = serials[slot];
+            sq[count] = sequences[slot];
+            h[count] = hids[slot];
+            ss[count] = sessions[slot];
+            t[count] = types[slot];
+            o[count] = ops[slot];
+            
+            // Overwritten while we copied: read the fields before the mark
+            VarHandle.loadLoadFence();
+            
+            if(marks.get(slot) != claim + 1)
+                continue;
+            
+            count++;
+        }
+        
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeLong(System.nanoTime());
+        
+        synchronized(names) {
+            out.writeShort(names.size());
+            for(String name: names)
+                out.writeUTF(name);
+        }
+        
+        out.writeInt(count);
+        for(int i=0; i < count; i++) {
+            out.writeByte(o[i]);
+            out.writeShort(t[i]);
+            out.writeInt(ss[i]);
+            out.writeLong(n[i]);
+            out.writeLong(se[i]);
+            out.writeLong(sq[i]);
+            out.writeLong(h[i]);
+        }
+        
+        out.flush();
+        
+        return count;
+    }
+    
+    /**
+     * Gets the number of events ever recorded.
+     * @return Number of events
+     */
+    @Override
+    public long getRecorded() {
+        return cursor.get();
+    }
+    
+    /**
+     * Gets the number of events the ring holds.
+     * @return Ring size
+     */
+    @Override
+    public int getSize() {
+        return mask + 1;
+    }
+    
+    /**
+     * Gets the key of the hand a message is about.
+     * @param msg Message
+     * @return Hand key or 0 if it's not about a hand
+     */
+    protected static long keyOf(Message msg) {
+        Hid hid = null;
+        
+        if(msg instanceof Deal)
+            hid = ((Deal) msg).getHid();
+        
+        else if(msg instanceof Play)
+            hid = ((Play) msg).getHid();
+        
+        else if(msg instanceof Outcome)
+            hid = ((Outcome) msg).getHid();
+        
+        else if(msg instanceof Request)
+            hid = ((Request) msg).getHid();
+        
+        else if(msg instanceof SplitResponse)
+            hid = ((SplitResponse) msg).getNewHid();
+        
+        return hid == null ? 0 : hid.getKey();
+    }
+}
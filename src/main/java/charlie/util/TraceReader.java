@@ -0,0 +1,243 @@
+/*
+ Copyright (c) 2014 Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package charlie.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class reads trace dumps and prints the timeline of every hand, ie,
+ * a bet and what followed it at the table, with the longest gap flagged.
+ * Dumps from several processes, eg, the server and its clients, merge by
+ * table session: each dump's nanos are rebased to the wall clock with the
+ * millis and nanos it was dumped at, so the timelines are only as good as
+ * the clocks agree.
+ * Usage: java charlie.util.TraceReader trace-file...
+ * @see Trace
+ * @author Ron Coleman
+ */
+public class TraceReader {
+    /**
+     * This class implements a traced event.
+     */
+    public static class Event {
+        public final byte op;
+        public final String type;
+        public final int session;
+        
+        /** Nanos since the epoch */
+        public final long nanos;
+        public final long serialno;
+        public final long sequence;
+        public final long hid;
+        
+        Event(byte op, String type, int session, long nanos, long serialno, long sequence, long hid) {
+            this.op = op;
+            this.type = type;
+            this.session = session;
+            this.nanos = nanos;
+            this.serialno = serialno;
+            this.sequence = sequence;
+            this.hid = hid;
+        }
+        
+        /**
+         * Gets where the event happened; the views send "from" messages
+         * and the server sends "to" messages.
+         * @return Where
+         */
+        public String getWhere() {
+            boolean fromView = type.contains(".view.from.");
+            
+            if(op == Trace.SEND)
+                return fromView ? "client send" : "server send";
+            
+            return fromView ? "server recv" : "client recv";
+        }
+        
+        /**
+         * Gets the simple type name.
+         * @return Type
+         */
+        public String getSimpleType() {
+            return type.substring(type.lastIndexOf('.') + 1);
+        }
+    }
+    
+    /**
+     * Runs the reader.
+     * @param args Trace files
+     * @throws IOException If a trace can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length == 0) {
+            System.err.println("usage: java charlie.util.TraceReader trace-file...");
+            System.exit(1);
+        }
+        
+        print(hands(read(args)), System.out);
+    }
+    
+    /**
+     * Reads trace dumps into one trace.
+     * @param paths Trace files
+     * @return Events of every dump
+     * @throws IOException If a dump is bad
+     */
+    public static List<Event> read(String... paths) throws IOException {
+        List<Event> events = new ArrayList<>();
+        
+        for(String path: paths)
+            try(InputStream in = new FileInputStream(path)) {
+                events.addAll(read(in));
+            }
+        
+        return events;
+    }
+    
+    /**
+     * Reads a trace dump, rebasing its nanos to the wall clock.
+     * @param is Input stream
+     * @return Events, oldest first
+     * @throws IOException If the dump is bad
+     */
+    public static List<Event> read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        
+        if(in.readInt() != Trace.MAGIC)
+            throw new IOException("not a trace dump");
+        
+        int version = in.readInt();
+        if(version != Trace.VERSION)
+            throw new IOException("unsupported trace version " + version);
+        
+        // About the same instant by both clocks
+        long millis = in.readLong();
+        long anchor = in.readLong();
+        
+        long base = millis * 1_000_000L - anchor;
+        
+        String[] names = new String[in.readShort()];
+        for(int i=0; i < names.length; i++)
+            names[i] = in.readUTF();
+        
+        int count = in.readInt();
+        
+        List<Event> events = new ArrayList<>(count);
+        for(int i=0; i < count; i++) {
+            byte op = in.readByte();
+            String type = names[in.readShort()];
+            
+            int session = in.readInt();
+            long nanos = base + in.readLong();
+            
+            events.add(new Event(op, type, session, nanos, in.readLong(), in.readLong(), in.readLong()));
+        }
+        
+        return events;
+    }
+    
+    /**
+     * Splits events into hands by table. A hand starts with a bet; both
+     * ends of the same bet, ie, same serial number, start just one hand.
+     * Events at a table before its first bet, eg, arrival, are hand 0.
+     * @param events Events
+     * @return Hands in time order by table session
+     */
+    public static Map<Integer,List<List<Event>>> hands(List<Event> events) {
+        Map<Integer,List<Event>> tables = new TreeMap<>();
+        for(Event event: events)
+            tables.computeIfAbsent(event.session, key -> new ArrayList<>()).add(event);
+        
+        Map<Integer,List<List<Event>>> hands = new TreeMap<>();
+        
+        tables.forEach((session, timeline) -> {
+            timeline.sort(Comparator.comparingLong(event -> event.nanos));
+            
+            List<List<Event>> table = new ArrayList<>();
+            List<Event> hand = new ArrayList<>();
+            long bet = -1;
+            
+            for(Event event: timeline) {
+                if(event.type.endsWith(".Bet") && event.serialno != bet) {
+                    if(!hand.isEmpty())
+                        table.add(hand);
+                    
+                    hand = new ArrayList<>();
+                    bet = event.serialno;
+                }
+                
+                hand.add(event);
+            }
+            
+            if(!hand.isEmpty())
+                table.add(hand);
+            
+            hands.put(session, table);
+        });
+        
+        return hands;
+    }
+    
+    /**
+     * Prints hand timelines in micros since the start of each hand.
+     * @param hands Hands by table
+     * @param out Output
+     */
+    public static void print(Map<Integer,List<List<Event>>> hands, PrintStream out) {
+        hands.forEach((session, table) -> {
+            for(int h=0; h < table.size(); h++) {
+                List<Event> hand = table.get(h);
+                
+                long start = hand.get(0).nanos;
+                long gap = 0;
+                Event slow = hand.get(0);
+                for(int i=1; i < hand.size(); i++) {
+                    long delta = hand.get(i).nanos - hand.get(i-1).nanos;
+                    if(delta > gap) {
+                        gap = delta;
+                        slow = hand.get(i);
+                    }
+                }
+                
+                out.printf("table %d hand %d: %d events over %.1f us, longest gap %.1f us before %s%n",
+                        session, h, hand.size(), (hand.get(hand.size()-1).nanos - start) / 1e3,
+                        gap / 1e3, slow.getSimpleType());
+                
+                for(Event event: hand)
+                    out.printf("  %+12.1f us  %s  %-14s seq %-5d hid %s%n",
+                            (event.nanos - start) / 1e3, event.getWhere(), event.getSimpleType(),
+                            event.sequence, event.hid == 0 ? "-" : Long.toHexString(event.hid));
+            }
+        });
+    }
+}
@@ -29,6 +29,7 @@ import charlie.view.sprite.Chip;
 import charlie.view.sprite.AtStakeSprite;
 import charlie.view.sprite.ChipButton;
 import charlie.util.Constant;
+import charlie.util.Threads;
 import java.awt.BasicStroke;
 import java.awt.Font;
 import java.awt.Graphics2D;
@@ -399,7 +400,7 @@ public class AMoneyManager {
 
             // Releases the chip button, if needed
             if (autorelease) {
-                new Thread(new Runnable() {
+                Threads.execute(new Runnable() {
                     @Override
                     public void run() {
                         try {
@@ -409,7 +410,7 @@ public class AMoneyManager {
 
                         }
                     }
-                }).start();
+                });
             }
             return;
         }
@@ -53,6 +53,7 @@ import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 import org.apache.log4j.Logger;
 import charlie.plugin.ILogan;
+import charlie.util.Threads;
 
 /**
  * This class is the main table panel.
@@ -407,12 +408,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
                 this.frame.enablePlay(enable);
             }
             else {
-                new Thread(new Runnable() { 
+                Threads.execute(new Runnable() { 
                     @Override
                     public void run() {
                         logan.play(hid);
                     }
-                }).start();
+                });
 
             }
             
@@ -458,12 +459,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         }
         
         if (logan != null && !(card instanceof HoleCard)) {
-            new Thread(new Runnable() {
+            Threads.execute(new Runnable() {
                 @Override
                 public void run() {
                     logan.deal(hid, card, handValues);
                 }
-            }).start();
+            });
         }
     }
 
@@ -719,7 +720,7 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         else {
             // Run logan in worker thread in event there's a need for
             // endGame to wait between games.
-            new Thread(new Runnable() { 
+            Threads.execute(new Runnable() { 
                 @Override
                 public void run() {
                     logan.endGame(shoeSize);
@@ -735,7 +736,7 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
                     // Tell Logan it's time to place a new bet
                     logan.go();
                 }
-            }).start();
+            });
 
         }
     }
@@ -840,12 +841,12 @@ public final class ATable extends JPanel implements Runnable, IUi, MouseListener
         this.logan.setMoneyManager(this.monies.get(Seat.YOU));
         this.logan.setCourier(courier);       
         if (logan != null) {
-            new Thread(new Runnable() {
+            Threads.execute(new Runnable() {
                 @Override
                 public void run() {
                     logan.go();
                 }
-            }).start();
+            });
         }
     }
     
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.bench;
+
+import charlie.shoe.PackedShoe;
+import charlie.shoe.Shoe;
+import charlie.sim.DealerAdvisor;
+import charlie.sim.Simulator;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks full rounds through the dealer: bet, deal, play and
+ * settle, with a stub player that mimics the dealer and no pacing, so the
+ * rate is bound only by the dealer's bookkeeping and the shoe.
+ * @author Ron Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealerBench {
+    Simulator objects;
+    Simulator packed;
+
+    @Setup
+    public void setup() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        Shoe shoe = new Shoe(6, 1L);
+        shoe.init();
+        objects = new Simulator(new DealerAdvisor(), shoe, 1.0, 0.0);
+
+        PackedShoe packedShoe = new PackedShoe(6, 1L);
+        packedShoe.init();
+        packed = new Simulator(new DealerAdvisor(), packedShoe, 1.0, 0.0);
+    }
+
+    /**
+     * Plays a round from the list shoe.
+     * @return Hands played so far
+     */
+    @Benchmark
+    public long round() {
+        return objects.run(1).getHands();
+    }
+
+    /**
+     * Plays a round from the packed shoe.
+     * @return Hands played so far
+     */
+    @Benchmark
+    public long roundPacked() {
+        return packed.run(1).getHands();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.bench;
+
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.shoe.PackedShoe;
+import charlie.shoe.Shoe;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class benchmarks dealing hands, ie, two cards and hits to 17, from a
+ * six deck shoe: the list shoe, the packed shoe through the Card view and
+ * the packed shoe by code. It also benchmarks revaluing a hand.
+ * @author Ron Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandBench {
+    Shoe shoe;
+    PackedShoe packed;
+    Hid hid;
+
+    @Setup
+    public void setup() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        shoe = new Shoe(6, 1L);
+        shoe.init();
+
+        packed = new PackedShoe(6, 1L);
+        packed.init();
+
+        hid = new Hid();
+    }
+
+    /**
+     * Deals a hand through the Card and Hand objects.
+     * @return Hand value
+     */
+    @Benchmark
+    public int objects() {
+        Hand hand = new Hand(hid);
+
+        hand.hit(shoe.next());
+        hand.hit(shoe.next());
+
+        while(hand.getValue() < 17)
+            hand.hit(shoe.next());
+
+        if(shoe.shuffleNeeded())
+            shoe.shuffle();
+
+        return hand.getValue();
+    }
+
+    /**
+     * Deals a hand from the packed shoe through the Card view.
+     * @return Hand value
+     */
+    @Benchmark
+    public int view() {
+        Hand hand = new Hand(hid);
+
+        hand.hit(packed.next());
+        hand.hit(packed.next());
+
+        while(hand.getValue() < 17)
+            hand.hit(packed.next());
+
+        if(packed.shuffleNeeded())
+            packed.shuffle();
+
+        return hand.getValue();
+    }
+
+    /**
+     * Deals a hand from the packed shoe by code.
+     * @return Hand value
+     */
+    @Benchmark
+    public int codes() {
+        Hand hand = new Hand(hid);
+
+        hand.hit(packed.nextCode());
+        hand.hit(packed.nextCode());
+
+        while(hand.getValue() < 17)
+            hand.hit(packed.nextCode());
+
+        if(packed.shuffleNeeded())
+            packed.shuffle();
+
+        return hand.getValue();
+    }
+
+    /**
+     * Revalues a dealt hand, as the dealer does on showing the hole card.
+     * @return Hand value
+     */
+    @Benchmark
+    public int revalue() {
+        Hand hand = new Hand(hid);
+
+        for(int k=0; k < 3; k++)
+            hand.hit(packed.nextCode());
+
+        if(packed.shuffleNeeded())
+            packed.shuffle();
+
+        hand.revalue();
+
+        return hand.getValue();
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Command line arguments, not used
+     * @throws Exception If the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(HandBench.class.getSimpleName()).build()).run();
+    }
+}
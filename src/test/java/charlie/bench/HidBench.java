@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.bench;
+
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks hand identity: hashing and comparing hids and the
+ * hand map lookup the dealer does on every play request.
+ * @author Ron Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HidBench {
+    Hid hid;
+    Hid copy;
+    Hid other;
+    HashMap<Hid,Integer> hands;
+
+    @Setup
+    public void setup() {
+        hid = new Hid(Seat.YOU, 5.0, 0.0);
+        copy = new Hid(hid);
+        other = new Hid(Seat.RIGHT, 5.0, 0.0);
+
+        hands = new HashMap<>();
+        hands.put(hid, 0);
+        hands.put(other, 1);
+        hands.put(new Hid(Seat.LEFT, 5.0, 0.0), 2);
+        hands.put(new Hid(Seat.DEALER), 3);
+    }
+
+    /**
+     * Hashes a hid.
+     * @return Hash code
+     */
+    @Benchmark
+    public int hash() {
+        return hid.hashCode();
+    }
+
+    /**
+     * Compares a hid to its copy and to a different hid.
+     * @return True if the copy is equal and the other is not
+     */
+    @Benchmark
+    public boolean equal() {
+        return hid.equals(copy) && !hid.equals(other);
+    }
+
+    /**
+     * Looks up a hand by a copy of its hid.
+     * @return Hand index
+     */
+    @Benchmark
+    public Integer lookup() {
+        return hands.get(copy);
+    }
+}
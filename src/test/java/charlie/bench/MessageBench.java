@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.message.CodecFactory;
+import charlie.message.Message;
+import charlie.message.view.to.Deal;
+import charlie.plugin.ICodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks message serialization of a deal, the most frequent
+ * message on the wire, for each codec. As on a link, one encoder and one
+ * decoder carry over from frame to frame.
+ * @author Ron Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBench {
+    @Param({"charlie.message.SerialCodec", "charlie.message.BinaryCodec"})
+    String codec;
+
+    ICodec encoder;
+    ICodec decoder;
+    ByteArrayOutputStream bytes;
+    DataOutputStream out;
+    Deal deal;
+
+    @Setup
+    public void setup() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        encoder = CodecFactory.getInstance(codec);
+        decoder = CodecFactory.getInstance(codec);
+
+        bytes = new ByteArrayOutputStream(1024);
+        out = new DataOutputStream(bytes);
+
+        deal = new Deal(new Hid(Seat.YOU, 5.0, 0.0), new int[] {21, 21}, new Card(Card.ACE, Card.Suit.HEARTS));
+    }
+
+    /**
+     * Encodes a deal.
+     * @return Frame size
+     * @throws IOException If the message can't be encoded
+     */
+    @Benchmark
+    public int encode() throws IOException {
+        bytes.reset();
+        encoder.encode(deal, out);
+        out.flush();
+
+        return bytes.size();
+    }
+
+    /**
+     * Encodes and decodes a deal.
+     * @return Decoded message
+     * @throws IOException If the message can't be encoded or decoded
+     */
+    @Benchmark
+    public Message roundTrip() throws IOException {
+        encode();
+
+        return decoder.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
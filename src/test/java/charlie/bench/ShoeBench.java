@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.bench;
+
+import charlie.card.Card;
+import charlie.shoe.PackedShoe;
+import charlie.shoe.Shoe;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks shuffling a six deck shoe and drawing single cards
+ * from it, for both the list shoe and the packed shoe.
+ * @author Ron Coleman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoeBench {
+    Shoe shoe;
+    PackedShoe packed;
+
+    @Setup
+    public void setup() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        shoe = new Shoe(6, 1L);
+        shoe.init();
+
+        packed = new PackedShoe(6, 1L);
+        packed.init();
+    }
+
+    /**
+     * Shuffles the list shoe.
+     * @return Cards in the shoe
+     */
+    @Benchmark
+    public int shuffle() {
+        shoe.shuffle();
+
+        return shoe.size();
+    }
+
+    /**
+     * Shuffles the packed shoe.
+     * @return Cards in the shoe
+     */
+    @Benchmark
+    public int shufflePacked() {
+        packed.shuffle();
+
+        return packed.size();
+    }
+
+    /**
+     * Draws a card from the list shoe, shuffling when the cut card comes up.
+     * @return Card
+     */
+    @Benchmark
+    public Card next() {
+        if(shoe.shuffleNeeded())
+            shoe.shuffle();
+
+        return shoe.next();
+    }
+
+    /**
+     * Draws a card code from the packed shoe, shuffling when the cut card
+     * comes up.
+     * @return Card code
+     */
+    @Benchmark
+    public int nextPacked() {
+        if(packed.shuffleNeeded())
+            packed.shuffle();
+
+        return packed.nextCode();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.actor;
+
+import charlie.actor.last.Actor;
+import charlie.message.Message;
+import charlie.message.view.to.Ready;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class compares the per-message round trip latency of a persistent
+ * link against opening a connection for every message.
+ * @author Ron Coleman
+ */
+public class LinkTest extends TestCase {
+    final Logger LOG = Logger.getLogger(LinkTest.class);
+    final String ECHO_HOST = "127.0.0.1:9801";
+    final int COUNT = 500;
+
+    final Semaphore replies = new Semaphore(0);
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        // Echo replies over whatever link the message came in on
+        Actor echo = new Actor(ECHO_HOST) { };
+        echo.setListener(msg -> echo.send(new Ready(null)));
+        echo.start();
+
+        Thread.sleep(250);
+
+        Actor pinger = new Actor("", ECHO_HOST) { };
+        pinger.setListener(msg -> replies.release());
+
+        // Warm up both paths
+        roundTrips(pinger, COUNT, false);
+        roundTrips(pinger, COUNT / 10, true);
+
+        long persistent = roundTrips(pinger, COUNT, false);
+        long perMessage = roundTrips(pinger, COUNT, true);
+
+        LOG.info("persistent link latency = " + persistent / COUNT + " ns/round trip");
+        LOG.info("connection per message latency = " + perMessage / COUNT + " ns/round trip");
+
+        assertTrue(persistent < perMessage);
+    }
+
+    /**
+     * Sends messages one at a time and waits for the echo.
+     * @param pinger Sending actor
+     * @param count Number of round trips
+     * @param reconnect True to open a new connection for each message
+     * @return Elapsed nanoseconds
+     */
+    long roundTrips(Actor pinger, int count, boolean reconnect) throws InterruptedException {
+        long start = System.nanoTime();
+
+        for(int i=0; i < count; i++) {
+            if(reconnect)
+                pinger.disconnect();
+
+            Message ping = new Ready(null);
+            pinger.send(ping);
+
+            assertTrue(replies.tryAcquire(5, TimeUnit.SECONDS));
+        }
+
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.actor;
+
+import charlie.actor.RealPlayer;
+import charlie.actor.last.Link;
+import charlie.actor.last.Outbox;
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.message.Batch;
+import charlie.message.Message;
+import charlie.message.view.from.Rejoin;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameOver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the outbox delivers in order on its own thread, batching
+ * what piles up, and that a stalled consumer costs the poster nothing: it
+ * gets dropped or disconnected without waiting, and that a table talks to
+ * its courier again once the courier rejoins.
+ * @author Ron Coleman
+ */
+public class OutboxTest extends TestCase {
+    final int SIZE = 8;
+    final long WAIT = 20;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.FATAL);
+
+        try {
+            drop();
+            disconnect();
+            rejoin();
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Tests the drop policy.
+     */
+    protected void drop() throws Exception {
+        CountDownLatch stall = new CountDownLatch(1);
+        List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger frames = new AtomicInteger();
+        CountDownLatch closed = new CountDownLatch(1);
+
+        Outbox outbox = new Outbox("drop", msg -> {
+            await(stall);
+            frames.incrementAndGet();
+            if(msg instanceof Batch)
+                for(Message part: ((Batch) msg).getMessages())
+                    sent.add(((GameOver) part).getShoeSize());
+            else
+                sent.add(((GameOver) msg).getShoeSize());
+        }, closed::countDown, SIZE, Outbox.Policy.DROP, SIZE);
+
+        // One in the writer's hands plus a full queue
+        stalled(outbox, new GameOver(0));
+
+        long start = System.currentTimeMillis();
+        int posted = 1;
+        for(int k=1; k < SIZE * 2; k++)
+            if(outbox.post(new GameOver(k)))
+                posted++;
+
+        // Full queue fails fast
+        assertTrue(System.currentTimeMillis() - start < WAIT * 5);
+        assertEquals(SIZE + 1, posted);
+        assertEquals(SIZE * 2 - posted, outbox.getDropped());
+        assertTrue(outbox.isOpen());
+
+        stall.countDown();
+        outbox.close();
+        assertFalse(outbox.post(new GameOver(-1)));
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals(posted, sent.size());
+
+        for(int k=0; k < sent.size(); k++)
+            assertEquals(k, (int) sent.get(k));
+
+        // What queued behind the stalled write went out as one frame
+        assertEquals(2, frames.get());
+    }
+
+    /**
+     * Tests the disconnect policy.
+     */
+    protected void disconnect() throws Exception {
+        CountDownLatch stall = new CountDownLatch(1);
+        AtomicInteger closes = new AtomicInteger();
+
+        Outbox outbox = new Outbox("disconnect", msg -> await(stall), () -> {
+            closes.incrementAndGet();
+            stall.countDown();
+        }, SIZE, Outbox.Policy.DISCONNECT, SIZE);
+
+        stalled(outbox, new GameOver(0));
+
+        int k = 1;
+        while(outbox.post(new GameOver(k)))
+            k++;
+
+        assertEquals(SIZE + 1, k);
+        assertFalse(outbox.isOpen());
+        assertEquals(0, outbox.size());
+        assertFalse(outbox.post(new GameOver(k)));
+
+        outbox.close();
+        Thread.sleep(WAIT * 10);
+        assertEquals(1, closes.get());
+    }
+
+    /**
+     * Tests a table overflowed by a stalled courier delivers again after the
+     * courier rejoins with the table key.
+     */
+    protected void rejoin() throws Exception {
+        final long KEY = 0x5EEDL;
+        CountDownLatch stall = new CountDownLatch(1);
+        CountDownLatch dealt = new CountDownLatch(1);
+        AtomicInteger outboxes = new AtomicInteger();
+
+        // The first outbox stalls as a courier that stopped reading would,
+        // disconnecting releases it; the ones after deliver
+        RealPlayer player = new RealPlayer(null, "127.0.0.1:1") {
+            @Override
+            protected Outbox newOutbox() {
+                boolean stalled = outboxes.getAndIncrement() == 0;
+
+                return new Outbox("rejoin", msg -> {
+                    if(stalled)
+                        await(stall);
+                    else if(msg instanceof Deal)
+                        dealt.countDown();
+                }, stall::countDown, SIZE, Outbox.Policy.DISCONNECT, 1);
+            }
+        };
+        player.setSession(9, KEY);
+
+        Outbox overflowed = player.getOutbox();
+
+        int k = 0;
+        while(overflowed.isOpen() && k < SIZE * 4)
+            player.send(new GameOver(k++));
+
+        assertFalse(overflowed.isOpen());
+        assertSame(overflowed, player.getOutbox());
+
+        // A bad key gets nowhere
+        player.deliver(new Stub(player), new Rejoin(KEY + 1));
+        assertSame(overflowed, player.getOutbox());
+
+        player.deliver(new Stub(player), new Rejoin(KEY));
+        assertTrue(player.getOutbox().isOpen());
+
+        player.send(new Deal(new Hid(Seat.YOU), new int[] {10, 10}, new Card(10, Card.Suit.CLUBS)));
+        assertTrue(dealt.await(5, TimeUnit.SECONDS));
+
+        // A closed table stays closed
+        player.close();
+        player.deliver(new Stub(player), new Rejoin(KEY));
+        assertFalse(player.getOutbox().isOpen());
+        assertEquals(2, outboxes.get());
+    }
+
+    /**
+     * Posts a message and waits for the writer to take it.
+     * @param outbox Outbox
+     * @param msg Message
+     */
+    protected void stalled(Outbox outbox, Message msg) throws InterruptedException {
+        assertTrue(outbox.post(msg));
+
+        while(outbox.size() != 0)
+            Thread.sleep(1);
+
+        // The writer has the message, give it time to get to the consumer
+        Thread.sleep(WAIT);
+    }
+
+    /**
+     * Link which goes nowhere.
+     */
+    static class Stub extends Link {
+        Stub(RealPlayer player) {
+            super(player);
+        }
+
+        @Override
+        public void send(Message msg) {
+
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * Waits on a latch, as a writer stalled on a slow socket would.
+     * @param latch Latch
+     */
+    protected static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
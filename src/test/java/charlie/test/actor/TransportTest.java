@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.actor;
+
+import charlie.actor.last.Actor;
+import charlie.actor.last.BlockingTransport;
+import charlie.actor.last.Link;
+import charlie.actor.last.NettyTransport;
+import charlie.message.Message;
+import charlie.message.view.to.Ready;
+import charlie.plugin.ITransport;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static charlie.util.Constant.PLUGIN_TRANSPORT;
+
+/**
+ * This class tests that the event loop transport serves many concurrent
+ * links on a small, fixed number of threads, and that neither transport
+ * waits on an unreachable host past the connect timeout.
+ * @author Ron Coleman
+ */
+public class TransportTest extends TestCase {
+    final Logger LOG = Logger.getLogger(TransportTest.class);
+    final String ECHO_HOST = "127.0.0.1:9802";
+    final int CLIENTS = 1000;
+
+    final Semaphore replies = new Semaphore(0);
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        System.setProperty(PLUGIN_TRANSPORT, NettyTransport.class.getName());
+        System.setProperty(NettyTransport.IO_THREADS, "2");
+        System.setProperty(NettyTransport.ACTOR_THREADS, "4");
+
+        // Echo replies to each client over its own link
+        Actor echo = new Actor(ECHO_HOST) {
+            @Override
+            public void deliver(Link from, Message msg) {
+                try {
+                    from.send(new Ready(null));
+                } catch (IOException ex) {
+                    error(ex + "");
+                }
+            }
+        };
+        echo.start();
+
+        Thread.sleep(250);
+
+        int threads = Thread.activeCount();
+
+        List<Actor> clients = new ArrayList<>();
+        for(int i=0; i < CLIENTS; i++) {
+            Actor client = new Actor("", ECHO_HOST) { };
+            client.setListener(msg -> replies.release());
+            clients.add(client);
+
+            client.send(new Ready(null));
+        }
+
+        assertTrue(replies.tryAcquire(CLIENTS, 30, TimeUnit.SECONDS));
+
+        // Every client is still connected: send again over the same links
+        for(Actor client: clients)
+            client.send(new Ready(null));
+
+        assertTrue(replies.tryAcquire(CLIENTS, 30, TimeUnit.SECONDS));
+
+        int growth = Thread.activeCount() - threads;
+        LOG.info("clients = " + CLIENTS + " thread growth = " + growth);
+
+        assertTrue(growth < 32);
+
+        unreachable(new NettyTransport());
+        unreachable(new BlockingTransport());
+    }
+
+    /**
+     * Connects to a host which never answers.
+     * @param transport Transport
+     */
+    void unreachable(ITransport transport) throws Exception {
+        System.setProperty(ITransport.CONNECT_TIMEOUT, "250");
+
+        try {
+            Actor client = new Actor("", ECHO_HOST) { };
+
+            // Non-routable, so the connect fails or hangs unless something
+            // on the way, eg, a sandbox, answers for it
+            long start = System.currentTimeMillis();
+            try {
+                transport.connect(client, "10.255.255.1", 9).close();
+            }
+            catch(IOException ex) {
+                LOG.info("unreachable: " + ex);
+            }
+
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+        finally {
+            System.clearProperty(ITransport.CONNECT_TIMEOUT);
+        }
+    }
+}
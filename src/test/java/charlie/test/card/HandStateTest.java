@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.card;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hand;
+import charlie.card.HandState;
+import charlie.card.Hid;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * This class tests the hand state tables classify random hands the same as
+ * computing from the cards.
+ * @author Ron Coleman
+ */
+public class HandStateTest extends TestCase {
+    final int COUNT = 200000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() {
+        Random ran = new Random(0);
+
+        for(int n=0; n < COUNT; n++) {
+            Hand hand = new Hand(new Hid());
+
+            // Dealer hands start with a hole card
+            boolean hole = ran.nextInt(4) == 0;
+
+            int[] ranks = new int[1 + ran.nextInt(8)];
+
+            for(int k=0; k < ranks.length; k++) {
+                ranks[k] = 1 + ran.nextInt(13);
+
+                // Favor pairs and aces
+                if(k == 1 && ran.nextInt(3) == 0)
+                    ranks[k] = ranks[0];
+                else if(ran.nextInt(5) == 0)
+                    ranks[k] = Card.ACE;
+
+                int code = Cards.code(ranks[k], Card.Suit.values()[ran.nextInt(4)]);
+
+                hand.hit(k == 0 && hole ? code | Cards.HOLE : code);
+
+                check(hand, ranks, k + 1, hole);
+            }
+
+            if(hole) {
+                hand.revalue();
+                check(hand, ranks, ranks.length, false);
+            }
+        }
+    }
+
+    /**
+     * Checks the hand against the cards.
+     * @param hand Hand
+     * @param ranks Ranks of the cards
+     * @param size Number of cards in the hand
+     * @param hole True if the first card isn't counted
+     */
+    void check(Hand hand, int[] ranks, int size, boolean hole) {
+        int hard = 0;
+        boolean ace = false;
+
+        for(int k=hole ? 1 : 0; k < size; k++) {
+            hard += Math.min(ranks[k], 10);
+            ace |= ranks[k] == Card.ACE;
+        }
+
+        int value = ace && hard + 10 <= 21 ? hard + 10 : hard;
+
+        assertEquals(value, hand.getValue());
+        assertEquals(hard > 21, hand.isBroke());
+        assertEquals(size == 2 && value == 21 && (ranks[0] == Card.ACE || ranks[1] == Card.ACE), hand.isBlackjack());
+        assertEquals(size == 5 && value <= 21, hand.isCharlie());
+        assertEquals(size == 2 && ranks[0] == ranks[1], hand.isPair());
+
+        int state = hand.getState();
+
+        if(hard <= 21)
+            assertEquals(value, HandState.getValue(state));
+
+        assertEquals(value == 21 || hard > 21 || hand.isBlackjack() || hand.isCharlie(), HandState.isDone(state));
+        assertEquals(hand.isPair() ? ranks[0] : 0, HandState.getPairRank(state));
+        assertEquals(Math.min(size, 6), HandState.getCount(state));
+    }
+}
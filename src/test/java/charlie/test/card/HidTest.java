@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.card;
+
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import junit.framework.TestCase;
+
+/**
+ * This class tests hand id identity rests on the key alone: keys are unique,
+ * and copies, wire copies and serialized copies are equal with the same hash.
+ * @author Ron Coleman
+ */
+public class HidTest extends TestCase {
+    final int COUNT = 100000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        HashSet<Long> keys = new HashSet<>();
+        HashMap<Hid,Integer> hids = new HashMap<>();
+
+        for(int k=0; k < COUNT; k++) {
+            Hid hid = new Hid(Seat.YOU);
+            assertTrue(keys.add(hid.getKey()));
+            hids.put(hid, k);
+        }
+
+        assertEquals(COUNT, hids.size());
+
+        Hid hid = new Hid(Seat.RIGHT, 10.0, 1.0);
+        Hid copy = new Hid(hid);
+        Hid wire = new Hid(hid.getKey(), Seat.RIGHT);
+
+        assertEquals(hid, copy);
+        assertEquals(hid, wire);
+        assertEquals(hid.hashCode(), copy.hashCode());
+        assertEquals(hid.hashCode(), wire.hashCode());
+        assertFalse(hid.equals(new Hid(Seat.RIGHT)));
+
+        // Seat and bets are not part of the identity
+        int hash = hid.hashCode();
+        hid.setSeat(Seat.LEFT);
+        hid.dubble();
+        assertEquals(hash, hid.hashCode());
+        assertEquals(copy, hid);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(copy);
+        }
+
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Hid serial = (Hid) in.readObject();
+            assertEquals(copy, serial);
+            assertEquals(copy.hashCode(), serial.hashCode());
+        }
+
+        assertTrue(hid.toString().endsWith(Long.toHexString(hid.getKey()).toUpperCase()));
+    }
+}
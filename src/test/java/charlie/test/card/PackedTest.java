@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.card;
+
+import charlie.card.Card;
+import charlie.card.Cards;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.shoe.PackedShoe;
+import charlie.shoe.Shoe;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the packed shoe deals the same as the list shoe and that
+ * hands over card codes value the same as over cards.
+ * @author Ron Coleman
+ */
+public class PackedTest extends TestCase {
+    /**
+     * Runs the test.
+     */
+    public void test() {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            shoes();
+            hands();
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Deals both shoes through several shuffles from the same seed.
+     */
+    void shoes() {
+        Shoe shoe = new Shoe(6, 42L);
+        shoe.init();
+
+        PackedShoe packed = new PackedShoe(6, 42L);
+        packed.init();
+
+        for(int shuffles=0; shuffles < 5; shuffles++) {
+            while(!shoe.shuffleNeeded()) {
+                assertFalse(packed.shuffleNeeded());
+                assertEquals(shoe.size(), packed.size());
+
+                Card card = shoe.next();
+
+                assertSame(card, packed.next());
+            }
+
+            assertTrue(packed.shuffleNeeded());
+
+            shoe.shuffle();
+            packed.shuffle();
+        }
+    }
+
+    /**
+     * Checks values, blackjack, pairs, splits and hole cards.
+     */
+    void hands() {
+        Hand hand = new Hand(new Hid());
+        hand.hit(Cards.card(Card.ACE, Card.Suit.SPADES));
+        hand.hit(Cards.code(Card.KING, Card.Suit.HEARTS));
+        assertTrue(hand.isBlackjack());
+        assertEquals(21, hand.getValue());
+        assertEquals(11, hand.getValues()[0]);
+
+        hand = new Hand(new Hid());
+        hand.hit(Cards.card(Card.ACE, Card.Suit.SPADES));
+        hand.hit(Cards.card(Card.ACE, Card.Suit.CLUBS));
+        assertTrue(hand.isPair());
+        assertEquals(12, hand.getValue());
+
+        Hand other = hand.split(new Hid());
+        assertEquals(1, hand.size());
+        assertEquals(1, other.size());
+        assertEquals(11, hand.getValue());
+        assertSame(Cards.card(Card.ACE, Card.Suit.CLUBS), other.getCard(0));
+
+        // Charlie and growth past the initial capacity
+        hand = new Hand(new Hid());
+        for(int k=0; k < 12; k++)
+            hand.hit(Cards.code(Card.ACE, Card.Suit.DIAMONDS));
+        assertEquals(12, hand.size());
+        assertEquals(12, hand.getValue());
+        assertFalse(hand.isCharlie());
+
+        // Hole card counts only once revalued
+        hand = new Hand(new Hid());
+        hand.hit(new HoleCard(new Card(9, Card.Suit.HEARTS)));
+        hand.hit(new Card(8, Card.Suit.HEARTS));
+        assertTrue(hand.getCard(0) instanceof HoleCard);
+        assertEquals(8, hand.getValue());
+        hand.revalue();
+        assertEquals(17, hand.getValue());
+
+        // Every card round trips through its code
+        for(Card.Suit suit: Card.Suit.values()) {
+            for(int rank=Card.ACE; rank <= Card.KING; rank++) {
+                Card card = Cards.card(rank, suit);
+
+                assertEquals(rank, card.getRank());
+                assertEquals(suit, card.getSuit());
+                assertSame(card, Cards.card(Cards.code(card)));
+                assertEquals((int) card.value(), Cards.value(Cards.code(card)));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.dealer;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Dealer;
+import charlie.dealer.Seat;
+import charlie.dealer.ZeroPacer;
+import charlie.plugin.IPacer;
+import charlie.plugin.IPlayer;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * This class tests a headless dealer with zero pacing asks to pause as it
+ * would for a human but never waits. Hands per hour are for
+ * charlie.bench.DealerBench.
+ * @author Ron Coleman
+ */
+public class PacerTest extends TestCase implements IPlayer {
+    final Logger LOG = Logger.getLogger(PacerTest.class);
+    final int COUNT = 20000;
+
+    Dealer dealer;
+    int games = 0;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            Counter pacer = new Counter(new ZeroPacer());
+            dealer = new Dealer(null, pacer);
+
+            for(int i=0; i < COUNT; i++)
+                dealer.bet(this, new Hid(Seat.YOU));
+
+            assertEquals(COUNT, games);
+
+            // Real-time pacing is at least 3.25 s per hand
+            assertTrue(pacer.pauses >= COUNT);
+            assertTrue(pacer.asked >= COUNT * 3250L);
+
+            LOG.warn("zero pacing asked " + pacer.asked + " ms, paused " + pacer.nanos / 1000000 + " ms");
+
+            // Not sleeping at all: a generous bound against the delay asked for
+            assertTrue(pacer.nanos / 1000000 < pacer.asked / 100);
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Counts the pauses a pacer is asked for and the time it takes in them.
+     */
+    static class Counter implements IPacer {
+        final IPacer pacer;
+        long pauses = 0;
+        long asked = 0;
+        long nanos = 0;
+
+        Counter(IPacer pacer) {
+            this.pacer = pacer;
+        }
+
+        @Override
+        public void pause(long millis) throws InterruptedException {
+            long start = System.nanoTime();
+            pacer.pause(millis);
+            nanos += System.nanoTime() - start;
+
+            pauses++;
+            asked += millis;
+        }
+    }
+
+    @Override
+    public void play(Hid hid) {
+        if(hid.getSeat() == Seat.YOU)
+            dealer.stay(this, hid);
+    }
+
+    @Override
+    public void endGame(int shoeSize) {
+        games++;
+    }
+
+    @Override
+    public void startGame(List<Hid> hids, int shoeSize) {
+
+    }
+
+    @Override
+    public void deal(Hid hid, Card card, int[] values) {
+
+    }
+
+    @Override
+    public void insure() {
+
+    }
+
+    @Override
+    public void bust(Hid hid) {
+
+    }
+
+    @Override
+    public void win(Hid hid) {
+
+    }
+
+    @Override
+    public void blackjack(Hid hid) {
+
+    }
+
+    @Override
+    public void charlie(Hid hid) {
+
+    }
+
+    @Override
+    public void lose(Hid hid) {
+
+    }
+
+    @Override
+    public void push(Hid hid) {
+
+    }
+
+    @Override
+    public void shuffling() {
+
+    }
+
+    @Override
+    public void split(Hid newHid, Hid origHid) {
+
+    }
+}
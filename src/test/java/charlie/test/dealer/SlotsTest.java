@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.dealer;
+
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.dealer.Slots;
+import charlie.plugin.IPlayer;
+import charlie.sim.DealerAdvisor;
+import charlie.sim.SimPlayer;
+import charlie.sim.Stats;
+import junit.framework.TestCase;
+
+/**
+ * This class tests the dealer's table keeps hands in play order with split
+ * hands right after their original and finds hands by copies of their ids.
+ * @author Ron Coleman
+ */
+public class SlotsTest extends TestCase {
+    /**
+     * Runs the test.
+     */
+    public void test() {
+        Slots slots = new Slots();
+
+        // Same table reused for a few games
+        for(int game=0; game < 3; game++) {
+            IPlayer huey = new SimPlayer(new DealerAdvisor(), new Stats(1.0));
+            IPlayer you = new SimPlayer(new DealerAdvisor(), new Stats(1.0));
+            IPlayer dewey = new SimPlayer(new DealerAdvisor(), new Stats(1.0));
+
+            Hand right = new Hand(new Hid(Seat.RIGHT));
+            Hand yours = new Hand(new Hid(Seat.YOU));
+            Hand left = new Hand(new Hid());
+
+            slots.clear();
+            assertEquals(0, slots.size());
+
+            assertTrue(slots.sit(huey, Seat.RIGHT, right));
+            assertTrue(slots.sit(you, Seat.YOU, yours));
+            assertFalse(slots.sit(dewey, Seat.YOU, left));
+            assertTrue(slots.sit(dewey, Seat.LEFT, left));
+            assertEquals(3, slots.size());
+
+            // Split twice to outgrow the initial row
+            Hand split1 = new Hand(new Hid(Seat.YOU));
+            Hand split2 = new Hand(new Hid(Seat.YOU));
+            Hand split3 = new Hand(new Hid(Seat.YOU));
+            assertTrue(slots.split(yours.getHid(), split1));
+            assertTrue(slots.split(yours.getHid(), split2));
+            assertTrue(slots.split(split2.getHid(), split3));
+            assertFalse(slots.split(new Hid(Seat.YOU), new Hand()));
+
+            Hand[] expected = {right, yours, split2, split3, split1, left};
+            assertEquals(expected.length, slots.size());
+
+            for(int k=0; k < expected.length; k++) {
+                assertSame(expected[k], slots.getHand(k));
+                assertSame(expected[k].getHid(), slots.getHid(k));
+            }
+
+            assertNull(slots.getHand(expected.length));
+
+            // By copy, as from the other end of a link
+            Hid copy = new Hid(split3.getHid().getKey(), Seat.YOU);
+            assertSame(split3, slots.getHand(copy));
+            assertSame(you, slots.getPlayer(copy));
+
+            // Dewey's hid says YOU but he sits LEFT
+            assertSame(left, slots.getHand(new Hid(left.getHid())));
+            assertSame(dewey, slots.getPlayer(left.getHid()));
+
+            assertNull(slots.getHand(new Hid(Seat.DEALER)));
+            assertNull(slots.getPlayer(new Hid(Seat.DEALER)));
+            assertNull(slots.getPlayer(null));
+        }
+    }
+}
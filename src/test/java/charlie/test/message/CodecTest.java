@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.message;
+
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.card.HoleCard;
+import charlie.dealer.Seat;
+import charlie.message.Batch;
+import charlie.message.BinaryCodec;
+import charlie.message.Message;
+import charlie.message.SerialCodec;
+import charlie.message.view.from.Arrival;
+import charlie.message.view.from.Bet;
+import charlie.message.view.from.Login;
+import charlie.message.view.from.Logout;
+import charlie.message.view.from.Rejoin;
+import charlie.message.view.from.Request;
+import charlie.message.view.from.Stay;
+import charlie.message.view.to.Deal;
+import charlie.message.view.to.GameOver;
+import charlie.message.view.to.GameStart;
+import charlie.message.view.to.Play;
+import charlie.message.view.to.Ready;
+import charlie.message.view.to.SplitResponse;
+import charlie.message.view.to.Win;
+import charlie.plugin.ICodec;
+import charlie.server.Ticket;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * This class tests the binary codec round trips every message type and
+ * compares its frame sizes against serialization. Throughput is for
+ * charlie.bench.MessageBench.
+ * @author Ron Coleman
+ */
+public class CodecTest extends TestCase {
+    final Logger LOG = Logger.getLogger(CodecTest.class);
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        InetAddress source = InetAddress.getByName("127.0.0.1");
+
+        Hid you = new Hid(Seat.YOU, 25.0, 2.5);
+        you.request(charlie.util.Play.HIT);
+        you.request(charlie.util.Play.DOUBLE_DOWN);
+        you.setSplit(true);
+
+        Hid odd = new Hid(Seat.RIGHT, 1.0 / 3.0, 0.0);
+        Hid dealer = new Hid(Seat.DEALER);
+
+        // One pair of codecs, ie, one direction of one link, for everything
+        BinaryCodec encoder = new BinaryCodec();
+        BinaryCodec decoder = new BinaryCodec();
+
+        Deal deal = new Deal(you, new int[] {13, 13}, new Card(Card.ACE, Card.Suit.HEARTS));
+        deal.setSession(7);
+        deal.setSequence(1L << 40);
+        Deal deal2 = (Deal) roundTrip(encoder, decoder, deal);
+        assertEquals(7, deal2.getSession());
+        assertEquals(1L << 40, deal2.getSequence());
+        assertEquals(deal.getSerialno(), deal2.getSerialno());
+        assertEquals(deal.getStamp(), deal2.getStamp());
+        assertHid(you, deal2.getHid());
+        assertTrue(Arrays.equals(deal.getHandValues(), deal2.getHandValues()));
+        assertCard(deal.getCard(), deal2.getCard());
+
+        // Now by handle
+        deal = new Deal(dealer, null, new HoleCard(new Card(Card.KING, Card.Suit.SPADES)));
+        deal2 = (Deal) roundTrip(encoder, decoder, deal);
+        assertHid(dealer, deal2.getHid());
+        assertNull(deal2.getHandValues());
+        assertTrue(deal2.getCard() instanceof HoleCard);
+        assertCard(deal.getCard(), deal2.getCard());
+
+        assertNull(((Deal) roundTrip(encoder, decoder, new Deal(you, new int[] {4, 4}, null))).getCard());
+
+        assertHid(odd, ((Bet) roundTrip(encoder, decoder, new Bet(odd))).getHid());
+        assertHid(you, ((Stay) roundTrip(encoder, decoder, new Stay(you))).getHid());
+        assertHid(you, ((Win) roundTrip(encoder, decoder, new Win(you))).getHid());
+        assertHid(dealer, ((Play) roundTrip(encoder, decoder, new Play(dealer))).getHid());
+        assertNull(((Request) roundTrip(encoder, decoder, new Logout())).getHid());
+
+        SplitResponse split = (SplitResponse) roundTrip(encoder, decoder, new SplitResponse(odd, you));
+        assertHid(odd, split.getNewHid());
+        assertHid(you, split.getOrigHid());
+
+        GameStart start = (GameStart) roundTrip(encoder, decoder, new GameStart(Arrays.asList(you, odd, dealer), 312));
+        assertEquals(312, start.shoeSize());
+        assertEquals(3, start.getHids().size());
+        assertHid(odd, start.getHids().get(1));
+
+        assertEquals(51, ((GameOver) roundTrip(encoder, decoder, new GameOver(51))).getShoeSize());
+
+        Ready ready = (Ready) roundTrip(encoder, decoder, new Ready(source, -2L));
+        assertEquals(source, ready.getSource());
+        assertEquals(-2L, ready.getKey());
+        assertEquals(Long.MAX_VALUE, ((Rejoin) roundTrip(encoder, decoder, new Rejoin(Long.MAX_VALUE))).getKey());
+
+        Login login = (Login) roundTrip(encoder, decoder, new Login("abc", null));
+        assertEquals("abc", login.getLogname());
+        assertNull(login.getPassword());
+
+        Ticket ticket = new Ticket(0xCAFEL, 1000.0);
+        ticket.use();
+        Arrival arrival = new Arrival(ticket, source, 1234);
+        arrival.enableBot(false);
+        Arrival arrival2 = (Arrival) roundTrip(encoder, decoder, arrival);
+        assertEquals(ticket, arrival2.getTicket());
+        assertEquals(1, arrival2.getTicket().getUsage());
+        assertEquals(1000.0, arrival2.getTicket().getBankroll());
+        assertEquals(1234, arrival2.getPort());
+        assertFalse(arrival2.isBotEnabled());
+
+        // A batch unpacks in order, parts and all
+        Deal part = new Deal(odd, new int[] {9, 19}, new Card(Card.ACE, Card.Suit.CLUBS));
+        part.setSession(7);
+        Win win = new Win(odd);
+        win.setSession(7);
+        Batch batch = (Batch) roundTrip(encoder, decoder, new Batch(Arrays.asList(part, new Custom(), win)));
+        assertEquals(7, batch.getSession());
+        assertEquals(3, batch.size());
+        assertHid(odd, ((Deal) batch.getMessages().get(0)).getHid());
+        assertCard(part.getCard(), ((Deal) batch.getMessages().get(0)).getCard());
+        assertTrue(batch.getMessages().get(1) instanceof Custom);
+        assertEquals(win.getSerialno(), batch.getMessages().get(2).getSerialno());
+        assertEquals(7, batch.getMessages().get(2).getSession());
+        assertEquals(3, ((Batch) roundTrip(new SerialCodec(), new SerialCodec(), batch)).size());
+
+        // Unknown messages fall back to serialization
+        Message custom = new Custom();
+        assertEquals(custom.getSerialno(), roundTrip(encoder, decoder, custom).getSerialno());
+
+        // Cards are one byte either way
+        for(Card.Suit suit: Card.Suit.values())
+            for(int rank=Card.ACE; rank <= Card.KING; rank++)
+                assertCard(new Card(rank, suit), BinaryCodec.toCard(BinaryCodec.toByte(new Card(rank, suit))));
+
+        // A fresh decoder can't resolve handles it never saw defined
+        encoder.encode(new Stay(you), new DataOutputStream(new ByteArrayOutputStream()));
+        try {
+            new BinaryCodec().decode(input(encode(encoder, new Stay(you))));
+            fail("undefined handle decoded");
+        }
+        catch(IOException expected) {
+
+        }
+
+        sizes();
+    }
+
+    /**
+     * Compares the frame sizes of a deal, the most common message.
+     */
+    void sizes() throws IOException {
+        Hid hid = new Hid(Seat.YOU, 10.0, 0.0);
+        Deal deal = new Deal(hid, new int[] {17, 17}, new Card(7, Card.Suit.CLUBS));
+
+        int serial = encode(new SerialCodec(), deal).length;
+
+        BinaryCodec binary = new BinaryCodec();
+        int first = encode(binary, deal).length;
+        int next = encode(binary, deal).length;
+
+        LOG.info("deal frame size serial = " + serial + " binary = " + first + " then " + next + " bytes");
+
+        assertTrue(first * 10 < serial);
+        assertTrue(next < first);
+    }
+
+    /**
+     * Sends a message through a pair of codecs.
+     * @param encoder Encoding codec
+     * @param decoder Decoding codec
+     * @param msg Message
+     * @return Decoded message
+     */
+    Message roundTrip(ICodec encoder, ICodec decoder, Message msg) throws IOException {
+        Message copy = decoder.decode(input(encode(encoder, msg)));
+
+        assertEquals(msg.getClass(), copy.getClass());
+
+        return copy;
+    }
+
+    /**
+     * Encodes a message as a frame body.
+     * @param codec Codec
+     * @param msg Message
+     * @return Bytes
+     */
+    byte[] encode(ICodec codec, Message msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        codec.encode(msg, out);
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    void assertHid(Hid expected, Hid actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getSeat(), actual.getSeat());
+        assertEquals(expected.getAmt(), actual.getAmt());
+        assertEquals(expected.getSideAmt(), actual.getSideAmt());
+        assertEquals(expected.isSplit(), actual.isSplit());
+        assertEquals(expected.getRequests(), actual.getRequests());
+    }
+
+    void assertCard(Card expected, Card actual) {
+        assertEquals(expected.getRank(), actual.getRank());
+        assertEquals(expected.getSuit(), actual.getSuit());
+    }
+
+    /**
+     * Message the binary codec doesn't know, eg, from a plugin.
+     */
+    static class Custom extends Message {
+
+    }
+}
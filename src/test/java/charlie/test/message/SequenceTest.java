@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.message;
+
+import charlie.message.Message;
+import charlie.message.Sequence;
+import charlie.message.view.to.GameOver;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests serial numbers stay unique across threads and that the
+ * receiver of a session spots missing and late messages.
+ * @author Ron Coleman
+ */
+public class SequenceTest extends TestCase {
+    final int THREADS = 4;
+    final int COUNT = 50000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.ERROR);
+
+        try {
+            serials();
+            sequences();
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Tests serial numbers from many threads.
+     */
+    protected void serials() throws Exception {
+        ConcurrentHashMap<Long,Boolean> serials = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+        for(int t=0; t < THREADS; t++)
+            pool.execute(() -> {
+                for(int k=0; k < COUNT; k++)
+                    serials.put(new GameOver(k).getSerialno(), true);
+            });
+
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(THREADS * COUNT, serials.size());
+    }
+
+    /**
+     * Tests a session's sequence with a drop and a late message.
+     */
+    protected void sequences() {
+        Sequence sender = new Sequence();
+        Sequence receiver = new Sequence();
+
+        Message[] msgs = new Message[6];
+        for(int k=0; k < msgs.length; k++) {
+            msgs[k] = new GameOver(k);
+            msgs[k].setSession(3);
+            assertEquals(k + 1, sender.next(msgs[k]));
+        }
+
+        assertTrue(receiver.check(msgs[0]));
+        assertTrue(receiver.check(msgs[1]));
+
+        // Drop 2, then 3 arrives before 4 is late
+        assertFalse(receiver.check(msgs[3]));
+        assertEquals(1, receiver.getGaps());
+        assertTrue(receiver.check(msgs[4]));
+        assertFalse(receiver.check(msgs[2]));
+        assertEquals(1, receiver.getLate());
+        assertTrue(receiver.check(msgs[5]));
+
+        // Unsequenced messages pass
+        assertTrue(receiver.check(new GameOver(0)));
+
+        // A new session starts over
+        Message next = new GameOver(0);
+        next.setSession(4);
+        next.setSequence(1);
+        assertTrue(receiver.check(next));
+        assertEquals(1, receiver.getGaps());
+    }
+}
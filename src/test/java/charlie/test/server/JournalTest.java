@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.server;
+
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.server.Journal;
+import charlie.server.Ticket;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class tests the journal recovers every account after a crash, across
+ * snapshots, and measures what it adds to a settlement.
+ * @author Ron Coleman
+ */
+public class JournalTest extends TestCase {
+    final Logger LOG = Logger.getLogger(JournalTest.class);
+    final int THREADS = 4;
+    final int SETTLEMENTS = 20000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        File dir = Files.createTempDirectory("journal").toFile();
+        String path = new File(dir, "charlie").getPath();
+
+        try {
+            // Accounts open with the ticket's bankroll, settle from many threads
+            Journal journal = new Journal(path, 1 << 24, 5);
+
+            Ticket[] tickets = new Ticket[THREADS];
+            for(int i=0; i < THREADS; i++) {
+                tickets[i] = new Ticket(i + 1, 1000.0);
+                journal.open("player" + i, tickets[i]);
+            }
+
+            long start = System.nanoTime();
+            settle(journal, tickets);
+            long elapsed = System.nanoTime() - start;
+
+            LOG.fatal("journal settlement = " + (elapsed / (THREADS * SETTLEMENTS)) + " ns");
+
+            for(int i=0; i < THREADS; i++)
+                assertEquals(tickets[i].getCents(), (long) journal.getBalance("player" + i));
+
+            // Crash: the map is all there is, no snapshot
+            assertFalse(new File(path + ".snap").exists());
+
+            Journal recovered = new Journal(path, 1 << 24, 5);
+            assertEquals(THREADS + THREADS * SETTLEMENTS, recovered.getRecords());
+
+            // A returning player gets the bankroll back, a new one the ticket's
+            for(int i=0; i < THREADS; i++) {
+                Ticket ticket = new Ticket(100 + i, 1000.0);
+                recovered.open("player" + i, ticket);
+                assertEquals(tickets[i].getCents(), ticket.getCents());
+            }
+
+            Ticket stranger = new Ticket(200, 500.0);
+            recovered.open("stranger", stranger);
+            assertEquals(50000L, (long) recovered.getBalance("stranger"));
+
+            // Retired tickets no longer settle
+            recovered.retire(stranger);
+            recovered.settle(stranger, new Hid(Seat.YOU), 100);
+            assertEquals(50000L, (long) recovered.getBalance("stranger"));
+
+            recovered.close();
+            assertTrue(new File(path + ".snap").exists());
+            assertEquals(0, new Journal(path, 1 << 24, 5).getRecords());
+
+            // A small log rolls over to snapshots as it fills
+            String path2 = new File(dir, "small").getPath();
+            Journal small = new Journal(path2, 4096, 5);
+
+            Ticket ticket = new Ticket(1, 10.0);
+            small.open("small", ticket);
+            for(int i=0; i < 1000; i++) {
+                ticket.credit(5);
+                small.settle(ticket, new Hid(Seat.YOU), 5);
+            }
+            assertTrue(small.getRecords() < 1000);
+
+            // The committer rolls the log over, not the dealer
+            small.sync();
+            assertEquals(ticket.getCents(), (long) new Journal(path2, 4096, 5).getBalance("small"));
+
+            // A torn record at the tail is dropped, the rest survive
+            ticket.credit(7);
+            small.settle(ticket, new Hid(Seat.YOU), 7);
+            long records = small.getRecords();
+
+            try(RandomAccessFile raf = new RandomAccessFile(path2 + ".log", "rw")) {
+                int offset = tail(raf);
+                raf.seek(offset + 4);
+                raf.writeInt(raf.readInt() ^ 1);
+            }
+
+            Journal torn = new Journal(path2, 4096, 5);
+            assertEquals(records - 1, torn.getRecords());
+            assertEquals(ticket.getCents() - 7, (long) torn.getBalance("small"));
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+
+            for(File file: dir.listFiles())
+                file.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Credits wins and losses from many threads, one account each.
+     * @param journal Journal
+     * @param tickets Accounts
+     */
+    void settle(Journal journal, Ticket[] tickets) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for(int i=0; i < THREADS; i++) {
+            Ticket ticket = tickets[i];
+            new Thread(() -> {
+                Hid hid = new Hid(Seat.YOU, 5.0, 0.0);
+                for(int k=0; k < SETTLEMENTS; k++) {
+                    long cents = k % 3 == 0 ? 750 : -500;
+                    ticket.credit(cents);
+                    journal.settle(ticket, hid, cents);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        done.await();
+    }
+
+    /**
+     * Finds the last record in a log.
+     * @param raf Log file
+     * @return Offset of the last record
+     */
+    int tail(RandomAccessFile raf) throws Exception {
+        int offset = 12;
+        int last = -1;
+
+        raf.seek(offset);
+        int length;
+        while((length = raf.readInt()) > 0) {
+            last = offset;
+            offset += 8 + length;
+            raf.seek(offset);
+        }
+
+        return last;
+    }
+}
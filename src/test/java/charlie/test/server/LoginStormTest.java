@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.server;
+
+import charlie.actor.ClientAuthenticator;
+import charlie.server.GameServer;
+import charlie.server.Ticket;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class storms the login port with concurrent clients and measures
+ * logins per second.
+ * @author Ron Coleman
+ */
+public class LoginStormTest extends TestCase {
+    final Logger LOG = Logger.getLogger(LoginStormTest.class);
+    final String CHARLIE_PROPS_PATH = System.getProperty("charlie.props","charlie.props");
+    final int CLIENTS = 32;
+    final int LOGINS = 50;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        System.getProperties().load(new FileInputStream(CHARLIE_PROPS_PATH));
+
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            GameServer server = new GameServer();
+            Thread listener = new Thread(server::go);
+            listener.setDaemon(true);
+            listener.start();
+
+            Thread.sleep(500);
+
+            // Bad credentials get an answer, not a hung socket
+            assertNull(new ClientAuthenticator().send("abc", null));
+
+            ConcurrentLinkedQueue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+            AtomicInteger failures = new AtomicInteger();
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(CLIENTS);
+
+            for(int i=0; i < CLIENTS; i++) {
+                int client = i;
+                new Thread(() -> {
+                    try {
+                        go.await();
+
+                        ClientAuthenticator authenticator = new ClientAuthenticator();
+                        for(int k=0; k < LOGINS; k++) {
+                            Ticket ticket = authenticator.send("client" + client, "pw");
+                            if(ticket == null)
+                                failures.incrementAndGet();
+                            else
+                                tickets.add(ticket);
+                        }
+                    } catch (InterruptedException ex) {
+                        failures.incrementAndGet();
+                    }
+                    done.countDown();
+                }).start();
+            }
+
+            long start = System.nanoTime();
+            go.countDown();
+
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+
+            double secs = (System.nanoTime() - start) / 1e9;
+
+            LOG.fatal("clients = " + CLIENTS + " logins = " + tickets.size() + " in " + (long) (secs * 1000) + " ms = "
+                    + (long) (tickets.size() / secs) + " logins/sec");
+
+            // Every login got its own ticket and the house knows about it
+            assertEquals(0, failures.get());
+            assertEquals(CLIENTS * LOGINS, tickets.size());
+
+            Set<Ticket> unique = new HashSet<>(tickets);
+            assertEquals(CLIENTS * LOGINS, unique.size());
+
+            for(Ticket ticket: tickets)
+                assertTrue(server.getRegistry().valid(ticket));
+
+            assertEquals(CLIENTS * LOGINS, server.getRegistry().getIssued());
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+}
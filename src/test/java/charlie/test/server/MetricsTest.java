@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.server;
+
+import charlie.util.Histogram;
+import charlie.util.Metrics;
+import junit.framework.TestCase;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class tests the histograms stay within their precision and the
+ * metrics reach JMX and the text endpoint.
+ * @author Ron Coleman
+ */
+public class MetricsTest extends TestCase {
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        // Small values are exact, big ones within a bucket, ie, 1/16
+        Histogram histogram = new Histogram("test");
+        for(int i=1; i <= 10; i++)
+            histogram.record(i);
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(100));
+        assertEquals(5.5, histogram.getMean());
+
+        Histogram latency = new Histogram("latency");
+        Random ran = new Random(0);
+        long[] values = new long[100000];
+        for(int i=0; i < values.length; i++) {
+            values[i] = 1000 + (long) (ran.nextDouble() * 10000000);
+            latency.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        for(double percent: new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percent / 100) - 1];
+            long estimate = latency.getPercentile(percent);
+            assertTrue(percent + "%: " + estimate + " vs " + exact, Math.abs(estimate - exact) <= exact / 16);
+        }
+        assertEquals(values[values.length - 1], latency.getMax());
+        assertEquals(0, new Histogram("empty").getPercentile(99));
+
+        // Table metrics count toward the whole and go when the table does
+        Metrics metrics = Metrics.getInstance();
+        metrics.record("test.latency", 7, 100);
+        metrics.record("test.latency", 8, 300);
+        metrics.count("test.hands", 7);
+        metrics.gauge("test.gauge", () -> 42);
+
+        assertEquals(2, metrics.histogram("test.latency").getCount());
+        assertEquals(1, metrics.histogram("test.latency{table=7}").getCount());
+        assertEquals(1, metrics.getCount("test.hands{table=7}"));
+        assertEquals(42, metrics.getCount("test.gauge"));
+
+        // A table's handle records into the whole without a lookup
+        Histogram table = metrics.histogram("test.latency", 8);
+        assertSame(table, metrics.histogram("test.latency{table=8}"));
+        table.record(500);
+        assertEquals(3, metrics.histogram("test.latency").getCount());
+        assertEquals(500, metrics.histogram("test.latency").getMax());
+
+        metrics.drop(7);
+        assertFalse(metrics.getReport().contains("{table=7}"));
+        assertTrue(metrics.getReport().contains("test.latency{table=8} count=2"));
+
+        // Scrape it
+        metrics.start(0);
+        try {
+            MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+            assertTrue(((String) mbeans.getAttribute(name, "Report")).contains("test.gauge 42"));
+            assertEquals(1L, mbeans.invoke(name, "getCount", new Object[] {"test.hands"}, new String[] {"java.lang.String"}));
+
+            URL url = new URL("http://127.0.0.1:" + metrics.getPort() + "/metrics");
+            try(InputStream in = url.openStream()) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(text.contains("test.hands 1"));
+                assertTrue(text.contains("test.latency count=3"));
+            }
+        }
+        finally {
+            metrics.stop();
+        }
+    }
+}
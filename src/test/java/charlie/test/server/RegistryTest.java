@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.server;
+
+import charlie.plugin.IPlayer;
+import charlie.server.Registry;
+import charlie.server.Ticket;
+import charlie.sim.DealerAdvisor;
+import charlie.sim.SimPlayer;
+import charlie.sim.Stats;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * This class tests tickets validate, bind once, expire and retire, and that the
+ * registry holds up under many threads logging in and out at once.
+ * @author Ron Coleman
+ */
+public class RegistryTest extends TestCase {
+    final int THREADS = 8;
+    final int LOGINS = 5000;
+    final long TTL = 50;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        lifecycle();
+        expiry();
+        storm();
+    }
+
+    /**
+     * Tests a ticket from login to logout.
+     */
+    protected void lifecycle() {
+        Registry registry = new Registry(60000);
+        IPlayer player = newPlayer();
+
+        Ticket issued = new Ticket(0xABCL, 1000.0);
+        Ticket copy = new Ticket(0xABCL, 5.0);
+
+        assertFalse(registry.valid(copy));
+        assertNull(registry.bind(player, copy));
+
+        registry.issue(issued);
+        assertTrue(registry.valid(copy));
+        assertFalse(registry.valid(new Ticket(0xABDL, 1000.0)));
+        assertFalse(registry.valid(null));
+
+        // The issued ticket holds the bankroll, not the client's copy
+        assertSame(issued, registry.bind(player, copy));
+        assertSame(issued, registry.getTicket(player));
+        assertEquals(1, registry.getPlayers());
+
+        // A replayed ticket can't take over or open a second account
+        IPlayer thief = newPlayer();
+        assertNull(registry.bind(thief, copy));
+        assertNull(registry.bind(player, copy));
+        assertNull(registry.getTicket(thief));
+        assertEquals(1, registry.getPlayers());
+
+        assertSame(issued, registry.logout(player));
+        assertNull(registry.getTicket(player));
+        assertFalse(registry.valid(copy));
+        assertNull(registry.logout(player));
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * Tests unredeemed tickets expire but bound ones don't.
+     */
+    protected void expiry() throws Exception {
+        // Long enough to bind before the clock ticks over
+        Registry registry = new Registry(TTL);
+        IPlayer player = newPlayer();
+
+        Ticket bound = new Ticket(1, 1000.0);
+        registry.issue(bound);
+        assertNotNull(registry.bind(player, bound));
+
+        Ticket idle = new Ticket(2, 1000.0);
+        registry.issue(idle);
+
+        Ticket swept = new Ticket(3, 1000.0);
+        registry.issue(swept);
+
+        Thread.sleep(TTL * 2);
+
+        assertFalse(registry.valid(idle));
+        assertEquals(2, registry.size());
+
+        assertEquals(1, registry.evict(System.currentTimeMillis()));
+        assertEquals(1, registry.size());
+        assertTrue(registry.valid(bound));
+    }
+
+    /**
+     * Tests many threads logging in and out at once.
+     */
+    protected void storm() throws Exception {
+        Registry registry = new Registry(60000);
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+        for(int t=0; t < THREADS; t++) {
+            final long base = (long) t * LOGINS;
+
+            pool.execute(() -> {
+                for(int k=0; k < LOGINS; k++) {
+                    Ticket ticket = new Ticket(base + k, 1000.0);
+                    IPlayer player = newPlayer();
+
+                    registry.issue(ticket);
+
+                    if(!registry.valid(ticket) || registry.bind(player, ticket) != ticket)
+                        failures.incrementAndGet();
+
+                    // Half stay logged in
+                    if(k % 2 == 0 && registry.logout(player) != ticket)
+                        failures.incrementAndGet();
+                }
+            });
+        }
+
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, failures.get());
+        assertEquals(THREADS * LOGINS, registry.getIssued());
+        assertEquals(THREADS * LOGINS / 2, registry.getPlayers());
+        assertEquals(THREADS * LOGINS / 2, registry.size());
+    }
+
+    /**
+     * Makes a player.
+     * @return Player
+     */
+    protected static IPlayer newPlayer() {
+        return new SimPlayer(new DealerAdvisor(), new Stats(1.0));
+    }
+}
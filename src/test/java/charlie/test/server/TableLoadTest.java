@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.server;
+
+import charlie.actor.Arriver;
+import charlie.actor.Courier;
+import charlie.actor.last.Actor;
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.message.view.from.Bet;
+import charlie.message.view.from.Rejoin;
+import charlie.plugin.IUi;
+import charlie.server.GameServer;
+import charlie.server.Ticket;
+import charlie.util.Metrics;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class load tests the game server with hundreds of simultaneous tables,
+ * each with its own courier, real player and dealer, in one JVM.
+ * @author Ron Coleman
+ */
+public class TableLoadTest extends TestCase {
+    final Logger LOG = Logger.getLogger(TableLoadTest.class);
+    final String CHARLIE_PROPS_PATH = System.getProperty("charlie.props","charlie.props");
+    final int TABLES = 200;
+    final int FIRST_COURIER_PORT = 8100;
+
+    final CountDownLatch gamesOver = new CountDownLatch(TABLES);
+    final AtomicInteger intrusions = new AtomicInteger();
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        System.getProperties().load(new FileInputStream(CHARLIE_PROPS_PATH));
+
+        GameServer server = new GameServer();
+        new Thread(server::go).start();
+
+        Thread.sleep(500);
+
+        // Skip the login handshake: the tickets are what the house validates
+        List<Courier> couriers = new ArrayList<>();
+        for(int i=0; i < TABLES; i++) {
+            Ticket ticket = new Ticket(i + 1, 1000.0);
+            server.getRegistry().issue(ticket);
+
+            int port = FIRST_COURIER_PORT + i;
+
+            Player player = new Player();
+            Courier courier = new Courier(player, "-1:" + port);
+            courier.start();
+            couriers.add(courier);
+
+            Thread.sleep(5);
+
+            new Arriver(ticket, port).send();
+        }
+
+        // Wait for every table to be ready
+        for(Courier courier: couriers) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while(courier.getSession() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+
+            assertTrue(courier.getSession() != 0);
+        }
+
+        assertEquals(TABLES, server.getTables().size());
+
+        // A stranger on the shared port can't play a table, even one whose
+        // session it guessed, without the table's key
+        Actor intruder = new Actor("", System.getProperty("charlie.server.realplayer")) { };
+        intruder.setListener(msg -> intrusions.incrementAndGet());
+
+        int victim = couriers.get(0).getSession();
+
+        Rejoin rejoin = new Rejoin(42);
+        rejoin.setSession(victim);
+        intruder.send(rejoin);
+
+        Bet bet = new Bet(new Hid(Seat.YOU, 5.0, 0.0));
+        bet.setSession(victim);
+        intruder.send(bet);
+
+        Thread.sleep(250);
+
+        assertEquals(0, intrusions.get());
+
+        // Play one game at every table at the same time
+        long start = System.currentTimeMillis();
+
+        for(Courier courier: couriers)
+            courier.bet(5, 0);
+
+        assertTrue(gamesOver.await(60, TimeUnit.SECONDS));
+
+        LOG.info("tables = " + TABLES + " games finished in " + (System.currentTimeMillis() - start) + " ms");
+
+        // Every table timed its first card and, unless a blackjack ended it, its stay
+        Metrics metrics = Metrics.getInstance();
+        assertEquals(TABLES, metrics.histogram("player.bet_to_card").getCount());
+        assertTrue(metrics.histogram("player.stay").getCount() > 0);
+        assertTrue(metrics.histogram("player.stay").getCount() <= TABLES);
+        assertEquals(TABLES, metrics.getCount("dealer.hands"));
+        assertEquals(TABLES, metrics.getCount("server.tables"));
+
+        LOG.info("metrics\n" + metrics.getReport().replaceAll(".*\\{table=.*\n", ""));
+
+        // Everyone logs out, which closes the tables and retires the tickets
+        assertEquals(TABLES, server.getRegistry().getPlayers());
+
+        for(Courier courier: couriers)
+            courier.logout();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while(server.getTables().size() != 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertEquals(0, server.getTables().size());
+        assertEquals(0, server.getRegistry().getPlayers());
+        assertEquals(0, server.getRegistry().size());
+    }
+
+    /**
+     * Plays the YOU hand by staying and counts down at game over.
+     */
+    class Player implements IUi {
+        Courier courier;
+
+        @Override
+        public void setCourier(Courier courier) {
+            this.courier = courier;
+        }
+
+        @Override
+        public void play(Hid hid) {
+            if(hid.getSeat() == Seat.YOU)
+                new Thread(() -> courier.stay(hid)).start();
+        }
+
+        @Override
+        public void endGame(int shoeSize) {
+            gamesOver.countDown();
+        }
+
+        @Override
+        public void startGame(List<Hid> hids, int shoeSize) { }
+
+        @Override
+        public void deal(Hid hid, Card card, int[] values) { }
+
+        @Override
+        public void insure() { }
+
+        @Override
+        public void bust(Hid hid) { }
+
+        @Override
+        public void win(Hid hid) { }
+
+        @Override
+        public void blackjack(Hid hid) { }
+
+        @Override
+        public void charlie(Hid hid) { }
+
+        @Override
+        public void lose(Hid hid) { }
+
+        @Override
+        public void push(Hid hid) { }
+
+        @Override
+        public void shuffling() { }
+
+        @Override
+        public void split(Hid newHid, Hid origHid) { }
+    }
+}
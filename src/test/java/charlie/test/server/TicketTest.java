@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.server;
+
+import charlie.server.Ticket;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class tests the ticket keeps an exact bankroll under concurrent
+ * settlements.
+ * @author Ron Coleman
+ */
+public class TicketTest extends TestCase {
+    final Logger LOG = Logger.getLogger(TicketTest.class);
+    final int THREADS = 8;
+    final int CREDITS = 100000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        // Cents round to the nearest and add up exactly where doubles drift
+        Ticket ticket = new Ticket(1, 1000.0);
+        assertEquals(100000L, ticket.getCents());
+        assertEquals(150L, Ticket.toCents(1.499));
+        assertEquals(-250L, Ticket.toCents(-2.5));
+
+        double drift = 0;
+        for(int i=0; i < 10; i++) {
+            ticket.credit(Ticket.toCents(0.1));
+            drift += 0.1;
+        }
+        assertEquals(1001.0, ticket.getBankroll());
+        assertTrue(drift != 1.0);
+
+        ticket.setBankroll(20.05);
+        assertEquals(2005L, ticket.getCents());
+        assertEquals(20.05, ticket.getBankroll());
+
+        // Split hands of one player settling at once lose nothing
+        Ticket shared = new Ticket(2, 0.0);
+        long start = System.nanoTime();
+        settle(new Ticket[] { shared });
+        long elapsed = System.nanoTime() - start;
+        assertEquals(0L, shared.getCents());
+
+        // Every table on its own account
+        Ticket[] accounts = new Ticket[THREADS];
+        for(int i=0; i < THREADS; i++)
+            accounts[i] = new Ticket(i + 10, 0.0);
+
+        start = System.nanoTime();
+        settle(accounts);
+        long elapsed2 = System.nanoTime() - start;
+
+        for(Ticket account: accounts)
+            assertEquals(0L, account.getCents());
+
+        LOG.info("settlements/sec one account = " + (long) (THREADS * CREDITS / (elapsed / 1e9))
+                + " one account per thread = " + (long) (THREADS * CREDITS / (elapsed2 / 1e9)));
+    }
+
+    /**
+     * Credits wins, blackjacks and losses that net to zero from many threads.
+     * @param accounts Accounts, thread i settles on account i mod length
+     */
+    void settle(Ticket[] accounts) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for(int i=0; i < THREADS; i++) {
+            Ticket account = accounts[i % accounts.length];
+            new Thread(() -> {
+                long win = Ticket.toCents(7.5);
+                long lose = Ticket.toCents(-7.5);
+                for(int k=0; k < CREDITS; k++)
+                    account.credit(k % 2 == 0 ? win : lose);
+                done.countDown();
+            }).start();
+        }
+
+        done.await();
+    }
+}
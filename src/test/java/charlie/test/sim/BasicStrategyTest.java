@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.plugin.IAdvisor;
+import charlie.shoe.Shoe;
+import charlie.sim.BasicStrategyAdvisor;
+import charlie.sim.DealerAdvisor;
+import charlie.sim.Simulator;
+import charlie.sim.Stats;
+import charlie.util.Play;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * This class tests the basic strategy chart gives the plays the rules call
+ * for, allocates nothing and beats mimicking the dealer.
+ * @author Ron Coleman
+ */
+public class BasicStrategyTest extends TestCase {
+    final Logger LOG = Logger.getLogger(BasicStrategyTest.class);
+    final int COUNT = 1000000;
+    final int ROUNDS = 100000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        IAdvisor advisor = new BasicStrategyAdvisor();
+
+        Card six = card(6);
+        Card ten = card(10);
+        Card ace = card(Card.ACE);
+
+        assertEquals(Play.DOUBLE_DOWN, advisor.advise(hand(5, 6), six));
+        assertEquals(Play.STAY, advisor.advise(hand(10, Card.KING), ten));
+        assertEquals(Play.STAY, advisor.advise(hand(10, 6), six));
+        assertEquals(Play.HIT, advisor.advise(hand(2, 3), ten));
+        assertEquals(Play.HIT, advisor.advise(hand(Card.ACE, 2), ten));
+        assertEquals(Play.SPLIT, advisor.advise(hand(8, 8), six));
+        assertEquals(Play.SPLIT, advisor.advise(hand(Card.ACE, Card.ACE), ace));
+
+        // Four cards a Charlie away hit what two cards stay on
+        assertEquals(Play.STAY, advisor.advise(hand(10, 5), six));
+        assertEquals(Play.HIT, advisor.advise(hand(2, 3, 4, 6), six));
+
+        // Split hands can't split again
+        Hand split = hand(8, 8);
+        split.getHid().setSplit(true);
+        assertFalse(Play.SPLIT == advisor.advise(split, six));
+
+        // Doubles revert to a hit past two cards
+        byte[] table = new byte[BasicStrategyAdvisor.SIZE];
+        table[BasicStrategyAdvisor.index(BasicStrategyAdvisor.HARD, 11, 3, 6)] = BasicStrategyAdvisor.code(Play.DOUBLE_DOWN);
+        assertEquals(Play.HIT, new BasicStrategyAdvisor(table).advise(hand(2, 4, 5), six));
+
+        // Cells not charted revert to the dealer's rule
+        assertEquals(Play.HIT, new BasicStrategyAdvisor(table).advise(hand(10, 6), six));
+
+        // Chart round trips
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, "US-ASCII");
+        BasicStrategyAdvisor.write(chart(), out);
+        assertTrue(Arrays.equals(chart(), BasicStrategyAdvisor.read(new ByteArrayInputStream(bytes.toByteArray()))));
+
+        advice(advisor);
+
+        play();
+    }
+
+    /**
+     * Checks advice allocates nothing.
+     * @param advisor Advisor
+     */
+    void advice(IAdvisor advisor) {
+        Hand[] hands = { hand(5, 6), hand(10, 6), hand(8, 8), hand(Card.ACE, 7), hand(2, 3, 4, 6) };
+        Card[] upCards = { card(2), card(6), card(9), card(10), card(Card.ACE) };
+
+        for(int i=0; i < COUNT; i++)
+            advisor.advise(hands[i % hands.length], upCards[i % upCards.length]);
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+
+        long bytes = mx.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        int hits = 0;
+        for(int i=0; i < COUNT; i++)
+            if(advisor.advise(hands[i % hands.length], upCards[i % upCards.length]) == Play.HIT)
+                hits++;
+        long elapsed = System.nanoTime() - start;
+        bytes = mx.getThreadAllocatedBytes(id) - bytes;
+
+        LOG.info("advice = " + (elapsed / COUNT) + " ns, " + bytes + " bytes allocated for " + COUNT + ", hits = " + hits);
+        assertTrue(bytes < 1024);
+    }
+
+    /**
+     * Checks basic strategy beats the dealer's rule on the same cards.
+     */
+    void play() {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            Stats dealer = new Simulator(new DealerAdvisor(), new Shoe(6, 1L), 10.0, 0.0).run(ROUNDS);
+            Stats basic = new Simulator(new BasicStrategyAdvisor(), new Shoe(6, 1L), 10.0, 0.0).run(ROUNDS);
+
+            LOG.warn("mimic the dealer edge = " + dealer.getHouseEdge() + " basic strategy edge = " + basic.getHouseEdge());
+
+            assertTrue(basic.getMean() > dealer.getMean() + 0.2);
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Gets the shipped chart.
+     * @return Table
+     */
+    byte[] chart() throws Exception {
+        return BasicStrategyAdvisor.read(BasicStrategyAdvisor.class.getResourceAsStream(BasicStrategyAdvisor.CHART));
+    }
+
+    Hand hand(int... ranks) {
+        Hand hand = new Hand(new Hid(Seat.YOU, 10.0, 0.0));
+
+        for(int rank: ranks)
+            hand.hit(card(rank));
+
+        return hand;
+    }
+
+    Card card(int rank) {
+        return new Card(rank, Card.Suit.HEARTS);
+    }
+}
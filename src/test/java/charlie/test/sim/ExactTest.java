@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.sim.BasicStrategyAdvisor;
+import charlie.sim.ExactCalculator;
+import charlie.sim.PerfectAdvisor;
+import charlie.util.Play;
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the exact calculator on shoes simple enough to work out
+ * by hand, against well-known values and against basic strategy.
+ * @author Ron Coleman
+ */
+public class ExactTest extends TestCase {
+    final Logger LOG = Logger.getLogger(ExactTest.class);
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        // Nothing but tens: the dealer has 20 or busts
+        ExactCalculator calc = new ExactCalculator(6);
+        calc.setShoe(counts(10, 20));
+
+        assertEquals(1.0, calc.getEv(Play.STAY, hand(10, 2), card(6)), 1e-12);
+        assertEquals(-1.0, calc.getEv(Play.HIT, hand(10, 2), card(6)), 1e-12);
+        assertEquals(-1.0, calc.getEv(Play.STAY, hand(10, 6), card(10)), 1e-12);
+        assertEquals(2.0, calc.getEv(Play.DOUBLE_DOWN, hand(5, 6), card(6)), 1e-12);
+        assertEquals(Play.DOUBLE_DOWN, calc.getBest(hand(5, 6), card(6)));
+
+        // Split aces get blackjacks paid 3:2 each
+        assertEquals(3.0, calc.getEv(Play.SPLIT, hand(Card.ACE, Card.ACE), card(6)), 1e-12);
+        assertEquals(Play.SPLIT, calc.getBest(hand(Card.ACE, Card.ACE), card(6)));
+
+        // But not twice
+        Hand split = hand(Card.ACE, Card.ACE);
+        split.getHid().setSplit(true);
+        assertTrue(Double.isNaN(calc.getEv(Play.SPLIT, split, card(6))));
+
+        // Blackjack pays whatever the dealer has
+        assertEquals(1.5, calc.getEv(Play.STAY, hand(Card.ACE, Card.KING), card(10)), 1e-12);
+        assertTrue(Double.isNaN(calc.getEv(Play.HIT, hand(Card.ACE, Card.KING), card(10))));
+
+        // Up ace: the hole can't be a ten, so it's an ace, then the dealer draws 22
+        calc.setShoe(new int[] {0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 20});
+        assertEquals(1.0, calc.getEv(Play.STAY, hand(10, 8), card(Card.ACE)), 1e-12);
+
+        // Nothing but deuces: the dealer stands on 18, the player hits to a Charlie
+        calc.setShoe(counts(2, 40));
+        assertEquals(-1.0, calc.getEv(Play.STAY, hand(2, 2, 2, 2), card(2)), 1e-12);
+        assertEquals(2.0, calc.getEv(Play.HIT, hand(2, 2, 2, 2), card(2)), 1e-12);
+        assertEquals(2.0, calc.getEv(Play.HIT, hand(2, 2), card(2)), 1e-12);
+        assertTrue(Double.isNaN(calc.getEv(Play.DOUBLE_DOWN, hand(2, 2, 2), card(2))));
+
+        // Six decks: standing on 16 against a ten is well known
+        calc.reset(6);
+        remove(calc, 10, 6, 10);
+        double stay = calc.getEv(Play.STAY, hand(10, 6), card(10));
+        LOG.info("six decks 10,6 vs 10 stay = " + stay);
+        assertEquals(-0.540, stay, 0.005);
+
+        // Repeated queries are lookups
+        int nodes = calc.getCacheSize();
+        long start = System.nanoTime();
+        double hit = calc.getEv(Play.HIT, hand(10, 6), card(10));
+        long first = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        assertEquals(hit, calc.getEv(Play.HIT, hand(10, 6), card(10)));
+        long again = System.nanoTime() - start;
+
+        LOG.info("10,6 vs 10 hit = " + hit + " first = " + first / 1000 + " us again = " + again / 1000 + " us nodes = " + calc.getCacheSize());
+        assertTrue(calc.getCacheSize() > nodes);
+        assertTrue(again < first);
+
+        agree();
+    }
+
+    /**
+     * Checks perfect play off the top agrees with basic strategy on the
+     * two-card hands which aren't close.
+     */
+    void agree() {
+        PerfectAdvisor perfect = new PerfectAdvisor();
+        BasicStrategyAdvisor basic = new BasicStrategyAdvisor();
+
+        int cells = 0;
+        int same = 0;
+
+        for(int up=Card.ACE; up <= 10; up++) {
+            for(int first=Card.ACE; first <= 10; first++) {
+                for(int second=first; second <= 10; second++) {
+                    Hand hand = hand(first, second);
+
+                    if(hand.isBlackjack())
+                        continue;
+
+                    cells++;
+
+                    if(perfect.advise(hand, card(up)) == basic.advise(hand, card(up)))
+                        same++;
+                }
+            }
+        }
+
+        // Advising leaves the shoe as it was
+        assertEquals(6 * 52, sum(perfect.getCalculator().getShoe()));
+
+        LOG.info("perfect play agrees with basic strategy on " + same + " of " + cells + " hands");
+        assertTrue(same > 0.9 * cells);
+
+        assertEquals(Play.HIT, perfect.advise(hand(2, 3, 4, 6), card(6)));
+        assertEquals(Play.SPLIT, perfect.advise(hand(8, 8), card(6)));
+
+        // A tracked shoe out of a card fails without losing the ones drawn
+        int[] shoe = counts(10, 20);
+        shoe[6] = 4;
+        perfect.getCalculator().setShoe(shoe);
+
+        try {
+            perfect.advise(hand(10, 7), card(6));
+            fail("advised from a shoe with no 7s");
+        }
+        catch(IllegalStateException expected) {
+
+        }
+
+        try {
+            perfect.advise(hand(10, 6), card(5));
+            fail("advised from a shoe with no 5s");
+        }
+        catch(IllegalStateException expected) {
+
+        }
+
+        assertTrue(Arrays.equals(shoe, perfect.getCalculator().getShoe()));
+    }
+
+    int[] counts(int value, int count) {
+        int[] counts = new int[11];
+        counts[value] = count;
+        return counts;
+    }
+
+    int sum(int[] counts) {
+        int sum = 0;
+        for(int count: counts)
+            sum += count;
+        return sum;
+    }
+
+    void remove(ExactCalculator calc, int... ranks) {
+        for(int rank: ranks)
+            calc.remove(card(rank));
+    }
+
+    Hand hand(int... ranks) {
+        Hand hand = new Hand(new Hid(Seat.YOU, 10.0, 0.0));
+
+        for(int rank: ranks)
+            hand.hit(card(rank));
+
+        return hand;
+    }
+
+    Card card(int rank) {
+        return new Card(rank, Card.Suit.HEARTS);
+    }
+}
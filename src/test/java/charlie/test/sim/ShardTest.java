@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.sim;
+
+import charlie.sim.Simulation;
+import charlie.sim.Stats;
+import charlie.sim.Stats.Outcome;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests a sharded run replays exactly from its master seed
+ * regardless of the number of threads.
+ * @author Ron Coleman
+ */
+public class ShardTest extends TestCase {
+    final Logger LOG = Logger.getLogger(ShardTest.class);
+    final long COUNT = 60000;
+    final long SEED = 20140101L;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            Simulation sim = new Simulation(null, Simulation.DEFAULT_SHOE, 10.0, 0.0);
+            sim.setShardRounds(7000);
+
+            Stats one = sim.run(COUNT, 1, SEED);
+            Stats four = sim.run(COUNT, 4, SEED);
+            Stats other = sim.run(COUNT, 4, SEED + 1);
+
+            LOG.warn("seed " + SEED + ":\n" + one);
+
+            assertEquals(COUNT, one.getRounds());
+            assertSame(one, four);
+
+            assertEquals(COUNT, other.getRounds());
+            assertFalse(one.getMean() == other.getMean() && one.getCount(Outcome.WIN) == other.getCount(Outcome.WIN));
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Checks two runs are identical.
+     * @param a Statistics
+     * @param b Statistics
+     */
+    void assertSame(Stats a, Stats b) {
+        assertEquals(a.getRounds(), b.getRounds());
+        assertEquals(a.getHands(), b.getHands());
+
+        for(Outcome outcome: Outcome.values())
+            assertEquals(a.getCount(outcome), b.getCount(outcome));
+
+        // Exactly, since merges follow the same tree
+        assertEquals(a.getMean(), b.getMean(), 0.0);
+        assertEquals(a.getVariance(), b.getVariance(), 0.0);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package charlie.test.sim;
+
+import charlie.card.Card;
+import charlie.card.Hand;
+import charlie.plugin.IAdvisor;
+import charlie.shoe.Shoe;
+import charlie.sim.DealerAdvisor;
+import charlie.sim.Simulation;
+import charlie.sim.Simulator;
+import charlie.sim.Stats;
+import charlie.sim.Stats.Outcome;
+import charlie.util.Play;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * This class tests the simulator plays the dealer's rules end to end and that
+ * statistics of separate tables merge.
+ * @author Ron Coleman
+ */
+public class SimTest extends TestCase {
+    final Logger LOG = Logger.getLogger(SimTest.class);
+    final int COUNT = 100000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            // Mimic the dealer
+            Stats stats = new Simulator(new DealerAdvisor(), new Shoe(6), 10.0, 0.0).run(COUNT);
+            LOG.warn("mimic the dealer:\n" + stats);
+
+            assertEquals(COUNT, stats.getRounds());
+            assertEquals(COUNT, stats.getHands());
+            assertSane(stats);
+
+            // Split and double whenever allowed
+            Stats aggressive = new Simulator(new Aggressive(), new Shoe(6), 10.0, 0.0).run(COUNT);
+            LOG.warn("split and double:\n" + aggressive);
+
+            assertEquals(COUNT, aggressive.getRounds());
+            assertTrue(aggressive.getHands() > COUNT);
+            assertTrue(aggressive.getVariance() > stats.getVariance());
+            assertSane(aggressive);
+
+            // Tables in parallel merge to the same number of rounds
+            Stats merged = new Simulation(null, Simulation.DEFAULT_SHOE, 10.0, 0.0).run(COUNT + 1, 3, 1L);
+            assertEquals(COUNT + 1, merged.getRounds());
+            assertSane(merged);
+
+            // Merging is the same as one table playing both runs
+            Stats a = new Stats(10.0);
+            Stats b = new Stats(10.0);
+            Stats ab = new Stats(10.0);
+            double[] pls = {10, -10, 0, 15, -20, 20, -10};
+            for(int k=0; k < pls.length; k++) {
+                (k < 3 ? a : b).record(pls[k], 0);
+                ab.record(pls[k], 0);
+            }
+            a.merge(b);
+            assertEquals(ab.getMean(), a.getMean(), 1e-12);
+            assertEquals(ab.getVariance(), a.getVariance(), 1e-9);
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Checks frequencies are within reason for a six deck shoe.
+     * @param stats Statistics
+     */
+    void assertSane(Stats stats) {
+        double total = 0;
+        for(Outcome outcome: Outcome.values())
+            total += stats.getFrequency(outcome);
+
+        assertEquals(1.0, total, 1e-9);
+
+        // Natural blackjack is about 4.75% of initial hands
+        double bj = (double) stats.getCount(Outcome.BLACKJACK) / stats.getRounds();
+        assertTrue(bj > 0.04 && bj < 0.055);
+
+        assertTrue(Math.abs(stats.getHouseEdge()) < 0.1);
+    }
+
+    /**
+     * Splits pairs and doubles ten and eleven, otherwise mimics the dealer.
+     */
+    static class Aggressive implements IAdvisor {
+        @Override
+        public Play advise(Hand myHand, Card upCard) {
+            if(myHand.isPair())
+                return Play.SPLIT;
+
+            if(myHand.size() == 2 && (myHand.getValue() == 10 || myHand.getValue() == 11))
+                return Play.DOUBLE_DOWN;
+
+            return myHand.getValue() < 17 ? Play.HIT : Play.STAY;
+        }
+    }
+}
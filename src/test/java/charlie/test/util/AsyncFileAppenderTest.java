@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.util;
+
+import charlie.util.AsyncFileAppender;
+import junit.framework.TestCase;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class tests the asynchronous file appender writes every event, in
+ * order per thread, and measures what logging costs the caller.
+ * @author Ron Coleman
+ */
+public class AsyncFileAppenderTest extends TestCase {
+    final Logger LOG = Logger.getLogger(AsyncFileAppenderTest.class);
+    final int THREADS = 4;
+    final int EVENTS = 20000;
+    final String PATTERN = "%d{HH:mm:ss} %-5p %t %r %c{1} - %m%n";
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        File dir = Files.createTempDirectory("log").toFile();
+
+        try {
+            // Blocking loses nothing and keeps each thread's order
+            AsyncFileAppender async = new AsyncFileAppender();
+            async.setBlocking(true);
+            run(async, new File(dir, "async.out"));
+
+            List<String> lines = Files.readAllLines(new File(dir, "async.out").toPath());
+            assertEquals(THREADS * EVENTS, lines.size());
+            assertEquals(0, async.getDiscarded());
+
+            for(int i=0; i < THREADS; i++) {
+                String thread = "logger-" + i + " ";
+                int last = -1;
+                for(String line: lines) {
+                    if(!line.contains(thread))
+                        continue;
+                    int n = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+                    assertEquals(last + 1, n);
+                    last = n;
+                }
+                assertEquals(EVENTS - 1, last);
+            }
+
+            // A full ring drops events but says how many
+            AsyncFileAppender small = new AsyncFileAppender();
+            small.setRingSize(16);
+            run(small, new File(dir, "small.out"));
+
+            long written = Files.readAllLines(new File(dir, "small.out").toPath()).size();
+            assertEquals(THREADS * EVENTS, written + small.getDiscarded());
+
+            // What the caller pays once warmed up, with room in the ring
+            run(new FileAppender(), new File(dir, "warm.out"));
+            long syncNs = run(new FileAppender(), new File(dir, "sync.out"));
+
+            AsyncFileAppender roomy = new AsyncFileAppender();
+            roomy.setRingSize(THREADS * EVENTS);
+            long asyncNs = run(roomy, new File(dir, "roomy.out"));
+            assertEquals(0, roomy.getDiscarded());
+
+            LOG.info("ns per event caller sees sync = " + syncNs + " async = " + asyncNs);
+        }
+        finally {
+            for(File file: dir.listFiles())
+                file.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Logs events from many threads through an appender, then closes it.
+     * @param appender File appender
+     * @param file Log file
+     * @return Nanos per event the logging threads spent
+     */
+    long run(FileAppender appender, File file) throws Exception {
+        appender.setName(file.getName());
+        appender.setFile(file.getPath());
+        appender.setAppend(false);
+        appender.setLayout(new PatternLayout(PATTERN));
+        appender.activateOptions();
+
+        Logger logger = Logger.getLogger("charlie.test.util.async." + file.getName());
+        logger.setAdditivity(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        long start = System.nanoTime();
+
+        for(int i=0; i < THREADS; i++) {
+            new Thread(() -> {
+                for(int k=0; k < EVENTS; k++)
+                    logger.info("event " + k);
+                done.countDown();
+            }, "logger-" + i).start();
+        }
+
+        done.await();
+
+        long elapsed = System.nanoTime() - start;
+
+        logger.removeAppender(appender);
+        appender.close();
+
+        return elapsed / (THREADS * EVENTS);
+    }
+}
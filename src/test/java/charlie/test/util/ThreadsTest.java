@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.util;
+
+import charlie.util.Constant;
+import charlie.util.Threads;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/**
+ * This class tests dedicated threads and short tasks run, and that the
+ * configured kind of threads is honored where this Java allows it.
+ * @author Ron Coleman
+ */
+public class ThreadsTest extends TestCase {
+    final int TASKS = 1000;
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        boolean virtual = "virtual".equalsIgnoreCase(System.getProperty(Constant.THREADS));
+
+        assertEquals(virtual && Threads.isVirtualAvailable() ? Threads.Kind.VIRTUAL : Threads.Kind.PLATFORM, Threads.getKind());
+
+        AtomicReference<String> name = new AtomicReference<>();
+        Thread thread = Threads.start("dedicated", () -> name.set(Thread.currentThread().getName()), true);
+        thread.join(5000);
+        assertEquals("dedicated", name.get());
+
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for(int k=0; k < TASKS; k++)
+            Threads.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) Ron Coleman
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package charlie.test.util;
+
+import charlie.actor.Arriver;
+import charlie.actor.Courier;
+import charlie.card.Card;
+import charlie.card.Hid;
+import charlie.dealer.Seat;
+import charlie.message.view.from.Bet;
+import charlie.message.view.from.Stay;
+import charlie.message.view.to.GameOver;
+import charlie.plugin.IUi;
+import charlie.server.GameServer;
+import charlie.server.Ticket;
+import charlie.util.Constant;
+import charlie.util.Trace;
+import charlie.util.TraceReader;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class tests the trace ring keeps the last events without garbage,
+ * and traces a real game end to end into per-hand timelines.
+ * @author Ron Coleman
+ */
+public class TraceTest extends TestCase {
+    final Logger LOG = Logger.getLogger(TraceTest.class);
+    final String CHARLIE_PROPS_PATH = System.getProperty("charlie.props","charlie.props");
+    final int COUNT = 200000;
+
+    final CountDownLatch gameOver = new CountDownLatch(1);
+
+    /**
+     * Runs the test.
+     */
+    public void test() throws Exception {
+        // The ring keeps the last events, oldest first
+        Trace ring = new Trace(8);
+        assertEquals(8, ring.getSize());
+
+        for(int i=0; i < 20; i++) {
+            GameOver msg = new GameOver(i);
+            msg.setSession(3);
+            msg.setSequence(i);
+            ring.record(Trace.SEND, msg);
+        }
+
+        List<TraceReader.Event> events = read(ring);
+        assertEquals(8, events.size());
+        assertEquals(12, events.get(0).sequence);
+        assertEquals(19, events.get(7).sequence);
+        assertEquals("server send", events.get(0).getWhere());
+
+        Hid hid = new Hid(Seat.YOU);
+        ring.record(Trace.RECEIVE, new Stay(hid));
+        TraceReader.Event stay = read(ring).get(7);
+        assertEquals("server recv", stay.getWhere());
+        assertEquals(hid.getKey(), stay.hid);
+
+        // Many threads at once fill the ring with whole events
+        Trace shared = new Trace(1024);
+        Thread[] threads = new Thread[4];
+        for(int i=0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                Stay msg = new Stay(hid);
+                for(int k=0; k < COUNT / 4; k++)
+                    shared.record(Trace.SEND, msg);
+            });
+            threads[i].start();
+        }
+        for(Thread thread: threads)
+            thread.join();
+
+        assertEquals(COUNT, shared.getRecorded());
+        for(TraceReader.Event event: read(shared))
+            assertEquals(hid.getKey(), event.hid);
+
+        // Recording allocates nothing
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        Stay msg = new Stay(hid);
+
+        for(int i=0; i < COUNT; i++)
+            shared.record(Trace.SEND, msg);
+
+        long bytes = mx.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        for(int i=0; i < COUNT; i++)
+            shared.record(Trace.SEND, msg);
+        long elapsed = System.nanoTime() - start;
+        bytes = mx.getThreadAllocatedBytes(id) - bytes;
+
+        LOG.info("trace record = " + (elapsed / COUNT) + " ns, " + bytes + " bytes allocated for " + COUNT);
+        assertTrue(bytes < 1024);
+
+        merge();
+        game();
+    }
+
+    /**
+     * Merges the dumps of a client and the server into one hand.
+     */
+    void merge() throws Exception {
+        Trace client = new Trace(8);
+        Trace server = new Trace(8);
+
+        Bet bet = new Bet(new Hid(Seat.YOU, 5.0, 0.0));
+        bet.setSession(9);
+        client.record(Trace.SEND, bet);
+        // Apart by more than the millis the anchors are good to
+        Thread.sleep(5);
+        server.record(Trace.RECEIVE, bet);
+
+        GameOver over = new GameOver(0);
+        over.setSession(9);
+        server.record(Trace.SEND, over);
+        Thread.sleep(5);
+        client.record(Trace.RECEIVE, over);
+
+        File dir = File.createTempFile("trace", "");
+        dir.delete();
+        dir.mkdir();
+        File clientFile = new File(dir, "client.trace");
+        File serverFile = new File(dir, "server.trace");
+
+        try {
+            // Dumped apart, so each has its own anchor
+            assertEquals(2, client.dump(clientFile.getPath()));
+            Thread.sleep(20);
+            assertEquals(2, server.dump(serverFile.getPath()));
+
+            List<TraceReader.Event> events = TraceReader.read(serverFile.getPath(), clientFile.getPath());
+            assertEquals(4, events.size());
+
+            // Nanos are on the wall clock
+            long now = System.currentTimeMillis();
+            for(TraceReader.Event event: events)
+                assertTrue(Math.abs(event.nanos / 1000000 - now) < 10000);
+
+            List<List<TraceReader.Event>> table = TraceReader.hands(events).get(9);
+            assertEquals(1, table.size());
+
+            List<TraceReader.Event> hand = table.get(0);
+            assertEquals("client send", hand.get(0).getWhere());
+            assertEquals("server recv", hand.get(1).getWhere());
+            assertEquals("server send", hand.get(2).getWhere());
+            assertEquals("client recv", hand.get(3).getWhere());
+        }
+        finally {
+            clientFile.delete();
+            serverFile.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Plays a game with the trace trap on both ends and reads its timeline.
+     */
+    void game() throws Exception {
+        System.getProperties().load(new FileInputStream(CHARLIE_PROPS_PATH));
+        System.setProperty(Constant.PLUGIN_TRAP, "charlie.actor.TraceTrap");
+        System.setProperty(Constant.PLUGIN_PACER, "charlie.dealer.ZeroPacer");
+
+        Level level = Logger.getRootLogger().getLevel();
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        try {
+            GameServer server = new GameServer();
+            Thread thread = new Thread(server::go);
+            thread.setDaemon(true);
+            thread.start();
+
+            Thread.sleep(500);
+
+            Ticket ticket = new Ticket(1, 1000.0);
+            server.getRegistry().issue(ticket);
+
+            Courier courier = new Courier(new Player(), "-1:8001");
+            courier.start();
+            Thread.sleep(100);
+
+            new Arriver(ticket, 8001).send();
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while(courier.getSession() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+
+            courier.bet(5, 0);
+            assertTrue(gameOver.await(20, TimeUnit.SECONDS));
+            Thread.sleep(200);
+
+            Map<Integer,List<List<TraceReader.Event>>> hands = TraceReader.hands(read(Trace.getInstance()));
+            List<List<TraceReader.Event>> table = hands.get(courier.getSession());
+            assertNotNull(table);
+
+            // Arrival, then the hand, which starts with the bet at either end
+            List<TraceReader.Event> hand = table.get(table.size() - 1);
+            assertEquals("Bet", hand.get(0).getSimpleType());
+            assertTrue(hand.stream().anyMatch(e -> e.getWhere().equals("client send") && e.getSimpleType().equals("Bet")));
+            assertTrue(hand.stream().anyMatch(e -> e.getWhere().equals("server recv") && e.getSimpleType().equals("Bet")));
+            assertTrue(hand.stream().anyMatch(e -> e.getWhere().equals("server send") && e.getSimpleType().equals("Deal")));
+            assertTrue(hand.stream().anyMatch(e -> e.getWhere().equals("client recv") && e.getSimpleType().equals("GameOver")));
+
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            TraceReader.print(hands, new PrintStream(text));
+            LOG.info(text.toString());
+        }
+        finally {
+            Logger.getRootLogger().setLevel(level);
+        }
+    }
+
+    /**
+     * Dumps a trace and reads it back.
+     * @param trace Trace
+     * @return Events
+     */
+    List<TraceReader.Event> read(Trace trace) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trace.dump(bytes);
+
+        return TraceReader.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Stays on the YOU hand and counts down at game over.
+     */
+    class Player implements IUi {
+        Courier courier;
+
+        @Override
+        public void setCourier(Courier courier) {
+            this.courier = courier;
+        }
+
+        @Override
+        public void play(Hid hid) {
+            if(hid.getSeat() == Seat.YOU)
+                new Thread(() -> courier.stay(hid)).start();
+        }
+
+        @Override
+        public void endGame(int shoeSize) {
+            gameOver.countDown();
+        }
+
+        @Override
+        public void startGame(List<Hid> hids, int shoeSize) { }
+
+        @Override
+        public void deal(Hid hid, Card card, int[] values) { }
+
+        @Override
+        public void insure() { }
+
+        @Override
+        public void bust(Hid hid) { }
+
+        @Override
+        public void win(Hid hid) { }
+
+        @Override
+        public void blackjack(Hid hid) { }
+
+        @Override
+        public void charlie(Hid hid) { }
+
+        @Override
+        public void lose(Hid hid) { }
+
+        @Override
+        public void push(Hid hid) { }
+
+        @Override
+        public void shuffling() { }
+
+        @Override
+        public void split(Hid newHid, Hid origHid) { }
+    }
+}